@@ -0,0 +1,97 @@
+package de.marvinxmo.versys.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import de.marvinxmo.versys.Message;
+
+/**
+ * Building, copying and querying messages, and their JSON round trip.
+ * fields is the number of payload entries besides "type".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+
+    @Param({ "2", "8", "32" })
+    int fields;
+
+    private String[] keys;
+    private Message message;
+    private String json;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        keys = new String[fields];
+        for (int i = 0; i < fields; i++) {
+            keys[i] = "key" + i;
+        }
+        message = build();
+        message.addHeader("sender", "N1");
+        json = message.toJson();
+    }
+
+    private Message build() {
+        Message m = new Message().add("type", "WRITE");
+        for (int i = 0; i < keys.length; i++) {
+            m.add(keys[i], i);
+        }
+        return m;
+    }
+
+    @Benchmark
+    public Message buildMessage() {
+        return build();
+    }
+
+    @Benchmark
+    public Message deepCopy() {
+        return new Message(message);
+    }
+
+    /**
+     * Copy-on-write copy as made by Network.send, including the sender
+     * header that forks it.
+     */
+    @Benchmark
+    public Message shareAndStamp() {
+        return message.share().addHeader("sender", "N2");
+    }
+
+    @Benchmark
+    public int queryAll() {
+        int sum = message.query("type").length();
+        for (String key : keys) {
+            sum += message.queryInteger(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public String toJson() throws JsonProcessingException {
+        return message.toJson();
+    }
+
+    @Benchmark
+    public Message fromJson() throws IOException {
+        return Message.fromJson(json);
+    }
+}
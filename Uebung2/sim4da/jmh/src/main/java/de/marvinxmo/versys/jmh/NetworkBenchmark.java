@@ -0,0 +1,72 @@
+package de.marvinxmo.versys.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.Network;
+import de.marvinxmo.versys.NetworkConnection;
+import de.marvinxmo.versys.UnknownNodeException;
+
+/**
+ * Network.send as unicast and broadcast, with the given number of
+ * registered nodes and no latency model.
+ *
+ * Nothing else drains the mailboxes, so every operation also receives what
+ * it sent: one message for a unicast, nodes - 1 for a broadcast. The
+ * broadcast score is per broadcast; divide by nodes - 1 for the cost per
+ * receiver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetworkBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    int nodes;
+
+    private final Network network = Network.getInstance();
+    private NetworkConnection[] connections;
+    private final Message message = new Message().add("type", "PING").add("value", 42);
+    private int next = 1;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        connections = new NetworkConnection[nodes];
+        for (int i = 0; i < nodes; i++) {
+            connections[i] = new NetworkConnection("N" + i);
+        }
+    }
+
+    @Benchmark
+    public void unicast(Blackhole bh) throws UnknownNodeException {
+        NetworkConnection receiver = connections[next];
+        network.send(message, connections[0], receiver.NodeName());
+        bh.consume(receiver.receive());
+        next = next + 1 < nodes ? next + 1 : 1;
+    }
+
+    @Benchmark
+    public void broadcast(Blackhole bh) {
+        network.send(message, connections[0]);
+        for (int i = 1; i < nodes; i++) {
+            bh.consume(connections[i].receive());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package de.marvinxmo.versys.jmh;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.marvinxmo.versys.MailboxType;
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.NetworkConnection;
+import de.marvinxmo.versys.NodeProxy;
+
+/**
+ * NodeProxy.deliver and receive with 1..N producer threads delivering into
+ * one mailbox while the benchmark thread receives.
+ *
+ * Every invocation moves BATCH messages, split among the producers, and
+ * only returns after all of them have been received, so no thread is left
+ * blocked in receive when an iteration ends. Scores are per message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeProxyBenchmark {
+
+    static final int BATCH = 10_000;
+
+    @Param({ "1", "2", "4", "8" })
+    int producers;
+
+    @Param({ "LOCK_FREE", "LOCKED" })
+    MailboxType mailbox;
+
+    private NetworkConnection[] senders;
+    private NodeProxy proxy;
+    private ExecutorService pool;
+    private Future<?>[] running;
+    private final Message message = new Message().add("type", "PING").freeze();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        NetworkConnection receiver = new NetworkConnection("Receiver");
+        proxy = new NodeProxy(receiver, mailbox);
+        senders = new NetworkConnection[producers];
+        for (int i = 0; i < producers; i++) {
+            senders[i] = new NetworkConnection("Producer" + i);
+        }
+        pool = Executors.newFixedThreadPool(producers);
+        running = new Future<?>[producers];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void deliverAndReceive(Blackhole bh) throws Exception {
+        int share = BATCH / producers;
+        for (int p = 0; p < producers; p++) {
+            NetworkConnection sender = senders[p];
+            int count = p == 0 ? BATCH - share * (producers - 1) : share;
+            running[p] = pool.submit(() -> {
+                for (int i = 0; i < count; i++) {
+                    proxy.deliver(message.share(), sender, 0);
+                }
+            });
+        }
+        for (int i = 0; i < BATCH; i++) {
+            bh.consume(proxy.receive());
+        }
+        for (Future<?> f : running) {
+            f.get();
+        }
+    }
+}
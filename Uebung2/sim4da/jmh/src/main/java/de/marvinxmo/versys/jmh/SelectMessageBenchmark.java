@@ -0,0 +1,55 @@
+package de.marvinxmo.versys.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.marvinxmo.versys.RandomValues;
+import de.marvinxmo.versys.SimulationBehavior;
+
+/**
+ * SimulationBehavior.selectMessageInQueue with a uniform distribution,
+ * from one and from four threads (the draws must not contend).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SelectMessageBenchmark {
+
+    @Param({ "1", "16", "1024" })
+    int queueSize;
+
+    @Setup
+    public void setup() {
+        // Can only be set once per JVM
+        if (!SimulationBehavior.isMessageQueueSelectionRandomized()) {
+            SimulationBehavior.setMessageQueueSelectionSampler(RandomValues.uniform());
+        }
+        SimulationBehavior.setSeed(1);
+    }
+
+    @Benchmark
+    public int select() {
+        return SimulationBehavior.selectMessageInQueue(queueSize);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int selectContended() {
+        return SimulationBehavior.selectMessageInQueue(queueSize);
+    }
+}
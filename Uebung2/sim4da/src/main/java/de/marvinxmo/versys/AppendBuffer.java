@@ -0,0 +1,50 @@
+package de.marvinxmo.versys;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Primitive array shared by the DoubleArray, LongArray and IntArray values
+ * created from each other by appending. used counts the slots that are taken;
+ * an append may only claim the next one, so slots below a value's length
+ * never change.
+ *
+ * @param <A> the primitive array type, e.g. double[]
+ */
+final class AppendBuffer<A> {
+
+    private AppendBuffer(A data, int capacity, int used) {
+        this.data = data;
+        this.capacity = capacity;
+        this.used = new AtomicInteger(used);
+    }
+
+    /**
+     * Buffer holding a copy of the first length values.
+     */
+    static <A> AppendBuffer<A> copyOf(A values, int length, IntFunction<A> allocate) {
+        int capacity = Math.max(length, 8);
+        A data = allocate.apply(capacity);
+        System.arraycopy(values, 0, data, 0, length);
+        return new AppendBuffer<>(data, capacity, length);
+    }
+
+    /**
+     * Buffer whose slot at index length the caller may fill, for appending
+     * to a value of the given length: this one if the slot is still free,
+     * otherwise a copy with room to grow.
+     */
+    AppendBuffer<A> claim(int length, IntFunction<A> allocate) {
+        if (length < capacity && used.compareAndSet(length, length + 1)) {
+            return this;
+        }
+        int capacity = Math.max(8, length * 2);
+        A grown = allocate.apply(capacity);
+        System.arraycopy(data, 0, grown, 0, length);
+        return new AppendBuffer<>(grown, capacity, length + 1);
+    }
+
+    final A data;
+    private final int capacity;
+    private final AtomicInteger used;
+}
@@ -0,0 +1,87 @@
+package de.marvinxmo.versys;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outstanding calls of one connection (see NetworkConnection.call).
+ *
+ * A request carries a correlation id in its "call" header, the response
+ * repeats it in the "reply" header. The NodeProxy hands every delivered
+ * response to complete(), which finishes the waiting future on the
+ * delivering thread; responses never enter the mailbox.
+ */
+final class Calls {
+
+    static final String CALL = "call";
+    static final String REPLY = "reply";
+
+    Calls(NetworkConnection nc) {
+        this.nc = nc;
+    }
+
+    /**
+     * Send request to target and return the future of its response.
+     * timeoutMs is simulator time, negative for no timeout.
+     */
+    CompletableFuture<Message> call(String target, Message request, long timeoutMs) {
+        String id = Long.toString(nextId.getAndIncrement());
+        CompletableFuture<Message> response = new CompletableFuture<>();
+        pending.put(id, response);
+        request.addHeader(CALL, id);
+
+        VirtualTimeScheduler.Event timer = null;
+        if (timeoutMs >= 0) {
+            if (simulator.isVirtualTime()) {
+                timer = simulator.schedule(timeoutMs, () -> response.completeExceptionally(
+                        new TimeoutException("No response from " + target + " within " + timeoutMs + " ms")));
+            } else {
+                response.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        VirtualTimeScheduler.Event t = timer;
+        response.whenComplete((m, e) -> {
+            pending.remove(id);
+            if (t != null) {
+                // A pending timer would keep virtual time from running dry
+                t.cancel();
+            }
+        });
+
+        try {
+            nc.send(request, target);
+        } catch (UnknownNodeException e) {
+            response.completeExceptionally(e);
+        }
+        return response;
+    }
+
+    /**
+     * Complete the call message responds to. False if message is no
+     * response; responses to calls that timed out are dropped.
+     */
+    boolean complete(Message message) {
+        String id = message.queryHeader(REPLY);
+        if (id == null) {
+            return false;
+        }
+        CompletableFuture<Message> response = pending.remove(id);
+        if (response == null || !response.complete(message)) {
+            nc.getLogger().debug("Dropping late response {} from {}", id, message.queryHeader("sender"));
+            if (message.isPooled()) {
+                message.release();
+            }
+        }
+        return true;
+    }
+
+    private final NetworkConnection nc;
+    private final Simulator simulator = Simulator.getInstance();
+    private final Map<String, CompletableFuture<Message>> pending = new ConcurrentHashMap<>();
+    // Several threads of a node may call at once
+    private final AtomicLong nextId = new AtomicLong();
+}
@@ -1,8 +1,5 @@
 package de.marvinxmo.versys;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ConsistentRingToRuleThemAll {
 
     final int ringSize = 20;
@@ -39,14 +36,13 @@ public class ConsistentRingToRuleThemAll {
             m.add("total_fires", 0);
             m.add("total_misfires", 0);
             m.add("total_roundtrips", 0);
-            List<Double> roundtrip_times = new ArrayList<Double>();
-            m.add("roundtrip_times", roundtrip_times);
+            m.add("roundtrip_times", new double[0]);
             m.add("p_fail", 0f);
 
             nc.sendBlindly(m, "0");
 
             try {
-                Thread.sleep(waitTime);
+                Simulator.getInstance().sleep(waitTime);
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
@@ -75,7 +71,7 @@ public class ConsistentRingToRuleThemAll {
         int total_fires = 0;
         int total_misfires = 0;
         int total_roundtrips = 0;
-        List<Double> roundtrip_times = new ArrayList<Double>();
+        DoubleArray roundtrip_times = DoubleArray.of();
         float p_fail = 0f;
         int max_consecutive_misfires = 0;
 
@@ -133,12 +129,10 @@ public class ConsistentRingToRuleThemAll {
 
                         m.add("total_roundtrips", m.queryInteger("total_roundtrips") + 1);
 
-                        long receive_time = System.nanoTime();
+                        long receive_time = nanoTime();
                         double round_time_ms = (receive_time - last_forward_time) / 1_000_000.0;
 
-                        List<Double> roundtrip_times = m.queryDoubleArray("roundtrip_times");
-                        roundtrip_times.add(round_time_ms);
-                        m.add("roundtrip_times", roundtrip_times);
+                        m.appendDouble("roundtrip_times", round_time_ms);
 
                     }
                 }
@@ -146,7 +140,7 @@ public class ConsistentRingToRuleThemAll {
                 int max_consecutive_misfires = m.queryInteger("max_consecutive_misfires");
                 int consecutive_misfires = m.queryInteger("consecutive_misfires");
 
-                float r = (float) Math.random();
+                float r = (float) RandomStreams.current().nextDouble();
 
                 if (r < p_fire) {
                     System.out.printf("Node %s fired (p_fire= %s)\n", NodeName(),
@@ -193,7 +187,7 @@ public class ConsistentRingToRuleThemAll {
                             NodeName(), next_id);
                 }
 
-                last_forward_time = System.nanoTime();
+                last_forward_time = nanoTime();
             }
         }
 
@@ -203,7 +197,7 @@ public class ConsistentRingToRuleThemAll {
             total_fires = m.queryInteger("total_fires");
             total_misfires = m.queryInteger("total_misfires");
             total_roundtrips = m.queryInteger("total_roundtrips");
-            roundtrip_times = m.queryDoubleArray("roundtrip_times");
+            roundtrip_times = m.queryDoubles("roundtrip_times");
             p_fail = m.queryFloat("p_fail");
             max_consecutive_misfires = m.queryInteger("max_consecutive_misfires");
 
@@ -219,13 +213,13 @@ public class ConsistentRingToRuleThemAll {
             System.out.printf("total_roundtrips: %s\n", total_roundtrips);
             System.out.printf("roundtrip_times: %s\n", roundtrip_times);
             System.out.printf("average roundtrip time: %s\n",
-                    roundtrip_times.stream().mapToDouble(Double::doubleValue)
+                    roundtrip_times.stream()
                             .average().orElse(0.0));
             System.out.printf("min roundtrip time: %s\n",
-                    roundtrip_times.stream().mapToDouble(Double::doubleValue)
+                    roundtrip_times.stream()
                             .min().orElse(0.0));
             System.out.printf("max roundtrip time: %s\n",
-                    roundtrip_times.stream().mapToDouble(Double::doubleValue)
+                    roundtrip_times.stream()
                             .max().orElse(0.0));
             System.out.printf("p_fail: %s\n", p_fail);
             System.out.printf("max_consecutive_misfires: %s\n",
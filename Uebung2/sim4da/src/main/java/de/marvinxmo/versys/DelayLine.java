@@ -0,0 +1,85 @@
+package de.marvinxmo.versys;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds delayed deliveries in real time mode. Deliveries wait in a DelayQueue
+ * ordered by due time and one daemon thread runs them when due, so senders
+ * never block. Virtual time uses the event queue of the scheduler instead.
+ */
+final class DelayLine {
+
+    private static final class Delivery implements Delayed {
+        Delivery(long due, long seq, Runnable action) {
+            this.due = due;
+            this.seq = seq;
+            this.action = action;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            Delivery other = (Delivery) o;
+            int c = Long.compare(due, other.due);
+            // Equal due times keep their scheduling order
+            return c != 0 ? c : Long.compare(seq, other.seq);
+        }
+
+        final long due;
+        final long seq;
+        final Runnable action;
+    }
+
+    void schedule(long delayMs, Runnable action) {
+        ensureStarted();
+        queue.add(new Delivery(System.nanoTime() + delayMs * 1_000_000L, seq.getAndIncrement(), action));
+    }
+
+    int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Stop the delivery thread. Deliveries that are not due yet are dropped.
+     */
+    synchronized void shutdown() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        queue.clear();
+    }
+
+    private synchronized void ensureStarted() {
+        if (thread == null) {
+            thread = new Thread(this::run, "sim4da-delay-line");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                queue.take().action.run();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                LoggerFactory.getLogger(DelayLine.class).error("Delayed delivery failed", e);
+            }
+        }
+    }
+
+    private final DelayQueue<Delivery> queue = new DelayQueue<>();
+    private final AtomicLong seq = new AtomicLong();
+    private Thread thread = null;
+}
@@ -0,0 +1,68 @@
+package de.marvinxmo.versys;
+
+/**
+ * A message on its way through a node's mailbox, together with the
+ * connection it was sent from. Also serves as the queue node of the
+ * lock-free mailbox, which saves a second allocation per message.
+ */
+public final class Envelope {
+
+    public Envelope(Message message, NetworkConnection sender) {
+        this(message, sender, Simulator.getInstance().nanoTime());
+    }
+
+    public Envelope(Message message, NetworkConnection sender, long sendTime) {
+        this.message = message;
+        this.sender = sender;
+        this.sendTime = sendTime;
+    }
+
+    /**
+     * Envelope for a pooled message, taken from the envelope pool. Goes back
+     * with {@link #recycle()} once the message has been received.
+     */
+    static Envelope recycled(Message message, NetworkConnection sender, long sendTime) {
+        Envelope e = POOL.poll();
+        if (e == null) {
+            return new Envelope(message, sender, sendTime);
+        }
+        e.message = message;
+        e.sender = sender;
+        e.sendTime = sendTime;
+        return e;
+    }
+
+    void recycle() {
+        message = null;
+        sender = null;
+        // 0 means "not stamped" to the next receiver
+        queuedAt = 0;
+        POOL.offer(this);
+    }
+
+    public Message message() {
+        return message;
+    }
+
+    public NetworkConnection sender() {
+        return sender;
+    }
+
+    /**
+     * Simulator nanoTime at which the message was sent.
+     */
+    public long sendTime() {
+        return sendTime;
+    }
+
+    // Only reassigned while the envelope sits in the pool
+    private Message message;
+    private NetworkConnection sender;
+    private long sendTime;
+    // Simulator nanoTime of the delivery into the mailbox, only set while
+    // metrics are recorded
+    long queuedAt;
+    private static final Recycler<Envelope> POOL = new Recycler<>(4096);
+    // Link used by LockFreeMailbox
+    volatile Envelope next;
+}
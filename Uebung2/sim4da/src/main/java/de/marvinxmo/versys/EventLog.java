@@ -0,0 +1,224 @@
+package de.marvinxmo.versys;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary log of every send, delivery and receive of a run, in the
+ * order they happened. Installed with SimulationBehavior.setEventLog and
+ * closed by Simulator.shutdown. {@link Replay} uses it to re-drive a run.
+ *
+ * Messages are identified by their sender and the sender's send sequence
+ * number, which the Network stamps into the "sseq" header while a log or
+ * replay is active. A broadcast has one number for all receivers.
+ *
+ * Format: the magic "S4DL", a version byte and the seed, then records of a
+ * type byte followed by varints. A NAME record (0) assigns an id to a node
+ * name when it first occurs. SEND (1), DELIVER (2) and RECEIVE (3) hold
+ * the node, its peer (receiver of a send, sender otherwise; 0 for a
+ * broadcast), the sequence number and the simulator time in nanoseconds as
+ * difference to the previous record. A record takes about 8 bytes.
+ *
+ * Usage: EventLog file (prints the log)
+ */
+public class EventLog implements Closeable {
+
+    public static final byte NAME = 0;
+    public static final byte SEND = 1;
+    public static final byte DELIVER = 2;
+    public static final byte RECEIVE = 3;
+
+    static final int MAGIC = 0x5334444c;
+    static final byte VERSION = 1;
+    private static final int BUFFER = 64 * 1024;
+
+    /**
+     * Receives the records of a log in order. Node names are resolved.
+     */
+    public interface Visitor {
+        void event(byte type, String node, String peer, int seq, long time);
+    }
+
+    private EventLog(FileChannel channel, long seed) {
+        this.channel = channel;
+        buffer.putInt(MAGIC).put(VERSION).putLong(seed);
+    }
+
+    /**
+     * Start a log in file, with the current global seed.
+     */
+    public static EventLog create(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new EventLog(channel, SimulationBehavior.getSeed());
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = read(Path.of(args[0]), (type, node, peer, seq, time) -> {
+            String what = type == SEND ? "send   " : type == DELIVER ? "deliver" : "receive";
+            System.out.printf("%14d %s %s %s #%d%n", time, what, node, peer == null ? "*" : peer, seq);
+        });
+        System.out.println("seed " + seed);
+    }
+
+    /**
+     * receiver is null for a broadcast.
+     */
+    void send(String sender, String receiver, int seq) {
+        write(SEND, sender, receiver, seq);
+    }
+
+    void deliver(String receiver, Message message) {
+        write(DELIVER, receiver, message.queryHeader("sender"), sseq(message));
+    }
+
+    void receive(String receiver, Message message) {
+        write(RECEIVE, receiver, message.queryHeader("sender"), sseq(message));
+    }
+
+    private static int sseq(Message message) {
+        String s = message.queryHeader("sseq");
+        return s == null ? -1 : Integer.parseInt(s);
+    }
+
+    private synchronized void write(byte type, String node, String peer, int seq) {
+        if (closed) {
+            return;
+        }
+        long time = Simulator.getInstance().nanoTime();
+        int nodeId = id(node);
+        int peerId = peer == null ? 0 : id(peer);
+        ensure(1 + 5 + 5 + 5 + 10);
+        buffer.put(type);
+        putVarint(nodeId);
+        putVarint(peerId);
+        // -1 (not numbered) becomes 0
+        putVarint(seq + 1);
+        long delta = time - lastTime;
+        lastTime = time;
+        putVarlong((delta << 1) ^ (delta >> 63));
+    }
+
+    private int id(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        id = ids.size() + 1;
+        ids.put(name, id);
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ensure(1 + 5 + 5 + bytes.length);
+        buffer.put(NAME);
+        putVarint(id);
+        putVarint(bytes.length);
+        buffer.put(bytes);
+        return id;
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write event log", e);
+        }
+        buffer.clear();
+    }
+
+    private void putVarint(int v) {
+        putVarlong(v & 0xffffffffL);
+    }
+
+    private void putVarlong(long v) {
+        while ((v & ~0x7fL) != 0) {
+            buffer.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+        }
+    }
+
+    /**
+     * Read a log, handing every record to visitor. Returns the seed.
+     */
+    public static long read(Path file, Visitor visitor) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.remaining() < 13 || in.getInt() != MAGIC || in.get() != VERSION) {
+            throw new IOException(file + " is not an event log");
+        }
+        long seed = in.getLong();
+        List<String> names = new ArrayList<>();
+        names.add(null);
+        long time = 0;
+        while (in.hasRemaining()) {
+            byte type = in.get();
+            if (type == NAME) {
+                int id = (int) getVarlong(in);
+                byte[] bytes = new byte[(int) getVarlong(in)];
+                in.get(bytes);
+                while (names.size() <= id) {
+                    names.add(null);
+                }
+                names.set(id, new String(bytes, StandardCharsets.UTF_8));
+                continue;
+            }
+            String node = names.get((int) getVarlong(in));
+            String peer = names.get((int) getVarlong(in));
+            int seq = (int) getVarlong(in) - 1;
+            long z = getVarlong(in);
+            time += (z >>> 1) ^ -(z & 1);
+            visitor.event(type, node, peer, seq, time);
+        }
+        return seed;
+    }
+
+    private static long getVarlong(ByteBuffer in) {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            v |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return v;
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+    private final Map<String, Integer> ids = new HashMap<>();
+    private long lastTime = 0;
+    private boolean closed = false;
+}
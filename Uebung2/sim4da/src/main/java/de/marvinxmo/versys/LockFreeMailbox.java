@@ -0,0 +1,246 @@
+package de.marvinxmo.versys;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import de.marvinxmo.versys.delivery.DeliveryPolicy;
+
+/**
+ * Lock-free multi-producer/single-consumer mailbox.
+ *
+ * Envelopes are linked into an intrusive queue (Vyukov's MPSC design):
+ * producers append with a single getAndSet on the head, the consumer
+ * dequeues from the tail in O(1) without any atomic instruction. An idle
+ * receiver parks; the producer that finds it waiting unparks it.
+ *
+ * With a non-FIFO delivery policy the receiver moves the queued envelopes
+ * into the policy, which only it accesses, and selects from there.
+ */
+class LockFreeMailbox implements Mailbox {
+
+    private static final VarHandle HEAD;
+    private static final VarHandle NEXT;
+    private static final VarHandle WAITER;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(LockFreeMailbox.class, "head", Envelope.class);
+            NEXT = lookup.findVarHandle(Envelope.class, "next", Envelope.class);
+            WAITER = lookup.findVarHandle(LockFreeMailbox.class, "waiter", Thread.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    LockFreeMailbox(DeliveryPolicy policy) {
+        head = stub;
+        tail = stub;
+        this.pending = policy.isFifo() ? null : policy;
+    }
+
+    @Override
+    public void deliver(Envelope envelope) {
+        enqueue(envelope);
+        enqueued.increment();
+        Thread w = waiter;
+        if (w != null) {
+            wake(w);
+        }
+    }
+
+    // Whoever clears the waiter is responsible for waking it up
+    private void wake(Thread w) {
+        if (WAITER.compareAndSet(this, w, null)) {
+            simulator.unblock();
+            LockSupport.unpark(w);
+        }
+    }
+
+    @Override
+    public Envelope receive() throws InterruptedException {
+        Envelope e = next();
+        if (e != null) {
+            return e;
+        }
+
+        Thread self = Thread.currentThread();
+        while (true) {
+            WAITER.setVolatile(this, self);
+            e = next();
+            if (e != null) {
+                if (!WAITER.compareAndSet(this, self, null)) {
+                    // A producer already counted us as woken up
+                    simulator.block();
+                }
+                return e;
+            }
+
+            simulator.block();
+            while (waiter == self) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    if (WAITER.compareAndSet(this, self, null)) {
+                        simulator.unblock();
+                    }
+                    throw new InterruptedException();
+                }
+            }
+            e = next();
+            if (e != null) {
+                return e;
+            }
+        }
+    }
+
+    @Override
+    public Envelope receive(long timeoutNanos) throws InterruptedException {
+        Envelope e = next();
+        if (e != null || timeoutNanos <= 0) {
+            return e;
+        }
+
+        Thread self = Thread.currentThread();
+        long deadline = simulator.deadline(timeoutNanos);
+        // In virtual time an event wakes us at the deadline; scheduled before
+        // blocking, so the clock cannot pass it unnoticed
+        VirtualTimeScheduler.Event timer = simulator.isVirtualTime()
+                ? simulator.scheduleAt(deadline, () -> wake(self))
+                : null;
+        try {
+            while (true) {
+                WAITER.setVolatile(this, self);
+                e = next();
+                if (e != null || deadline - simulator.nanoTime() <= 0) {
+                    if (!WAITER.compareAndSet(this, self, null)) {
+                        // A producer or the timer already counted us as woken up
+                        simulator.block();
+                    }
+                    return e;
+                }
+
+                simulator.block();
+                while (waiter == self) {
+                    if (timer != null) {
+                        LockSupport.park(this);
+                    } else {
+                        long left = deadline - simulator.nanoTime();
+                        if (left <= 0) {
+                            if (WAITER.compareAndSet(this, self, null)) {
+                                simulator.unblock();
+                            }
+                            break;
+                        }
+                        LockSupport.parkNanos(this, left);
+                    }
+                    if (Thread.interrupted()) {
+                        if (WAITER.compareAndSet(this, self, null)) {
+                            simulator.unblock();
+                        }
+                        throw new InterruptedException();
+                    }
+                }
+            }
+        } finally {
+            if (timer != null) {
+                timer.cancel();
+            }
+        }
+    }
+
+    @Override
+    public Envelope tryReceive() {
+        return next();
+    }
+
+    @Override
+    public int size() {
+        return (int) (enqueued.sum() - dequeued);
+    }
+
+    private Envelope next() {
+        if (pending != null) {
+            return nextSelected();
+        }
+        Envelope e = dequeue();
+        if (e != null) {
+            dequeued++;
+        }
+        return e;
+    }
+
+    private Envelope nextSelected() {
+        Envelope e;
+        while ((e = dequeue()) != null) {
+            pending.add(e);
+        }
+        e = pending.next();
+        if (e != null) {
+            dequeued++;
+        }
+        return e;
+    }
+
+    private void enqueue(Envelope e) {
+        NEXT.set(e, (Envelope) null);
+        Envelope prev = (Envelope) HEAD.getAndSet(this, e);
+        NEXT.setRelease(prev, e);
+    }
+
+    /**
+     * Consumer side only. Spins briefly if a producer has claimed the head but
+     * not linked its envelope yet.
+     */
+    private Envelope dequeue() {
+        while (true) {
+            Envelope e = poll();
+            if (e != null || (tail == stub && head == stub)) {
+                return e;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private Envelope poll() {
+        Envelope t = tail;
+        Envelope n = (Envelope) NEXT.getAcquire(t);
+        if (t == stub) {
+            if (n == null) {
+                return null;
+            }
+            tail = n;
+            t = n;
+            n = (Envelope) NEXT.getAcquire(n);
+        }
+        if (n != null) {
+            tail = n;
+            t.next = null;
+            return t;
+        }
+        if (t != head) {
+            return null; // Producer in progress
+        }
+        enqueue(stub);
+        n = (Envelope) NEXT.getAcquire(t);
+        if (n != null) {
+            tail = n;
+            t.next = null;
+            return t;
+        }
+        return null;
+    }
+
+    private final Envelope stub = new Envelope(null, null, 0);
+    @SuppressWarnings("unused") // accessed through HEAD
+    private volatile Envelope head;
+    private Envelope tail;
+    @SuppressWarnings("unused") // accessed through WAITER
+    private volatile Thread waiter;
+    private final LongAdder enqueued = new LongAdder();
+    private volatile long dequeued = 0;
+    // Null for FIFO delivery, which is served straight from the queue
+    private final DeliveryPolicy pending;
+    private final Simulator simulator = Simulator.getInstance();
+}
@@ -0,0 +1,142 @@
+package de.marvinxmo.versys;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.marvinxmo.versys.delivery.DeliveryPolicy;
+
+/**
+ * The original NodeProxy queue: every delivery and receive takes one lock,
+ * and the delivery policy keeps the queued messages.
+ */
+class LockedMailbox implements Mailbox {
+
+    LockedMailbox(DeliveryPolicy policy) {
+        this.messages = policy;
+    }
+
+    @Override
+    public void deliver(Envelope envelope) {
+        lock.lock();
+        try {
+            messages.add(envelope);
+            if (receiverBlocked) {
+                receiverBlocked = false;
+                simulator.unblock();
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Envelope receive() throws InterruptedException {
+        // A j.u.c. lock instead of a monitor, so a waiting virtual thread
+        // unmounts from its carrier instead of pinning it
+        lock.lock();
+        try {
+            while (messages.isEmpty()) {
+                try {
+                    if (!receiverBlocked) {
+                        receiverBlocked = true;
+                        simulator.block();
+                    }
+                    notEmpty.await();
+                } catch (InterruptedException e) {
+                    if (receiverBlocked) {
+                        receiverBlocked = false;
+                        simulator.unblock();
+                    }
+                    throw e;
+                }
+            }
+            return messages.next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Envelope receive(long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            if (messages.isEmpty() && timeoutNanos > 0) {
+                long deadline = simulator.deadline(timeoutNanos);
+                VirtualTimeScheduler.Event timer = simulator.isVirtualTime()
+                        ? simulator.scheduleAt(deadline, this::timeout)
+                        : null;
+                try {
+                    while (messages.isEmpty()) {
+                        long left = deadline - simulator.nanoTime();
+                        if (left <= 0) {
+                            break;
+                        }
+                        if (!receiverBlocked) {
+                            receiverBlocked = true;
+                            simulator.block();
+                        }
+                        if (timer != null) {
+                            notEmpty.await();
+                        } else {
+                            notEmpty.awaitNanos(left);
+                        }
+                    }
+                } finally {
+                    if (timer != null) {
+                        timer.cancel();
+                    }
+                    if (receiverBlocked) {
+                        receiverBlocked = false;
+                        simulator.unblock();
+                    }
+                }
+            }
+            return messages.isEmpty() ? null : messages.next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Fired in virtual time once the deadline of a timed receive is reached
+    private void timeout() {
+        lock.lock();
+        try {
+            if (receiverBlocked) {
+                receiverBlocked = false;
+                simulator.unblock();
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Envelope tryReceive() {
+        lock.lock();
+        try {
+            return messages.isEmpty() ? null : messages.next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return messages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final DeliveryPolicy messages;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Simulator simulator = Simulator.getInstance();
+    // Set while the receiving thread waits; the deliverer wakes it in virtual
+    // time
+    private boolean receiverBlocked = false;
+}
@@ -0,0 +1,79 @@
+package de.marvinxmo.versys;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * Immutable sequence of long values in a message payload.
+ *
+ * Arrays created by appending share one buffer. An append to the longest
+ * array of a buffer claims the next slot in place; appending to an older one
+ * copies. Slots below an array's length never change, so appending is
+ * amortized O(1) and safe on messages shared with other nodes.
+ */
+public final class LongArray {
+
+    private LongArray(AppendBuffer<long[]> buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+    }
+
+    public static LongArray of(long... values) {
+        return new LongArray(AppendBuffer.copyOf(values, values.length, long[]::new), values.length);
+    }
+
+    public LongArray append(long value) {
+        AppendBuffer<long[]> b = buffer.claim(length, long[]::new);
+        b.data[length] = value;
+        return new LongArray(b, length + 1);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public long get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return buffer.data[index];
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(buffer.data, length);
+    }
+
+    public LongStream stream() {
+        return Arrays.stream(buffer.data, 0, length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LongArray other && Arrays.equals(buffer.data, 0, length, other.buffer.data, 0, other.length);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + Long.hashCode(buffer.data[i]);
+        }
+        return h;
+    }
+
+    // Same format as List.toString()
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(buffer.data[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private final AppendBuffer<long[]> buffer;
+    private final int length;
+}
@@ -0,0 +1,28 @@
+package de.marvinxmo.versys;
+
+/**
+ * Incoming message queue of a node. Any number of threads may deliver, but
+ * only one thread (the node's receiver) may receive.
+ */
+public interface Mailbox {
+
+    void deliver(Envelope envelope);
+
+    /**
+     * Take the next envelope, blocking while the mailbox is empty.
+     */
+    Envelope receive() throws InterruptedException;
+
+    /**
+     * Take the next envelope, waiting at most timeoutNanos of simulator time
+     * (virtual time in {@link TimeMode#VIRTUAL_TIME}). Null on timeout.
+     */
+    Envelope receive(long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Take the next envelope if there is one, null otherwise. Never blocks.
+     */
+    Envelope tryReceive();
+
+    int size();
+}
@@ -0,0 +1,29 @@
+package de.marvinxmo.versys;
+
+import de.marvinxmo.versys.delivery.DeliveryPolicy;
+
+/**
+ * Mailbox implementations a NodeProxy can use.
+ *
+ * LOCKED guards the queue with a lock; LOCK_FREE is a
+ * multi-producer/single-consumer linked queue with O(1) dequeue and
+ * park-based wakeups.
+ */
+public enum MailboxType {
+    LOCKED,
+    LOCK_FREE;
+
+    public Mailbox newMailbox() {
+        return newMailbox(SimulationBehavior.newDeliveryPolicy());
+    }
+
+    public Mailbox newMailbox(DeliveryPolicy policy) {
+        switch (this) {
+            case LOCKED:
+                return new LockedMailbox(policy);
+            case LOCK_FREE:
+            default:
+                return new LockFreeMailbox(policy);
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package de.marvinxmo.versys;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -14,27 +24,255 @@ public class Message {
     private Map<String, Map<String, String>> content = new HashMap<>();
     private static final ObjectMapper serializer = new ObjectMapper();
 
+    // Copy-on-write state. While shared, content may be referenced by other
+    // Message instances and must not be modified; the first write forks the
+    // outer map, and each category map is forked on its first write.
+    private boolean shared = false;
+    private Set<String> ownedCategories = null;
+
+    // Typed content. The payload map is only filled from it when someone
+    // reads the payload by key.
+    private MessageBody body = null;
+    private boolean materialized = false;
+
+    // Native array fields (DoubleArray, LongArray, IntArray). The arrays are
+    // immutable, so copy-on-write only has to fork the map.
+    private Map<String, Object> arrays = null;
+    private boolean arraysShared = false;
+
+    // Set for messages from a MessagePool, counts outstanding receivers
+    private MessagePool pool = null;
+    @SuppressWarnings("unused") // accessed through REFERENCES
+    private volatile int references;
+    private static final VarHandle REFERENCES;
+
+    static {
+        try {
+            REFERENCES = MethodHandles.lookup().findVarHandle(Message.class, "references", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     public Message() {
     }
 
+    public Message(MessageBody body) {
+        this.body = body;
+    }
+
     public Message(Message other) {
-        content = new HashMap<>();
-        content.putAll(other.content);
-        for (String category : other.content.keySet()) {
-            content.put(category, new HashMap<>());
-            content.get(category).putAll(other.content.get(category));
+        for (Map.Entry<String, Map<String, String>> category : other.content.entrySet()) {
+            content.put(category.getKey(), new HashMap<>(category.getValue()));
+        }
+        body = other.body;
+        materialized = other.materialized;
+        if (other.arrays != null) {
+            arrays = new HashMap<>(other.arrays);
+        }
+    }
+
+    /**
+     * Lightweight copy that shares the content with this message. Both
+     * instances fork lazily on their next write, so neither can observe the
+     * other's changes. Costs one object instead of a deep copy.
+     */
+    public Message share() {
+        if (pool != null) {
+            // Pooled content is cleared on release, so it cannot be shared
+            return new Message(this);
+        }
+        Message view = new Message(content);
+        view.body = body;
+        view.materialized = materialized;
+        if (arrays != null) {
+            view.arrays = arrays;
+            view.arraysShared = true;
+            arraysShared = true;
+        }
+        shared = true;
+        ownedCategories = null;
+        return view;
+    }
+
+    /**
+     * Make the current content immutable. Later writes through this instance
+     * fork a private copy, so instances shared earlier stay untouched.
+     */
+    public Message freeze() {
+        arraysShared = true;
+        shared = true;
+        ownedCategories = null;
+        return this;
+    }
+
+    @JsonIgnore
+    public boolean isFrozen() {
+        return shared;
+    }
+
+    private Message(Map<String, Map<String, String>> sharedContent) {
+        content = sharedContent;
+        shared = true;
+    }
+
+    static Message pooled(MessagePool pool) {
+        Message m = new Message();
+        m.pool = pool;
+        return m;
+    }
+
+    void reuse(MessageBody body) {
+        this.body = body;
+        REFERENCES.setVolatile(this, 1);
+    }
+
+    @JsonIgnore
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    /**
+     * Add references for a fan-out to several receivers.
+     */
+    void retain(int count) {
+        REFERENCES.getAndAdd(this, count);
+    }
+
+    /**
+     * Give up this reference to a pooled message. Does nothing for messages
+     * that are not pooled, so receivers can always call it when done.
+     */
+    public void release() {
+        if (pool == null) {
+            return;
+        }
+        int left = (int) REFERENCES.getAndAdd(this, -1) - 1;
+        if (left > 0) {
+            return;
+        }
+        if (left < 0) {
+            throw new IllegalStateException("Pooled message released more often than it was delivered");
+        }
+        // Keep the category maps, clearing them retains their tables
+        for (Map<String, String> category : content.values()) {
+            category.clear();
+        }
+        if (arrays != null) {
+            arrays.clear();
+            arraysShared = false;
+        }
+        body = null;
+        materialized = false;
+        shared = false;
+        ownedCategories = null;
+        pool.recycle(this);
+    }
+
+    /**
+     * Message that takes ownership of freshly decoded content.
+     */
+    static Message adopt(Map<String, Map<String, String>> content) {
+        Message m = new Message();
+        m.content = content;
+        return m;
+    }
+
+    /**
+     * All categories for serialization. Callers must not modify the maps.
+     */
+    Map<String, Map<String, String>> content() {
+        if (body != null) {
+            materialize();
         }
+        return content;
+    }
+
+    private Map<String, String> writableCategory(String category) {
+        if (shared) {
+            content = new HashMap<>(content);
+            shared = false;
+            ownedCategories = new HashSet<>();
+        }
+        Map<String, String> categoryMap = content.get(category);
+        if (categoryMap == null) {
+            categoryMap = new HashMap<>();
+        } else if (ownedCategories == null || ownedCategories.contains(category)) {
+            return categoryMap;
+        } else {
+            categoryMap = new HashMap<>(categoryMap);
+        }
+        content.put(category, categoryMap);
+        if (ownedCategories != null) {
+            ownedCategories.add(category);
+        }
+        return categoryMap;
     }
 
     public Message addWithCategory(String category, String key, String value) {
-        // Erstelle die Kategorie, falls sie nicht existiert
-        if (!content.containsKey(category)) {
-            content.put(category, new HashMap<>());
+        if (body != null && "Payload".equals(category)) {
+            // The body would no longer match the payload
+            materialize();
+            body = null;
         }
-        content.get(category).put(key, value);
+        // Erstelle die Kategorie, falls sie nicht existiert
+        writableCategory(category).put(key, value);
         return this;
     }
 
+    /**
+     * Typed body, or null for a message built by key.
+     */
+    public MessageBody body() {
+        return body;
+    }
+
+    /**
+     * Body of the given schema. String messages of the schema's type are
+     * decoded once; returns null if the message has a different type.
+     */
+    public <T extends MessageBody> T body(MessageSchema<T> schema) {
+        if (schema.bodyClass().isInstance(body)) {
+            return schema.bodyClass().cast(body);
+        }
+        if (!schema.type().equals(type())) {
+            return null;
+        }
+        T decoded = schema.decode(this);
+        body = decoded;
+        materialized = true;
+        return decoded;
+    }
+
+    /**
+     * Message type without touching the payload map of typed messages.
+     */
+    public String type() {
+        return body != null ? body.type() : query("type");
+    }
+
+    /**
+     * Fill the payload map from the typed body now. Done before a pooled
+     * broadcast hands this instance to receivers on several threads, whose
+     * reads must then not write the maps.
+     */
+    void materializeForSharing() {
+        if (body != null) {
+            materialize();
+        }
+    }
+
+    private void materialize() {
+        if (materialized) {
+            return;
+        }
+        MessageBody b = body;
+        body = null; // Keeps the writes below from dropping the body
+        b.writeTo(this);
+        body = b;
+        materialized = true;
+    }
+
     public Message add(String key, String value) {
         return addWithCategory("Payload", key, value);
     }
@@ -47,10 +285,100 @@ public class Message {
         return addWithCategory("Payload", key, String.valueOf(value));
     }
 
+    /**
+     * Stores the list in its string form, "[1.5, 2.0]", as it always has, so
+     * query(key) and receivers parsing the payload keep working. Use
+     * add(key, double[]) for a native array field.
+     */
     public Message add(String key, List<Double> value) {
         return addWithCategory("Payload", key, value.toString());
     }
 
+    public Message add(String key, double[] values) {
+        return putArray(key, DoubleArray.of(values));
+    }
+
+    public Message add(String key, long[] values) {
+        return putArray(key, LongArray.of(values));
+    }
+
+    public Message add(String key, int[] values) {
+        return putArray(key, IntArray.of(values));
+    }
+
+    public Message add(String key, DoubleArray values) {
+        return putArray(key, values);
+    }
+
+    public Message add(String key, LongArray values) {
+        return putArray(key, values);
+    }
+
+    public Message add(String key, IntArray values) {
+        return putArray(key, values);
+    }
+
+    /**
+     * Append to a native array field, creating it if missing. Amortized O(1),
+     * also on shared messages.
+     */
+    public Message appendDouble(String key, double value) {
+        DoubleArray current = array(key, DoubleArray.class);
+        return putArray(key, current == null ? DoubleArray.of(value) : current.append(value));
+    }
+
+    public Message appendLong(String key, long value) {
+        LongArray current = array(key, LongArray.class);
+        return putArray(key, current == null ? LongArray.of(value) : current.append(value));
+    }
+
+    public Message appendInt(String key, int value) {
+        IntArray current = array(key, IntArray.class);
+        return putArray(key, current == null ? IntArray.of(value) : current.append(value));
+    }
+
+    public DoubleArray queryDoubles(String key) {
+        return array(key, DoubleArray.class);
+    }
+
+    public LongArray queryLongs(String key) {
+        return array(key, LongArray.class);
+    }
+
+    public IntArray queryInts(String key) {
+        return array(key, IntArray.class);
+    }
+
+    private Message putArray(String key, Object array) {
+        if (arrays == null) {
+            arrays = new HashMap<>();
+        } else if (arraysShared) {
+            arrays = new HashMap<>(arrays);
+            arraysShared = false;
+        }
+        arrays.put(key, array);
+        return this;
+    }
+
+    private <T> T array(String key, Class<T> type) {
+        Object array = arrays == null ? null : arrays.get(key);
+        if (array == null) {
+            return null;
+        }
+        if (!type.isInstance(array)) {
+            throw new IllegalArgumentException("Field " + key + " is not a " + type.getSimpleName());
+        }
+        return type.cast(array);
+    }
+
+    /**
+     * All native array fields for serialization. Callers must not modify the
+     * map.
+     */
+    Map<String, Object> arrays() {
+        return arrays == null ? Collections.emptyMap() : arrays;
+    }
+
     public Message addHeader(String key, String value) {
         return addWithCategory("Header", key, value);
     }
@@ -60,6 +388,9 @@ public class Message {
     }
 
     public String queryWithCategory(String category, String key) {
+        if (body != null && "Payload".equals(category)) {
+            materialize();
+        }
         Map<String, String> categoryMap = content.get(category);
         if (categoryMap == null) {
             return null;
@@ -81,6 +412,15 @@ public class Message {
 
     public List<Double> queryDoubleArray(String key) {
 
+        DoubleArray values = queryDoubles(key);
+        if (values != null) {
+            List<Double> list = new ArrayList<>(values.length());
+            for (int i = 0; i < values.length(); i++) {
+                list.add(values.get(i));
+            }
+            return list;
+        }
+
         String value = queryWithCategory("Payload", key);
 
         if (value == null || value.trim().equals("[]") || value.trim().isEmpty()) {
@@ -105,12 +445,46 @@ public class Message {
         return Integer.parseInt(queryWithCategory("Header", key));
     }
 
+    // Read-only views, the maps may be shared with other messages
     public Map<String, String> getPayload() {
-        return content.get("Payload");
+        if (body != null) {
+            materialize();
+        }
+        Map<String, String> payload = content.get("Payload");
+        return payload == null ? null : Collections.unmodifiableMap(payload);
     }
 
     public Map<String, String> getHeader() {
-        return content.get("Header");
+        Map<String, String> header = content.get("Header");
+        return header == null ? null : Collections.unmodifiableMap(header);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String, double[]> getDoubles() {
+        return arraysOf(DoubleArray.class, DoubleArray::toArray);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String, long[]> getLongs() {
+        return arraysOf(LongArray.class, LongArray::toArray);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String, int[]> getInts() {
+        return arraysOf(IntArray.class, IntArray::toArray);
+    }
+
+    private <T, A> Map<String, A> arraysOf(Class<T> type, Function<T, A> toArray) {
+        Map<String, A> result = null;
+        for (Map.Entry<String, Object> entry : arrays().entrySet()) {
+            if (type.isInstance(entry.getValue())) {
+                if (result == null) {
+                    result = new HashMap<>();
+                }
+                result.put(entry.getKey(), toArray.apply(type.cast(entry.getValue())));
+            }
+        }
+        return result;
     }
 
     public String toJson() throws JsonProcessingException {
@@ -121,6 +495,33 @@ public class Message {
         return serializer.readValue(s, Message.class);
     }
 
+    // Counterpart of the getters above, which have no setters
+    @JsonCreator
+    private static Message fromJsonFields(@JsonProperty("payload") Map<String, String> payload,
+            @JsonProperty("header") Map<String, String> header,
+            @JsonProperty("doubles") Map<String, double[]> doubles,
+            @JsonProperty("longs") Map<String, long[]> longs,
+            @JsonProperty("ints") Map<String, int[]> ints) {
+        Map<String, Map<String, String>> content = new HashMap<>();
+        if (payload != null) {
+            content.put("Payload", payload);
+        }
+        if (header != null) {
+            content.put("Header", header);
+        }
+        Message m = adopt(content);
+        if (doubles != null) {
+            doubles.forEach(m::add);
+        }
+        if (longs != null) {
+            longs.forEach(m::add);
+        }
+        if (ints != null) {
+            ints.forEach(m::add);
+        }
+        return m;
+    }
+
     @Override
     public String toString() {
         String result;
@@ -0,0 +1,22 @@
+package de.marvinxmo.versys;
+
+/**
+ * Typed content of a message, usually a record. The network passes the body
+ * by reference, so no field is formatted or parsed on the way. Bodies have to
+ * be immutable, since broadcasts share one instance between all receivers.
+ *
+ * Code that still reads the message by key gets the fields as strings,
+ * written once by {@link #writeTo(Message)} on first access.
+ */
+public interface MessageBody {
+
+    /**
+     * Message type, the same as the "type" payload entry of a string message.
+     */
+    String type();
+
+    /**
+     * Add all fields, including "type", as payload entries.
+     */
+    void writeTo(Message message);
+}
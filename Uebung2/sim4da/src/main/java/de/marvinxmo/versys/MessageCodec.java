@@ -0,0 +1,318 @@
+package de.marvinxmo.versys;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a {@link Message}, used for trace recording and
+ * out-of-process transports.
+ *
+ * Layout: a version byte, then the number of categories, and per category
+ * its name and entries. Counts are unsigned varints. Names and keys are
+ * written as one varint: odd values reference the table of well-known keys,
+ * even values are the length of the UTF-8 string that follows. Values are
+ * prefixed with length + 1, so 0 encodes null.
+ *
+ * Since version 2 the native array fields follow: their number, and per
+ * field its key, element type and length. Doubles are written as 8 raw
+ * bytes, longs and ints as zigzag varints.
+ *
+ * A codec keeps its buffers between calls and is not thread-safe; use one per
+ * thread or connection.
+ */
+public final class MessageCodec {
+
+    public static final byte VERSION = 2;
+
+    private static final byte DOUBLES = 0;
+    private static final byte LONGS = 1;
+    private static final byte INTS = 2;
+
+    // Appending is fine, reordering breaks recorded traces
+    private static final String[] WELL_KNOWN_KEYS = {
+            "Payload", "Header", "sender", "type", "key", "value", "timestamp", "originNodeId",
+            "fromNode", "token", "quorumId", "keyForEdit", "newValue", "correlationId", "replyTo",
+            "call", "reply", "sseq"
+    };
+    private static final Map<String, Integer> KEY_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < WELL_KNOWN_KEYS.length; i++) {
+            KEY_INDEX.put(WELL_KNOWN_KEYS[i], i);
+        }
+    }
+
+    public MessageCodec() {
+        this(256);
+    }
+
+    public MessageCodec(int initialCapacity) {
+        buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    /**
+     * Encode into the codec's own buffer, which grows as needed. The returned
+     * buffer is ready for reading and only valid until the next call.
+     */
+    public ByteBuffer encode(Message message) {
+        while (true) {
+            buffer.clear();
+            try {
+                encode(message, buffer);
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Encode at the position of out. Throws BufferOverflowException if the
+     * message does not fit; the position of out is undefined then.
+     */
+    public void encode(Message message, ByteBuffer out) {
+        Map<String, Map<String, String>> content = message.content();
+        out.put(VERSION);
+        putVarint(out, content.size());
+        for (Map.Entry<String, Map<String, String>> category : content.entrySet()) {
+            putKey(out, category.getKey());
+            Map<String, String> entries = category.getValue();
+            putVarint(out, entries.size());
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                putKey(out, entry.getKey());
+                putValue(out, entry.getValue());
+            }
+        }
+        Map<String, Object> arrays = message.arrays();
+        putVarint(out, arrays.size());
+        for (Map.Entry<String, Object> entry : arrays.entrySet()) {
+            putKey(out, entry.getKey());
+            putArray(out, entry.getValue());
+        }
+    }
+
+    /**
+     * Decode one message starting at the position of in, which is advanced
+     * past it.
+     */
+    public Message decode(ByteBuffer in) {
+        byte version = in.get();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported message encoding version " + version);
+        }
+        int categories = getVarint(in);
+        Map<String, Map<String, String>> content = new HashMap<>(capacity(categories));
+        for (int c = 0; c < categories; c++) {
+            String name = getKey(in);
+            int size = getVarint(in);
+            Map<String, String> entries = new HashMap<>(capacity(size));
+            for (int i = 0; i < size; i++) {
+                String key = getKey(in);
+                entries.put(key, getValue(in));
+            }
+            content.put(name, entries);
+        }
+        Message message = Message.adopt(content);
+        if (version >= 2) {
+            int arrays = getVarint(in);
+            for (int i = 0; i < arrays; i++) {
+                String key = getKey(in);
+                getArray(in, key, message);
+            }
+        }
+        return message;
+    }
+
+    private void putArray(ByteBuffer out, Object array) {
+        if (array instanceof DoubleArray a) {
+            out.put(DOUBLES);
+            putVarint(out, a.length());
+            for (int i = 0; i < a.length(); i++) {
+                out.putDouble(a.get(i));
+            }
+        } else if (array instanceof LongArray a) {
+            out.put(LONGS);
+            putVarint(out, a.length());
+            for (int i = 0; i < a.length(); i++) {
+                putVarlong(out, (a.get(i) << 1) ^ (a.get(i) >> 63));
+            }
+        } else {
+            IntArray a = (IntArray) array;
+            out.put(INTS);
+            putVarint(out, a.length());
+            for (int i = 0; i < a.length(); i++) {
+                putVarint(out, (a.get(i) << 1) ^ (a.get(i) >> 31));
+            }
+        }
+    }
+
+    private void getArray(ByteBuffer in, String key, Message message) {
+        byte type = in.get();
+        int length = getVarint(in);
+        switch (type) {
+            case DOUBLES -> {
+                checkLength(in, length, 8);
+                double[] values = new double[length];
+                for (int i = 0; i < length; i++) {
+                    values[i] = in.getDouble();
+                }
+                message.add(key, values);
+            }
+            case LONGS -> {
+                checkLength(in, length, 1);
+                long[] values = new long[length];
+                for (int i = 0; i < length; i++) {
+                    long v = getVarlong(in);
+                    values[i] = (v >>> 1) ^ -(v & 1);
+                }
+                message.add(key, values);
+            }
+            case INTS -> {
+                checkLength(in, length, 1);
+                int[] values = new int[length];
+                for (int i = 0; i < length; i++) {
+                    int v = getVarint(in);
+                    values[i] = (v >>> 1) ^ -(v & 1);
+                }
+                message.add(key, values);
+            }
+            default -> throw new IllegalArgumentException("Unknown array type " + type);
+        }
+    }
+
+    /**
+     * Reject array lengths the rest of the frame cannot hold, before the
+     * array is allocated: every value takes at least minBytes.
+     */
+    private static void checkLength(ByteBuffer in, int length, int minBytes) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative array length " + length);
+        }
+        if (length > in.remaining() / minBytes) {
+            throw new BufferUnderflowException();
+        }
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    private void putKey(ByteBuffer out, String key) {
+        Integer index = KEY_INDEX.get(key);
+        if (index != null) {
+            putVarint(out, (index << 1) | 1);
+        } else {
+            putString(out, key, 0);
+        }
+    }
+
+    private String getKey(ByteBuffer in) {
+        int tag = getVarint(in);
+        if ((tag & 1) == 1) {
+            int index = tag >>> 1;
+            if (index >= WELL_KNOWN_KEYS.length) {
+                throw new IllegalArgumentException("Unknown key index " + index);
+            }
+            return WELL_KNOWN_KEYS[index];
+        }
+        return getString(in, tag >>> 1);
+    }
+
+    private void putValue(ByteBuffer out, String value) {
+        if (value == null) {
+            putVarint(out, 0);
+        } else {
+            putString(out, value, 1);
+        }
+    }
+
+    private String getValue(ByteBuffer in) {
+        int prefix = getVarint(in);
+        return prefix == 0 ? null : getString(in, prefix - 1);
+    }
+
+    /**
+     * Length-prefixed UTF-8. Keys shift the length left by one to make room
+     * for the well-known flag, values add one to make room for null.
+     */
+    private void putString(ByteBuffer out, String s, int valueOffset) {
+        int length = s.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = s.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            putVarint(out, valueOffset == 0 ? length << 1 : length + 1);
+            for (int i = 0; i < length; i++) {
+                out.put((byte) s.charAt(i));
+            }
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putVarint(out, valueOffset == 0 ? bytes.length << 1 : bytes.length + 1);
+            out.put(bytes);
+        }
+    }
+
+    private String getString(ByteBuffer in, int length) {
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (in.hasArray()) {
+            String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return s;
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        in.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void putVarlong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private ByteBuffer buffer;
+    private byte[] scratch = new byte[256];
+}
@@ -0,0 +1,41 @@
+package de.marvinxmo.versys;
+
+/**
+ * Opt-in reuse of messages for high message rates.
+ *
+ * A pooled message is handed over to the network on send and must not be
+ * touched by the sender afterwards. Network delivers the same instance to
+ * every receiver of a broadcast and counts references, and each receiver
+ * calls {@link Message#release()} once it has handled the message. The last
+ * release clears the message and returns it to the pool, keeping its maps
+ * for the next use. Receivers must treat pooled messages as read-only.
+ */
+public final class MessagePool {
+
+    public MessagePool() {
+        this(4096);
+    }
+
+    public MessagePool(int capacity) {
+        free = new Recycler<>(capacity);
+    }
+
+    public Message acquire() {
+        return acquire(null);
+    }
+
+    public Message acquire(MessageBody body) {
+        Message m = free.poll();
+        if (m == null) {
+            m = Message.pooled(this);
+        }
+        m.reuse(body);
+        return m;
+    }
+
+    void recycle(Message m) {
+        free.offer(m);
+    }
+
+    private final Recycler<Message> free;
+}
@@ -0,0 +1,38 @@
+package de.marvinxmo.versys;
+
+import java.util.function.Function;
+
+/**
+ * Connects a message type to its body class. The decoder builds the body from
+ * a string message, so typed receivers also understand messages built with
+ * add()/query() by key.
+ */
+public final class MessageSchema<T extends MessageBody> {
+
+    private MessageSchema(String type, Class<T> bodyClass, Function<Message, T> decoder) {
+        this.type = type;
+        this.bodyClass = bodyClass;
+        this.decoder = decoder;
+    }
+
+    public static <T extends MessageBody> MessageSchema<T> of(String type, Class<T> bodyClass,
+            Function<Message, T> decoder) {
+        return new MessageSchema<>(type, bodyClass, decoder);
+    }
+
+    public String type() {
+        return type;
+    }
+
+    public Class<T> bodyClass() {
+        return bodyClass;
+    }
+
+    T decode(Message message) {
+        return decoder.apply(message);
+    }
+
+    private final String type;
+    private final Class<T> bodyClass;
+    private final Function<Message, T> decoder;
+}
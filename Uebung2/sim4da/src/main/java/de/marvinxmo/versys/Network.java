@@ -1,14 +1,20 @@
 package de.marvinxmo.versys;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class Network {
+import de.marvinxmo.versys.jfr.MessageSendEvent;
+import de.marvinxmo.versys.latency.LatencyModel;
+import de.marvinxmo.versys.metrics.NodeMetrics;
+import de.marvinxmo.versys.topology.Topology;
+
+public class Network implements Transport {
 
     private Network() {
     }
@@ -16,8 +22,16 @@ public class Network {
     private record Node(NetworkConnection nc, NodeProxy np) {
     }
 
-    private final Map<String, Node> nodes = new HashMap<>();
+    // Name lookup for unicast sends
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    // Immutable snapshot for broadcasts, replaced on every registry update
+    private volatile Node[] snapshot = new Node[0];
+    private final Object registryLock = new Object();
     private final Logger logger = LoggerFactory.getLogger(Network.class);
+    private final Simulator simulator = Simulator.getInstance();
+    private final DelayLine delayLine = new DelayLine();
+    // Null means every node can reach every other node directly
+    private volatile Topology topology = null;
     private static Network instance = null;
 
     public static Network getInstance() {
@@ -31,49 +45,321 @@ public class Network {
         return instance;
     }
 
+    /**
+     * Register a connection. May be called while the simulation is running
+     * (e.g. by CP quorums); broadcasts in flight keep using the previous
+     * snapshot.
+     */
+    @Override
     public void registerConnection(NetworkConnection networkConnection, NodeProxy nodeProxy) {
         logger.debug("Registering connection for " + networkConnection.NodeName());
         Node n = new Node(networkConnection, nodeProxy);
-        nodes.put(networkConnection.NodeName(), n);
+        synchronized (registryLock) {
+            Node previous = nodes.put(networkConnection.NodeName(), n);
+            Node[] current = snapshot;
+            int index = previous == null ? -1 : Arrays.asList(current).indexOf(previous);
+            Node[] updated;
+            if (index >= 0) {
+                updated = current.clone();
+                updated[index] = n;
+            } else {
+                updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = n;
+            }
+            snapshot = updated;
+        }
+    }
+
+    @Override
+    public void unregisterConnection(NetworkConnection networkConnection) {
+        logger.debug("Unregistering connection for " + networkConnection.NodeName());
+        synchronized (registryLock) {
+            Node n = nodes.get(networkConnection.NodeName());
+            if (n == null || n.nc != networkConnection) {
+                return;
+            }
+            nodes.remove(networkConnection.NodeName());
+            Node[] current = snapshot;
+            Node[] updated = new Node[current.length - 1];
+            int i = 0;
+            for (Node other : current) {
+                if (other != n) {
+                    updated[i++] = other;
+                }
+            }
+            snapshot = updated;
+        }
     }
 
+    @Override
     public List<NetworkConnection> getAllNetworkConnections() {
-        List<NetworkConnection> ncs = new ArrayList<>(numberOfNodes());
-        for (Node n : nodes.values()) {
+        Node[] current = snapshot;
+        List<NetworkConnection> ncs = new ArrayList<>(current.length);
+        for (Node n : current) {
             ncs.add(n.nc);
         }
         return ncs;
     }
 
+    @Override
     public int numberOfNodes() {
-        return nodes.size();
+        return snapshot.length;
+    }
+
+    /**
+     * Restrict which nodes are linked. Broadcasts of a node in the topology
+     * only reach its neighbors; unicasts to other members are routed over
+     * the shortest path and take the sum of the link latencies. Nodes outside
+     * the topology (e.g. CP quorum connections) keep talking to everyone
+     * directly. Null restores the full mesh.
+     *
+     * Routing over a GraphTopology caches one table of topology.size() ints
+     * per destination, up to GraphTopology.routeCacheLimit() tables (256 MB
+     * by default); see there for the memory cost.
+     */
+    public void setTopology(Topology topology) {
+        this.topology = topology;
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Nodes the given node reaches with a broadcast.
+     */
+    @Override
+    public List<String> neighbors(String node_name) {
+        Topology t = topology;
+        if (t != null && t.contains(node_name)) {
+            return t.neighbors(node_name);
+        }
+        List<String> names = new ArrayList<>();
+        for (Node n : snapshot) {
+            if (!n.nc.NodeName().equals(node_name)) {
+                names.add(n.nc.NodeName());
+            }
+        }
+        return names;
     }
 
+    @Override
     public void send(Message message, NetworkConnection sender, String receiver_name) throws UnknownNodeException {
-        if (!nodes.containsKey(receiver_name)) {
+        MessageSendEvent event = new MessageSendEvent();
+        if (event.isEnabled()) {
+            // Before sending: a pooled message may be released by its receiver
+            event.sender = sender.NodeName();
+            event.receiver = receiver_name;
+            event.type = message.type();
+        }
+        event.begin();
+        unicast(message, sender, receiver_name);
+        event.commit();
+    }
+
+    private void unicast(Message message, NetworkConnection sender, String receiver_name) throws UnknownNodeException {
+        Node n = nodes.get(receiver_name);
+        if (n == null) {
             logger.error("Attempt to send message to non-existent node " + receiver_name);
             throw new UnknownNodeException(receiver_name);
         }
-        Message copy = new Message(message);
+        long delay = routeDelay(sender.NodeName(), receiver_name);
+        if (delay < 0) {
+            logger.error("No route from " + sender.NodeName() + " to " + receiver_name);
+            throw new UnknownNodeException(receiver_name + " is not reachable from " + sender.NodeName());
+        }
+        if (message.isPooled()) {
+            // Ownership moves to the receiver, who releases the message
+            message.addHeader("sender", sender.NodeName());
+            if (SimulationBehavior.isTracing()) {
+                trace(message, sender, receiver_name);
+            }
+            deliver(n, message, sender, delay);
+            count(sender, receiver_name);
+            return;
+        }
+        // Copy-on-write instead of a deep copy; only the header is forked
+        Message copy = message.share();
         copy.addHeader("sender", sender.NodeName());
-        NodeProxy receiver = nodes.get(receiver_name).np;
-        receiver.deliver(copy, sender);
+        if (SimulationBehavior.isTracing()) {
+            trace(copy, sender, receiver_name);
+        }
+        deliver(n, copy, sender, delay);
+        count(sender, receiver_name);
+    }
+
+    private static void count(NetworkConnection sender, String receiver) {
+        NodeMetrics m = sender.metrics();
+        if (m != null) {
+            m.sent(receiver);
+        }
+    }
+
+    /**
+     * Number a message for the event log or replay; receiver is null for a
+     * broadcast.
+     */
+    private void trace(Message message, NetworkConnection sender, String receiver) {
+        int seq = sender.nextSendSeq();
+        message.addHeader("sseq", seq);
+        EventLog log = SimulationBehavior.getEventLog();
+        if (log != null) {
+            log.send(sender.NodeName(), receiver, seq);
+        }
+    }
+
+    /**
+     * Latency of a unicast: one sample per link along the route, -1 if the
+     * topology has no route between the two.
+     */
+    private long routeDelay(String from, String to) {
+        LatencyModel latency = SimulationBehavior.getLatencyModel();
+        Topology t = topology;
+        int at = t == null ? -1 : t.indexOf(from);
+        int target = t == null ? -1 : t.indexOf(to);
+        if (at < 0 || target < 0 || t.isNeighbor(at, target)) {
+            return latency == null ? 0 : latency.delayMs(from, to);
+        }
+        long delay = 0;
+        while (at != target) {
+            int next = t.nextHop(at, target);
+            if (next < 0) {
+                return -1;
+            }
+            if (latency != null) {
+                delay += latency.delayMs(t.name(at), t.name(next));
+            }
+            at = next;
+        }
+        return delay;
+    }
+
+    /**
+     * Registered nodes a broadcast of sender goes to. May include the sender
+     * itself, callers skip it.
+     */
+    private Node[] broadcastTargets(NetworkConnection sender) {
+        Topology t = topology;
+        int index = t == null ? -1 : t.indexOf(sender.NodeName());
+        if (index < 0) {
+            return snapshot;
+        }
+        Node[] targets = new Node[t.degree(index)];
+        int count = 0;
+        for (int i = 0; i < targets.length; i++) {
+            Node n = nodes.get(t.name(t.neighbor(index, i)));
+            if (n != null) {
+                targets[count++] = n;
+            }
+        }
+        return count == targets.length ? targets : Arrays.copyOf(targets, count);
     }
 
+    @Override
     public void send(Message message, NetworkConnection sender) {
-        for (Node n : nodes.values()) {
+        MessageSendEvent event = new MessageSendEvent();
+        if (event.isEnabled()) {
+            event.sender = sender.NodeName();
+            event.receiver = "*";
+            event.type = message.type();
+        }
+        event.begin();
+        if (message.isPooled()) {
+            sendPooled(message, sender);
+        } else {
+            broadcast(message, sender);
+        }
+        event.commit();
+    }
+
+    private void broadcast(Message message, NetworkConnection sender) {
+        // Stamp once and freeze; every receiver gets its own handle on the same
+        // content and forks it only if it modifies the message
+        Message stamped = message.share();
+        stamped.addHeader("sender", sender.NodeName());
+        if (SimulationBehavior.isTracing()) {
+            trace(stamped, sender, null);
+        }
+        stamped.freeze();
+        for (Node n : broadcastTargets(sender)) {
+            if (n.nc != sender) {
+                deliver(n, stamped.share(), sender, linkDelay(sender, n));
+                count(sender, n.nc.NodeName());
+            }
+        }
+    }
+
+    /**
+     * Broadcast of a pooled message: every receiver gets the same instance and
+     * holds one reference to it.
+     */
+    private void sendPooled(Message message, NetworkConnection sender) {
+        Node[] current = broadcastTargets(sender);
+        int receivers = 0;
+        for (Node n : current) {
+            if (n.nc != sender) {
+                receivers++;
+            }
+        }
+        if (receivers == 0) {
+            message.release();
+            return;
+        }
+        message.addHeader("sender", sender.NodeName());
+        if (SimulationBehavior.isTracing()) {
+            trace(message, sender, null);
+        }
+        // Receivers read the instance concurrently; reading a typed message
+        // by key would otherwise fill its payload map on their threads
+        message.materializeForSharing();
+        // References have to be in place before the first receiver can release
+        message.retain(receivers - 1);
+        for (Node n : current) {
             if (n.nc != sender) {
-                n.np.deliver(message, sender);
+                deliver(n, message, sender, linkDelay(sender, n));
+                count(sender, n.nc.NodeName());
             }
         }
     }
 
+    private long linkDelay(NetworkConnection sender, Node receiver) {
+        LatencyModel latency = SimulationBehavior.getLatencyModel();
+        return latency == null ? 0 : latency.delayMs(sender.NodeName(), receiver.nc.NodeName());
+    }
+
+    /**
+     * Deliver after the given delay, sampled per receiver. The sender never
+     * waits; delayed messages are held by the scheduler (virtual time) or the
+     * delay line (real time).
+     */
+    private void deliver(Node receiver, Message message, NetworkConnection sender, long delay) {
+        if (simulator.isVirtualTime()) {
+            // Delivery is an event, so it happens in virtual time order
+            long sendTime = simulator.nanoTime();
+            simulator.schedule(receiver.nc, delay, () -> receiver.np.deliver(message, sender, sendTime));
+        } else if (delay > 0) {
+            long sendTime = simulator.nanoTime();
+            delayLine.schedule(delay, () -> receiver.np.deliver(message, sender, sendTime));
+        } else {
+            receiver.np.deliver(message, sender);
+        }
+    }
+
+    /**
+     * Number of messages held back by the latency model in real time mode.
+     */
+    public int messagesInTransit() {
+        return delayLine.pending();
+    }
+
+    @Override
     public Message receive(NetworkConnection receiver) {
-        Node n = nodes.get(receiver.NodeName());
-        Message m = n.np.receive();
-        return m;
+        // The connection knows its own proxy, no registry lookup needed
+        return receiver.proxy().receive();
     }
 
+    @Override
     public void shutdown() {
+        delayLine.shutdown();
     }
 }
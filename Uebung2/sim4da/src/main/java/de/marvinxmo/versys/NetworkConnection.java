@@ -1,13 +1,21 @@
 package de.marvinxmo.versys;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.marvinxmo.versys.metrics.Metrics;
+import de.marvinxmo.versys.metrics.NodeMetrics;
+
 public class NetworkConnection {
 
     public NetworkConnection(String node_name) {
         this.node_name = node_name;
         logger = LoggerFactory.getLogger(node_name);
+        partition = simulator.assignPartition(node_name);
+        metrics = SimulationBehavior.isMetricsEnabled() ? Metrics.node(node_name) : null;
         peer = new NodeProxy(this);
         network.registerConnection(this, peer);
     }
@@ -18,8 +26,7 @@ public class NetworkConnection {
 
     public void engage(Runnable node_main) {
         this.node_main = node_main;
-        thread = new Thread(this::node_main_base);
-        thread.start();
+        thread = simulator.startThread(node_name, false, this::node_main_base, partition);
     }
 
     private void node_main_base() {
@@ -29,20 +36,56 @@ public class NetworkConnection {
     }
 
     public void join() {
+        if (thread == null) {
+            return; // Never engaged (e.g. a CP quorum connection)
+        }
         try {
             thread.join();
         } catch (InterruptedException e) {
         }
     }
 
+    /**
+     * Next message, blocking while there is none. Null if the thread was
+     * interrupted.
+     */
     public Message receive() {
-        Message m = network.receive(this);
-        logger.debug("Received message from " + m.queryHeader("sender"));
+        return received(network.receive(this));
+    }
+
+    /**
+     * Next message, waiting at most timeout (virtual time in
+     * TimeMode.VIRTUAL_TIME). Null on timeout or interruption.
+     */
+    public Message receive(Duration timeout) {
+        // Like the transports' receive, straight from the own proxy
+        return received(peer.receive(timeout));
+    }
+
+    /**
+     * Next message if one is queued, null otherwise.
+     */
+    public Message tryReceive() {
+        return received(peer.tryReceive());
+    }
+
+    /**
+     * Run listener on the delivering thread whenever a message for this
+     * node arrives, see NodeProxy.setReadyListener.
+     */
+    public void setReadyListener(Runnable listener) {
+        peer.setReadyListener(listener);
+    }
+
+    private Message received(Message m) {
+        if (m != null) {
+            logger.debug("Received message from {}", m.queryHeader("sender"));
+        }
         return m;
     }
 
     public void send(Message message, String to_node_name) throws UnknownNodeException {
-        logger.debug("Sending message to " + to_node_name);
+        logger.debug("Sending message to {}", to_node_name);
         network.send(message, this, to_node_name);
     }
 
@@ -58,15 +101,98 @@ public class NetworkConnection {
         network.send(message, this);
     }
 
+    /**
+     * Send request to a node and return the future of its response, which
+     * the receiver sends with reply(). Fails with a TimeoutException if no
+     * response arrives within timeout (simulator time), with an
+     * UnknownNodeException if the target does not exist. Any number of
+     * calls may be in flight at once.
+     *
+     * In virtual time, wait for the future with Simulator.await, not
+     * with get() or join().
+     */
+    public CompletableFuture<Message> call(String to_node_name, Message request, Duration timeout) {
+        return calls().call(to_node_name, request, timeout == null ? -1 : timeout.toMillis());
+    }
+
+    /**
+     * Call without timeout.
+     */
+    public CompletableFuture<Message> call(String to_node_name, Message request) {
+        return call(to_node_name, request, null);
+    }
+
+    /**
+     * Send response to the caller of request. Read before request is
+     * released.
+     */
+    public void reply(Message request, Message response) throws UnknownNodeException {
+        String id = request.queryHeader(Calls.CALL);
+        if (id == null) {
+            throw new IllegalArgumentException("Not a call: " + request);
+        }
+        response.addHeader(Calls.REPLY, id);
+        send(response, request.queryHeader("sender"));
+    }
+
+    /**
+     * Outstanding calls, null until this node makes its first one.
+     */
+    Calls pendingCalls() {
+        return calls;
+    }
+
+    private Calls calls() {
+        Calls c = calls;
+        if (c == null) {
+            synchronized (this) {
+                c = calls;
+                if (c == null) {
+                    calls = c = new Calls(this);
+                }
+            }
+        }
+        return c;
+    }
+
     public Logger getLogger() {
         return logger;
     }
 
+    NodeProxy proxy() {
+        return peer;
+    }
+
+    /**
+     * Metrics of this node, null unless enabled when it was created.
+     */
+    public NodeMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Number for the next message this node sends, see EventLog.
+     */
+    synchronized int nextSendSeq() {
+        return sendSeq++;
+    }
+
+    /**
+     * Worker partition of a parallel simulation this node runs in.
+     */
+    int partition() {
+        return partition;
+    }
+
     private final String node_name;
     private final Simulator simulator = Simulator.getInstance();
-    private final Network network = Network.getInstance();
+    private final Transport network = SimulationBehavior.getTransport();
     private Thread thread = null;
     private final NodeProxy peer;
+    private final int partition;
+    private final NodeMetrics metrics;
+    private int sendSeq = 0;
+    private volatile Calls calls = null;
     private final Logger logger;
     private Runnable node_main = null;
 
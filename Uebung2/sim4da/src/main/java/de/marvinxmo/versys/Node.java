@@ -1,5 +1,9 @@
 package de.marvinxmo.versys;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public class Node {
 
     public Node(String name) {
@@ -27,13 +31,68 @@ public class Node {
         return nc.receive();
     }
 
+    /**
+     * Next message within timeout, null if none arrived (or on interruption).
+     */
+    protected Message receive(Duration timeout) {
+        return nc.receive(timeout);
+    }
+
+    /**
+     * Next message if one is queued, null otherwise.
+     */
+    protected Message tryReceive() {
+        return nc.tryReceive();
+    }
+
+    /**
+     * Send request and return the future of the target's reply(), failing
+     * with a TimeoutException after timeout. Wait for it with await().
+     */
+    protected CompletableFuture<Message> call(String to_node_name, Message request, Duration timeout) {
+        return nc.call(to_node_name, request, timeout);
+    }
+
+    protected CompletableFuture<Message> call(String to_node_name, Message request) {
+        return nc.call(to_node_name, request);
+    }
+
+    /**
+     * Answer a request received from call().
+     */
+    protected void reply(Message request, Message response) throws UnknownNodeException {
+        nc.reply(request, response);
+    }
+
+    /**
+     * Wait for a future, e.g. of call(), also in virtual time. Failures are
+     * thrown as CompletionException. Null if the thread was interrupted; its
+     * interrupt status is set again then.
+     */
+    protected <T> T await(CompletableFuture<T> future) {
+        try {
+            return Simulator.getInstance().await(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Nodes reached by broadcast(); all other nodes unless the network has a
+     * topology.
+     */
+    protected List<String> neighbors() {
+        return SimulationBehavior.getTransport().neighbors(nc.NodeName());
+    }
+
     protected String NodeName() {
         return nc.NodeName();
     }
 
     protected void sleep(int millis) {
         try {
-            Thread.sleep(millis);
+            Simulator.getInstance().sleep(millis);
         } catch (InterruptedException e) {
             // Preserve the interrupted status
             Thread.currentThread().interrupt();
@@ -41,5 +100,13 @@ public class Node {
         }
     }
 
+    protected long currentTimeMillis() {
+        return Simulator.getInstance().currentTimeMillis();
+    }
+
+    protected long nanoTime() {
+        return Simulator.getInstance().nanoTime();
+    }
+
     protected NetworkConnection nc = null;
 }
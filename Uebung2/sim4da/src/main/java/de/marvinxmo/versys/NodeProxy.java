@@ -1,42 +1,161 @@
 package de.marvinxmo.versys;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.time.Duration;
+
+import de.marvinxmo.versys.jfr.MessageDeliverEvent;
+import de.marvinxmo.versys.jfr.MessageReceiveEvent;
+import de.marvinxmo.versys.metrics.NodeMetrics;
 
 public class NodeProxy {
     public NodeProxy(NetworkConnection nc) {
+        this(nc, SimulationBehavior.getMailboxType());
+    }
+
+    public NodeProxy(NetworkConnection nc, MailboxType mailboxType) {
         this.nc = nc;
+        Replay replay = SimulationBehavior.getReplay();
+        this.mailbox = replay == null ? mailboxType.newMailbox()
+                : mailboxType.newMailbox(replay.policyFor(nc.NodeName()));
+        this.metrics = nc.metrics();
+        if (metrics != null) {
+            metrics.setMailboxDepth(mailbox::size);
+        }
     }
 
     public void deliver(Message message, NetworkConnection sender) {
-        synchronized (messages) {
-            messages.add(new ReceivedMessage(message, sender));
-            messages.notify();
+        deliver(message, sender, Simulator.getInstance().nanoTime());
+    }
+
+    /**
+     * Deliver a message that was sent at sendTime (simulator nanoTime), e.g.
+     * after a transmission delay.
+     */
+    public void deliver(Message message, NetworkConnection sender, long sendTime) {
+        EventLog log = SimulationBehavior.getEventLog();
+        if (log != null) {
+            log.deliver(nc.NodeName(), message);
+        }
+        MessageDeliverEvent event = new MessageDeliverEvent();
+        if (event.shouldCommit()) {
+            // Before delivering: a pooled message may be released right away
+            event.sender = message.queryHeader("sender");
+            event.receiver = nc.NodeName();
+            event.type = message.type();
+            event.transitTime = Simulator.getInstance().nanoTime() - sendTime;
+            event.commit();
+        }
+        Calls calls = nc.pendingCalls();
+        if (calls != null && calls.complete(message)) {
+            // Responses go straight to the waiting call. Receive metrics are
+            // only recorded by the receiving thread
+            if (metrics != null) {
+                metrics.delivered();
+            }
+            return;
+        }
+        Envelope e = message.isPooled()
+                ? Envelope.recycled(message, sender, sendTime)
+                : new Envelope(message, sender, sendTime);
+        if (metrics != null) {
+            e.queuedAt = Simulator.getInstance().nanoTime();
+            metrics.delivered();
+        } else if (MessageReceiveEvent.recording()) {
+            e.queuedAt = Simulator.getInstance().nanoTime();
+        }
+        mailbox.deliver(e);
+        Runnable listener = readyListener;
+        if (listener != null) {
+            listener.run();
         }
     }
 
+    /**
+     * Next message, blocking while there is none. Null if the thread was
+     * interrupted; its interrupt status is set again then.
+     */
     public Message receive() {
-        synchronized (messages) {
-            while (messages.isEmpty()) {
-                try {
-                    messages.wait();
-                } catch (InterruptedException e) {
-                    // Preserve interrupt status and return null to signal interruption
-                    Thread.currentThread().interrupt();
-                    return null;
-                }
-            }
-            int candidate_index = SimulationBehavior.selectMessageInQueue(messages.size());
-            Message candidate = messages.remove(candidate_index).message;
-            return candidate;
+        MessageReceiveEvent event = new MessageReceiveEvent();
+        event.begin();
+        try {
+            return received(mailbox.receive(), event);
+        } catch (InterruptedException e) {
+            // Preserve interrupt status and return null to signal interruption
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Next message, waiting at most timeout of simulator time. Null on
+     * timeout or interruption (see receive()).
+     */
+    public Message receive(Duration timeout) {
+        long nanos;
+        try {
+            nanos = timeout.toNanos();
+        } catch (ArithmeticException e) {
+            nanos = Long.MAX_VALUE;
+        }
+        MessageReceiveEvent event = new MessageReceiveEvent();
+        event.begin();
+        try {
+            return received(mailbox.receive(nanos), event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Next message if one is queued, null otherwise. Never blocks.
+     */
+    public Message tryReceive() {
+        Envelope e = mailbox.tryReceive();
+        return e == null ? null : received(e, new MessageReceiveEvent());
+    }
+
+    /**
+     * Run listener on the delivering thread after every delivery, e.g. to
+     * wake a loop that waits for more than this node's messages. It must
+     * return quickly and may only receive if nothing else does. Null
+     * removes the listener.
+     */
+    public void setReadyListener(Runnable listener) {
+        this.readyListener = listener;
+    }
+
+    private Message received(Envelope e, MessageReceiveEvent event) {
+        if (e == null) {
+            return null;
+        }
+        Message m = e.message();
+        if (event.shouldCommit()) {
+            event.sender = m.queryHeader("sender");
+            event.receiver = nc.NodeName();
+            event.type = m.type();
+            event.queueTime = e.queuedAt == 0 ? 0 : Simulator.getInstance().nanoTime() - e.queuedAt;
+            event.commit();
+        }
+        if (metrics != null) {
+            long now = Simulator.getInstance().nanoTime();
+            metrics.received(now - e.queuedAt, now - e.sendTime(), mailbox.size() + 1);
         }
+        if (m.isPooled()) {
+            e.recycle();
+        }
+        EventLog log = SimulationBehavior.getEventLog();
+        if (log != null) {
+            log.receive(nc.NodeName(), m);
+        }
+        return m;
     }
 
-    private record ReceivedMessage(Message message, NetworkConnection sender) {
-    };
+    public int queueSize() {
+        return mailbox.size();
+    }
 
-    private final List<ReceivedMessage> messages = Collections.synchronizedList(new ArrayList<>());
-    @SuppressWarnings("unused")
+    private final Mailbox mailbox;
     private final NetworkConnection nc;
+    private final NodeMetrics metrics;
+    private volatile Runnable readyListener = null;
 }
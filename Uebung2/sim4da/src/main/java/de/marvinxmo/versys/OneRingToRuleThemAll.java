@@ -1,14 +1,19 @@
 package de.marvinxmo.versys;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class OneRingToRuleThemAll {
 
-    final int ringSize = 3;
+    final int ringSize;
     final float init_p_fire = 1f;
     final int max_consecutive_misfires = 5;
 
+    public OneRingToRuleThemAll() {
+        this(3);
+    }
+
+    public OneRingToRuleThemAll(int ringSize) {
+        this.ringSize = ringSize;
+    }
+
     class Coordinator {
 
         // private final int waitTime;
@@ -37,8 +42,7 @@ public class OneRingToRuleThemAll {
             m.add("total_fires", 0);
             m.add("total_misfires", 0);
             m.add("total_roundtrips", 0);
-            List<Double> roundtrip_times = new ArrayList<Double>();
-            m.add("roundtrip_times", roundtrip_times);
+            m.add("roundtrip_times", new double[0]);
             m.add("p_fail", 0f);
 
             nc.sendBlindly(m, "0");
@@ -75,7 +79,7 @@ public class OneRingToRuleThemAll {
         int total_fires = 0;
         int total_misfires = 0;
         int total_roundtrips = 0;
-        List<Double> roundtrip_times = new ArrayList<Double>();
+        DoubleArray roundtrip_times = DoubleArray.of();
         float p_fail = 0f;
 
         @Override
@@ -104,16 +108,16 @@ public class OneRingToRuleThemAll {
                         System.out.printf("total_fires: %s\n", m.queryInteger("total_fires"));
                         System.out.printf("total_misfires: %s\n", m.queryInteger("total_misfires"));
                         System.out.printf("total_roundtrips: %s\n", m.queryInteger("total_roundtrips"));
-                        System.out.printf("roundtrip_times: %s\n", m.queryDoubleArray("roundtrip_times"));
+                        System.out.printf("roundtrip_times: %s\n", m.queryDoubles("roundtrip_times"));
 
                         System.out.printf("average roundtrip time: %s\n",
-                                m.queryDoubleArray("roundtrip_times").stream().mapToDouble(Double::doubleValue)
+                                m.queryDoubles("roundtrip_times").stream()
                                         .average().orElse(0.0));
                         System.out.printf("min roundtrip time: %s\n",
-                                m.queryDoubleArray("roundtrip_times").stream().mapToDouble(Double::doubleValue)
+                                m.queryDoubles("roundtrip_times").stream()
                                         .min().orElse(0.0));
                         System.out.printf("max roundtrip time: %s\n",
-                                m.queryDoubleArray("roundtrip_times").stream().mapToDouble(Double::doubleValue)
+                                m.queryDoubles("roundtrip_times").stream()
                                         .max().orElse(0.0));
                         System.out.printf("p_fail: %s\n", m.queryFloat("p_fail"));
                         System.out.printf("max_consecutive_misfires: %s\n",
@@ -137,15 +141,13 @@ public class OneRingToRuleThemAll {
 
                         m.add("total_roundtrips", m.queryInteger("total_roundtrips") + 1);
 
-                        long receive_time = System.nanoTime();
+                        long receive_time = nanoTime();
                         // System.out.println("Received token at " + receive_time);
                         // System.out.println("Last forward time: " + last_forward_time);
                         double round_time_ms = (receive_time - last_forward_time) / 1_000_000.0;
                         System.out.printf("Round trip time: %s ms \n", round_time_ms);
 
-                        List<Double> roundtrip_times = m.queryDoubleArray("roundtrip_times");
-                        roundtrip_times.add(round_time_ms);
-                        m.add("roundtrip_times", roundtrip_times);
+                        m.appendDouble("roundtrip_times", round_time_ms);
 
                     }
                 }
@@ -153,7 +155,7 @@ public class OneRingToRuleThemAll {
                 int max_consecutive_misfires = m.queryInteger("max_consecutive_misfires");
                 int consecutive_misfires = m.queryInteger("consecutive_misfires");
 
-                float r = (float) Math.random();
+                float r = (float) RandomStreams.current().nextDouble();
 
                 if (r < p_fire) {
                     System.out.printf("Node %s fired (p_fire= %s)\n", NodeName(),
@@ -192,7 +194,7 @@ public class OneRingToRuleThemAll {
                 p_fire = p_fire / 2;
                 // sleep(100);
                 sendBlindly(m, next_id);
-                last_forward_time = System.nanoTime();
+                last_forward_time = nanoTime();
             }
         }
 
@@ -202,15 +204,24 @@ public class OneRingToRuleThemAll {
             total_fires = m.queryInteger("total_fires");
             total_misfires = m.queryInteger("total_misfires");
             total_roundtrips = m.queryInteger("total_roundtrips");
-            roundtrip_times = m.queryDoubleArray("roundtrip_times");
+            roundtrip_times = m.queryDoubles("roundtrip_times");
             p_fail = m.queryFloat("p_fail");
 
         }
     }
 
     void testOneRingToRuleThemAll() {
-
+        setUp();
         Simulator simulator = Simulator.getInstance();
+        simulator.simulate();
+        simulator.shutdown();
+    }
+
+    /**
+     * Create the ring and its coordinator; Simulator.simulate() runs it
+     * until the token is dropped.
+     */
+    public void setUp() {
         RingSegment[] segments = new RingSegment[ringSize];
         // long last_time = System.currentTimeMillis();
 
@@ -226,9 +237,6 @@ public class OneRingToRuleThemAll {
         // Terminate after 4 consecutive misfires (time limit not implemented)
         Coordinator coordinator = new Coordinator(max_consecutive_misfires);
         coordinator.engage();
-
-        simulator.simulate();
-        simulator.shutdown();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,221 @@
+package de.marvinxmo.versys;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.marvinxmo.versys.topology.Topology;
+
+/**
+ * Parallel discrete-event simulation for {@link TimeMode#VIRTUAL_TIME}.
+ *
+ * The nodes are partitioned over worker threads. Every partition is a
+ * {@link VirtualTimeScheduler} with its own clock and event queue, driven by
+ * its own worker; activities started by a node belong to the node's
+ * partition. Messages to a node of another partition are events in the
+ * receiver's queue.
+ *
+ * Workers synchronize conservatively in windows. All of them wait at a
+ * barrier, the earliest pending event of any partition is T, and every
+ * partition fires its events before T + lookahead. The lookahead is the
+ * minimum delay of the latency model, so nothing sent within the window can
+ * arrive at another partition before the window ends. Events with the same
+ * time are ordered by the partition that created them and its sequence
+ * number, not by arrival, so the interleaving across partitions does not
+ * depend on the thread scheduling of the workers.
+ *
+ * Nodes are assigned in contiguous blocks of the Network topology's indices
+ * if it is set before the nodes are created, so neighbors in rings and
+ * grids mostly share a partition; other nodes are dealt out round-robin.
+ * Connections created while simulating (e.g. CP quorums) join the partition
+ * of the creating thread. Activities of different partitions must interact
+ * through messages only.
+ */
+public class ParallelScheduler {
+
+    ParallelScheduler(int workers) {
+        partitions = new VirtualTimeScheduler[workers];
+        for (int i = 0; i < workers; i++) {
+            partitions[i] = new VirtualTimeScheduler(i);
+        }
+    }
+
+    public int workers() {
+        return partitions.length;
+    }
+
+    /**
+     * Partition for a new connection.
+     */
+    int assign(String name) {
+        Integer own = CURRENT.get();
+        if (own != null) {
+            return own;
+        }
+        if (SimulationBehavior.getTransport() instanceof Network network) {
+            Topology t = network.getTopology();
+            int index = t == null ? -1 : t.indexOf(name);
+            if (index >= 0) {
+                return (int) ((long) index * partitions.length / t.size());
+            }
+        }
+        return Math.floorMod(next.getAndIncrement(), partitions.length);
+    }
+
+    VirtualTimeScheduler partition(int index) {
+        return partitions[index];
+    }
+
+    /**
+     * Partition of the calling thread. Threads outside the simulation (e.g.
+     * the main thread) use partition 0.
+     */
+    VirtualTimeScheduler current() {
+        Integer own = CURRENT.get();
+        return partitions[own == null ? 0 : own];
+    }
+
+    /**
+     * Clock of the calling thread's partition. Threads outside the
+     * simulation see the latest clock of all partitions.
+     */
+    long now() {
+        Integer own = CURRENT.get();
+        if (own != null) {
+            return partitions[own].now();
+        }
+        long now = 0;
+        for (VirtualTimeScheduler p : partitions) {
+            now = Math.max(now, p.now());
+        }
+        return now;
+    }
+
+    /**
+     * Make the calling thread an activity of the given partition.
+     */
+    static void bind(int partition) {
+        CURRENT.set(partition);
+    }
+
+    static Integer boundPartition() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Schedule a delivery into the partition of the receiver, delayMs after
+     * the clock of the calling thread's partition.
+     */
+    void schedule(int partition, long delayMs, Runnable action) {
+        VirtualTimeScheduler from = current();
+        VirtualTimeScheduler to = partitions[partition];
+        if (from != to && delayMs < lookahead) {
+            throw new IllegalStateException("Delay of " + delayMs + " ms between partitions is below the lookahead of "
+                    + lookahead + " ms");
+        }
+        from.schedule(to, delayMs, action);
+    }
+
+    /**
+     * Drive all partitions until the clock would pass endTimeMs, every queue
+     * runs dry while everything is blocked, or {@link #stop()} is called.
+     * An exception thrown by an event stops all partitions and is rethrown
+     * here.
+     */
+    void run(long endTimeMs, long lookaheadMs) {
+        if (lookaheadMs <= 0) {
+            throw new IllegalStateException("Parallel simulation needs a positive lookahead, "
+                    + "i.e. a latency model with a minimum delay above 0 ms");
+        }
+        lookahead = lookaheadMs;
+        CyclicBarrier barrier = new CyclicBarrier(partitions.length, () -> nextWindow(endTimeMs));
+        Thread[] threads = new Thread[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> work(index, barrier), "sim4da-worker-" + i);
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                stop();
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        Throwable f = failure;
+        if (f instanceof RuntimeException r) {
+            throw r;
+        } else if (f instanceof Error e) {
+            throw e;
+        } else if (f != null) {
+            throw new IllegalStateException("Simulation worker failed", f);
+        }
+    }
+
+    private void work(int index, CyclicBarrier barrier) {
+        bind(index);
+        VirtualTimeScheduler partition = partitions[index];
+        try {
+            while (true) {
+                // Also waits until the partition is blocked before the first window
+                partition.runUntil(windowLast);
+                barrier.await();
+                if (done) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | BrokenBarrierException e) {
+            stop();
+        } catch (Throwable t) {
+            synchronized (this) {
+                if (failure == null) {
+                    failure = t;
+                }
+            }
+            stop();
+            // Breaks the barrier for the workers waiting there
+            barrier.reset();
+        }
+    }
+
+    /**
+     * Barrier action: every partition is blocked, open the next window.
+     */
+    private void nextWindow(long endTimeMs) {
+        long earliest = Long.MAX_VALUE;
+        for (VirtualTimeScheduler p : partitions) {
+            earliest = Math.min(earliest, p.nextEventTime());
+        }
+        if (stopped || earliest == Long.MAX_VALUE) {
+            done = true;
+        } else if (earliest > endTimeMs) {
+            for (VirtualTimeScheduler p : partitions) {
+                p.advanceTo(endTimeMs);
+            }
+            done = true;
+        } else {
+            windowLast = Math.min(earliest + lookahead - 1, endTimeMs);
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        for (VirtualTimeScheduler p : partitions) {
+            p.stop();
+        }
+    }
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final VirtualTimeScheduler[] partitions;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile long lookahead = 0;
+    // Written by the barrier action, read by the workers after the barrier
+    private long windowLast = Long.MIN_VALUE;
+    private boolean done = false;
+    private volatile boolean stopped = false;
+    // First exception thrown by a worker, rethrown by run()
+    private volatile Throwable failure = null;
+}
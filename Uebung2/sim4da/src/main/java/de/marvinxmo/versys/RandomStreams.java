@@ -0,0 +1,150 @@
+package de.marvinxmo.versys;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Random number streams derived from the global seed
+ * (SimulationBehavior.setSeed), so a run can be repeated with the same
+ * random decisions.
+ *
+ * A stream is a SplittableRandom and must be used by one thread at a time.
+ * Nodes derive one stream per activity from their name and a purpose (e.g.
+ * "N3/write"), which keeps the values independent of how the threads of
+ * different nodes interleave. Components that are not tied to a name take
+ * the next stream in creation order, or the stream of the current activity.
+ *
+ * An activity is a thread or task the Simulator starts. The main thread of a
+ * node is activity 0 of that node; every thread or task it (or another
+ * activity of the node) starts gets the next number of the node. The
+ * stream of an activity is derived from the node name and that number,
+ * never from the thread name, which virtual and pool threads do not make
+ * unique.
+ */
+public final class RandomStreams {
+
+    private RandomStreams() {
+    }
+
+    /**
+     * Stream for the given name. The same seed and name always give the
+     * same sequence.
+     */
+    public static SplittableRandom derive(String name) {
+        long h = SimulationBehavior.getSeed();
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            h = mix(h ^ b);
+        }
+        return new SplittableRandom(mix(h));
+    }
+
+    /**
+     * Next stream of the sequence started by the global seed.
+     */
+    public static synchronized SplittableRandom next() {
+        long seed = SimulationBehavior.getSeed();
+        if (root == null || rootSeed != seed) {
+            root = new SplittableRandom(seed);
+            rootSeed = seed;
+        }
+        return root.split();
+    }
+
+    /**
+     * Stream of the activity the calling thread runs, so e.g. latency sampled
+     * while a node sends does not depend on the other nodes. Threads outside
+     * any activity (e.g. the one creating the nodes) take the next stream in
+     * creation order on first use.
+     */
+    public static SplittableRandom current() {
+        Activity a = CURRENT.get();
+        if (a == null) {
+            a = new Activity(null, 0);
+            CURRENT.set(a);
+        }
+        return a.random();
+    }
+
+    /**
+     * Activity 0 of the given node, for its main thread.
+     */
+    static Activity root(String node) {
+        return new Activity(new Owner(node), 0);
+    }
+
+    /**
+     * Next activity of the node the calling thread works for. Called by the
+     * starting thread, so the numbers follow the order in which a node starts
+     * its activities. Outside any node the activities are numbered in the
+     * order the process starts them.
+     */
+    static Activity spawn() {
+        Activity parent = CURRENT.get();
+        Owner owner = parent == null || parent.owner == null ? UNOWNED : parent.owner;
+        return new Activity(owner, owner.activities.incrementAndGet());
+    }
+
+    /**
+     * Run the calling thread as the given activity until unbind(previous).
+     * Returns the activity it ran before, for pool threads that run tasks of
+     * several activities.
+     */
+    static Activity bind(Activity activity) {
+        Activity previous = CURRENT.get();
+        CURRENT.set(activity);
+        return previous;
+    }
+
+    static void unbind(Activity previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    private static final class Owner {
+        Owner(String name) {
+            this.name = name;
+        }
+
+        final String name;
+        final AtomicInteger activities = new AtomicInteger();
+    }
+
+    static final class Activity {
+        private Activity(Owner owner, int index) {
+            this.owner = owner;
+            this.index = index;
+        }
+
+        // Used by one thread at a time, like the stream itself
+        SplittableRandom random() {
+            long s = SimulationBehavior.getSeed();
+            if (random == null || seed != s) {
+                random = owner == null ? next() : derive("activity/" + owner.name + "/" + index);
+                seed = s;
+            }
+            return random;
+        }
+
+        // Null for a thread outside any activity
+        private final Owner owner;
+        private final int index;
+        private SplittableRandom random;
+        private long seed;
+    }
+
+    // Stafford variant 13 of the MurmurHash3 finalizer, as in SplittableRandom
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final ThreadLocal<Activity> CURRENT = new ThreadLocal<>();
+    private static final Owner UNOWNED = new Owner("process");
+    private static SplittableRandom root = null;
+    private static long rootSeed;
+}
@@ -1,43 +1,69 @@
 package de.marvinxmo.versys;
 
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
+/**
+ * Maps samples of a distribution over [0, 1] to a range of values.
+ *
+ * The samplers below draw from RandomStreams.current(), the
+ * SplittableRandom of the calling activity, so node threads never contend
+ * on a shared generator and a seeded run repeats its values.
+ */
 public class RandomValues {
 
-    public RandomValues(Supplier<Double> distributionFunction) {
+    public RandomValues(DoubleSupplier distributionFunction) {
         this.distributionFunction = distributionFunction;
     }
 
     public double getDouble(double min_value, double max_value) {
-        double v = distributionFunction.get();
+        double v = distributionFunction.getAsDouble();
         if (v < 0 || v > 1) {
             System.err.println("Distribution function must return a value between 0 and 1");
             System.exit(-1);
         }
-        return min_value + Math.random() * (max_value - min_value);
+        return min_value + v * (max_value - min_value);
     }
 
+    /**
+     * Value in [min_value, max_value], both inclusive; every value gets an
+     * interval of equal width of the distribution.
+     */
     public long getLong(long min_value, long max_value) {
-        return (long) getDouble(min_value, max_value);
+        long v = (long) getDouble(min_value, max_value + 1);
+        // Only reached for a sample of exactly 1
+        return Math.min(v, max_value);
     }
 
+    /**
+     * Uniform over [0, 1).
+     */
+    public static DoubleSupplier uniform() {
+        return () -> RandomStreams.current().nextDouble();
+    }
+
+    /**
+     * Normal with the given mean and standard deviation.
+     */
+    public static DoubleSupplier normal(double mean, double stdDev) {
+        return () -> mean + stdDev * RandomStreams.current().nextGaussian();
+    }
+
+    /**
+     * Boxing variant of {@link #uniform()}.
+     */
     public static Supplier<Double> getUniformDistribution() {
-        return Math::random;
+        DoubleSupplier s = uniform();
+        return s::getAsDouble;
     }
 
+    /**
+     * Boxing variant of {@link #normal(double, double)}.
+     */
     public static Supplier<Double> getNormalDistribution(double mean, double stdDev) {
-        // Using the Box-Muller transform
-        return () -> {
-            double u, v, s;
-            do {
-                u = Math.random() * 2 - 1;
-                v = Math.random() * 2 - 1;
-                s = u * u + v * v;
-            } while (s >= 1 || s == 0);
-            double mul = Math.sqrt(-2.0 * Math.log(s) / s);
-            return mean + stdDev * u * mul;
-        };
+        DoubleSupplier s = normal(mean, stdDev);
+        return s::getAsDouble;
     }
 
-    private Supplier<Double> distributionFunction;
-}
\ No newline at end of file
+    private final DoubleSupplier distributionFunction;
+}
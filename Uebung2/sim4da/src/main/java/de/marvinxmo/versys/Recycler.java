@@ -0,0 +1,32 @@
+package de.marvinxmo.versys;
+
+/**
+ * Bounded stack of objects for reuse. Objects are usually taken by one thread
+ * and returned by another, so access is synchronized; offering to a full
+ * recycler drops the object.
+ */
+final class Recycler<T> {
+
+    Recycler(int capacity) {
+        this.free = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized T poll() {
+        if (size == 0) {
+            return null;
+        }
+        T t = (T) free[--size];
+        free[size] = null;
+        return t;
+    }
+
+    synchronized void offer(T t) {
+        if (size < free.length) {
+            free[size++] = t;
+        }
+    }
+
+    private final Object[] free;
+    private int size = 0;
+}
@@ -0,0 +1,82 @@
+package de.marvinxmo.versys;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.marvinxmo.versys.delivery.DeliveryPolicy;
+
+/**
+ * Re-drives a run recorded in an {@link EventLog}: every node receives its
+ * messages in the recorded order, whatever order they arrive in, and the
+ * global seed is restored so the RandomStreams repeat their values.
+ *
+ * Install before the nodes are created:
+ *
+ * <pre>
+ * SimulationBehavior.setReplay(Replay.load(Path.of("run.log")));
+ * </pre>
+ *
+ * Node code has to make its decisions from the messages it receives and
+ * its RandomStreams. A node that sends from several threads at once may
+ * number its messages differently than in the recording; its receivers then
+ * wait for a message that never comes.
+ */
+public class Replay {
+
+    private record Receive(String sender, int seq) {
+    }
+
+    private Replay(long seed, Map<String, List<Receive>> receives) {
+        this.seed = seed;
+        for (Map.Entry<String, List<Receive>> e : receives.entrySet()) {
+            List<Receive> list = e.getValue();
+            String[] senders = new String[list.size()];
+            int[] seqs = new int[list.size()];
+            for (int i = 0; i < senders.length; i++) {
+                senders[i] = list.get(i).sender;
+                seqs[i] = list.get(i).seq;
+            }
+            this.senders.put(e.getKey(), senders);
+            this.seqs.put(e.getKey(), seqs);
+        }
+    }
+
+    public static Replay load(Path file) throws IOException {
+        Map<String, List<Receive>> receives = new HashMap<>();
+        long seed = EventLog.read(file, (type, node, peer, seq, time) -> {
+            if (type == EventLog.RECEIVE) {
+                receives.computeIfAbsent(node, k -> new ArrayList<>()).add(new Receive(peer, seq));
+            }
+        });
+        return new Replay(seed, receives);
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Number of receives recorded for the node.
+     */
+    public int receives(String node) {
+        int[] s = seqs.get(node);
+        return s == null ? 0 : s.length;
+    }
+
+    /**
+     * Delivery policy enforcing the recorded receive order of the node.
+     */
+    DeliveryPolicy policyFor(String node) {
+        String[] s = senders.get(node);
+        return s == null ? DeliveryPolicy.replay(new String[0], new int[0])
+                : DeliveryPolicy.replay(s, seqs.get(node));
+    }
+
+    private final long seed;
+    private final Map<String, String[]> senders = new HashMap<>();
+    private final Map<String, int[]> seqs = new HashMap<>();
+}
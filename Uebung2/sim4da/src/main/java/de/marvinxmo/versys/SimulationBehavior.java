@@ -1,7 +1,14 @@
 package de.marvinxmo.versys;
 
+import java.security.SecureRandom;
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
+import org.slf4j.LoggerFactory;
+
+import de.marvinxmo.versys.delivery.DeliveryPolicy;
+import de.marvinxmo.versys.latency.LatencyModel;
+
 public class SimulationBehavior {
 
     // Distribution function for the selection of the next message in a message
@@ -9,6 +16,14 @@ public class SimulationBehavior {
     private static RandomValues r_message_queue_selection = null;
 
     public static void setMessageQueueSelectionDistributionFunction(Supplier<Double> df_message_queue_selection) {
+        setMessageQueueSelectionSampler(df_message_queue_selection::get);
+    }
+
+    /**
+     * Like setMessageQueueSelectionDistributionFunction, without boxing every
+     * sample (see RandomValues.uniform).
+     */
+    public static void setMessageQueueSelectionSampler(DoubleSupplier df_message_queue_selection) {
         if (r_message_queue_selection == null) {
             r_message_queue_selection = new RandomValues(df_message_queue_selection);
         } else {
@@ -17,6 +32,125 @@ public class SimulationBehavior {
         }
     }
 
+    public static boolean isMessageQueueSelectionRandomized() {
+        return r_message_queue_selection != null;
+    }
+
+    // Mailbox implementation used by NodeProxies created from now on
+    private static MailboxType mailbox_type = MailboxType.LOCK_FREE;
+
+    public static void setMailboxType(MailboxType type) {
+        mailbox_type = type;
+    }
+
+    public static MailboxType getMailboxType() {
+        return mailbox_type;
+    }
+
+    // Delivery order of every mailbox created from now on; null selects FIFO,
+    // or the distribution based selection if a distribution function is set
+    private static Supplier<DeliveryPolicy> delivery_policy_factory = null;
+
+    public static void setDeliveryPolicy(Supplier<DeliveryPolicy> factory) {
+        delivery_policy_factory = factory;
+    }
+
+    public static DeliveryPolicy newDeliveryPolicy() {
+        if (delivery_policy_factory != null) {
+            return delivery_policy_factory.get();
+        }
+        return r_message_queue_selection != null ? DeliveryPolicy.distribution() : DeliveryPolicy.fifo();
+    }
+
+    // Transmission delay applied by the Network; null delivers immediately
+    private static LatencyModel latency_model = null;
+
+    public static void setLatencyModel(LatencyModel model) {
+        latency_model = model;
+    }
+
+    public static LatencyModel getLatencyModel() {
+        return latency_model;
+    }
+
+    // Transport every connection created from now on registers with; null
+    // selects the in-JVM Network
+    private static Transport transport = null;
+
+    public static void setTransport(Transport t) {
+        transport = t;
+    }
+
+    public static Transport getTransport() {
+        return transport != null ? transport : Network.getInstance();
+    }
+
+    // Seed of all RandomStreams; chosen at random on first use unless set
+    // (read on every draw from RandomStreams.current, hence no lock)
+    private static volatile Long seed = null;
+
+    public static synchronized void setSeed(long s) {
+        seed = s;
+    }
+
+    public static long getSeed() {
+        Long s = seed;
+        return s != null ? s : chooseSeed();
+    }
+
+    private static synchronized long chooseSeed() {
+        if (seed == null) {
+            seed = new SecureRandom().nextLong();
+            LoggerFactory.getLogger(SimulationBehavior.class).info("Random seed {}", seed);
+        }
+        return seed;
+    }
+
+    // Event log every send, delivery and receive is written to; null records
+    // nothing
+    private static EventLog event_log = null;
+
+    public static void setEventLog(EventLog log) {
+        event_log = log;
+    }
+
+    public static EventLog getEventLog() {
+        return event_log;
+    }
+
+    // Recorded run whose receive order is enforced; null runs freely
+    private static Replay replay = null;
+
+    public static void setReplay(Replay r) {
+        replay = r;
+        if (r != null) {
+            setSeed(r.seed());
+        }
+    }
+
+    public static Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * True if sends are numbered for an event log or a replay.
+     */
+    public static boolean isTracing() {
+        return event_log != null || replay != null;
+    }
+
+    // Record per node and link metrics (see Metrics) for nodes created from
+    // now on
+    private static boolean metrics_enabled = Boolean.getBoolean("sim4da.metrics");
+
+    public static void setMetricsEnabled(boolean enabled) {
+        metrics_enabled = enabled;
+    }
+
+    public static boolean isMetricsEnabled() {
+        return metrics_enabled;
+    }
+
     public static int selectMessageInQueue(int queue_size) {
         assert (queue_size > 0);
         if (r_message_queue_selection == null) {
@@ -1,11 +1,18 @@
 package de.marvinxmo.versys;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.marvinxmo.versys.latency.LatencyModel;
+
 public class Simulator {
     private final String version = "sim4da Summer 2025";
 
@@ -27,16 +34,89 @@ public class Simulator {
         return instance;
     }
 
+    /**
+     * Select real or virtual time. Has to be called before the first node is
+     * created, because nodes register with the scheduler when they engage.
+     */
+    public void setTimeMode(TimeMode timeMode) {
+        if (simulating || SimulationBehavior.getTransport().numberOfNodes() > 0) {
+            throw new IllegalStateException("Time mode must be set before nodes are created");
+        }
+        this.timeMode = timeMode;
+    }
+
+    public TimeMode getTimeMode() {
+        return timeMode;
+    }
+
+    public boolean isVirtualTime() {
+        return timeMode == TimeMode.VIRTUAL_TIME;
+    }
+
+    /**
+     * Select platform or virtual threads for everything the simulator starts.
+     * Has to be called before the first node is created.
+     */
+    public void setThreadingMode(ThreadingMode threadingMode) {
+        if (simulating || SimulationBehavior.getTransport().numberOfNodes() > 0) {
+            throw new IllegalStateException("Threading mode must be set before nodes are created");
+        }
+        if (threadingMode == ThreadingMode.VIRTUAL && !isVirtualThreadSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+        }
+        this.threadingMode = threadingMode;
+    }
+
+    public ThreadingMode getThreadingMode() {
+        return threadingMode;
+    }
+
+    /**
+     * Partition the nodes over the given number of worker threads, each with
+     * its own event queue (see {@link ParallelScheduler}). Requires virtual
+     * time and a latency model with a positive minimum delay, which is the
+     * lookahead. Has to be called before the first node is created.
+     */
+    public void setParallelism(int workers) {
+        if (simulating || SimulationBehavior.getTransport().numberOfNodes() > 0) {
+            throw new IllegalStateException("Parallelism must be set before nodes are created");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        if (workers > 1 && !isVirtualTime()) {
+            throw new IllegalStateException("Parallel simulation requires virtual time");
+        }
+        parallel = workers > 1 ? new ParallelScheduler(workers) : null;
+    }
+
+    public int getParallelism() {
+        return parallel == null ? 1 : parallel.workers();
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreads.isSupported();
+    }
+
     public void simulate(long duration_in_seconds) {
+        SimulationBehavior.getTransport().awaitStart();
         simulating = true;
         startSignal.countDown();
-        try {
-            Thread.sleep(duration_in_seconds * 1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        if (parallel != null) {
+            parallel.run(duration_in_seconds * 1000, lookahead());
+            parallel.stop();
+        } else if (isVirtualTime()) {
+            scheduler.run(duration_in_seconds * 1000);
+            scheduler.stop();
+        } else {
+            try {
+                Thread.sleep(duration_in_seconds * 1000);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
         }
         simulating = false;
-        List<NetworkConnection> ncs = Network.getInstance().getAllNetworkConnections();
+        List<NetworkConnection> ncs = SimulationBehavior.getTransport().getAllNetworkConnections();
         for (NetworkConnection nc : ncs) {
             nc.interrupt();
         }
@@ -46,16 +126,39 @@ public class Simulator {
     }
 
     public void simulate() {
+        SimulationBehavior.getTransport().awaitStart();
         simulating = true;
         startSignal.countDown();
-        List<NetworkConnection> ncs = Network.getInstance().getAllNetworkConnections();
+        List<NetworkConnection> ncs = SimulationBehavior.getTransport().getAllNetworkConnections();
+        if (isVirtualTime()) {
+            // Runs until every node is blocked and no event is left
+            if (parallel != null) {
+                parallel.run(Long.MAX_VALUE, lookahead());
+                parallel.stop();
+            } else {
+                scheduler.run(Long.MAX_VALUE);
+                scheduler.stop();
+            }
+            for (NetworkConnection nc : ncs) {
+                nc.interrupt();
+            }
+        }
         for (NetworkConnection nc : ncs) {
             nc.join();
         }
     }
 
+    private long lookahead() {
+        LatencyModel latency = SimulationBehavior.getLatencyModel();
+        return latency == null ? 0 : latency.minDelayMs();
+    }
+
     public void shutdown() {
-        Network.getInstance().shutdown();
+        SimulationBehavior.getTransport().shutdown();
+        EventLog log = SimulationBehavior.getEventLog();
+        if (log != null) {
+            log.close();
+        }
         logger.info(version + " - Simulation ended.");
     }
 
@@ -63,10 +166,235 @@ public class Simulator {
         return simulating;
     }
 
+    /**
+     * Node-visible clock in milliseconds. Wall clock in real time, simulated
+     * milliseconds since start in virtual time.
+     */
+    public long currentTimeMillis() {
+        return isVirtualTime() ? virtualNow() : System.currentTimeMillis();
+    }
+
+    public long nanoTime() {
+        return isVirtualTime() ? virtualNow() * 1_000_000L : System.nanoTime();
+    }
+
+    private long virtualNow() {
+        return parallel == null ? scheduler.now() : parallel.now();
+    }
+
+    public void sleep(long millis) throws InterruptedException {
+        if (isVirtualTime()) {
+            scheduler().sleep(millis);
+        } else {
+            Thread.sleep(millis);
+        }
+    }
+
+    /**
+     * Wait for a future like join(), but as a blocked activity, so virtual
+     * time can advance to the event that completes it. In virtual time an
+     * activity that waits with get() or join() stalls the simulation.
+     */
+    public <T> T await(CompletableFuture<T> future) throws InterruptedException {
+        if (!future.isDone()) {
+            Thread self = Thread.currentThread();
+            AtomicReference<Thread> waiter = new AtomicReference<>(self);
+            block();
+            // Whoever clears the waiter unblocks it
+            future.whenComplete((value, failure) -> {
+                if (waiter.compareAndSet(self, null)) {
+                    unblock();
+                    LockSupport.unpark(self);
+                }
+            });
+            while (waiter.get() == self) {
+                LockSupport.park(future);
+                if (Thread.interrupted()) {
+                    if (waiter.compareAndSet(self, null)) {
+                        unblock();
+                        throw new InterruptedException();
+                    }
+                    // Completed meanwhile, keep the interrupt for later
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return future.join();
+    }
+
+    /**
+     * Run an action after delayMs of virtual time. Only available in
+     * {@link TimeMode#VIRTUAL_TIME}.
+     */
+    public VirtualTimeScheduler.Event schedule(long delayMs, Runnable action) {
+        if (!isVirtualTime()) {
+            throw new IllegalStateException("Events can only be scheduled in virtual time");
+        }
+        return scheduler().schedule(delayMs, action);
+    }
+
+    /**
+     * Simulator nanoTime timeoutNanos from now. The timeout is capped at
+     * about 70 years, so deadline - nanoTime() cannot overflow.
+     */
+    long deadline(long timeoutNanos) {
+        return nanoTime() + Math.min(timeoutNanos, Long.MAX_VALUE >> 2);
+    }
+
+    /**
+     * Run an action once virtual time reaches deadline (a nanoTime), rounded
+     * up to the next millisecond. Wakes an activity whose timed wait would
+     * otherwise never end, since the clock stands still while it is blocked.
+     */
+    VirtualTimeScheduler.Event scheduleAt(long deadline, Runnable action) {
+        long delayMs = (deadline - nanoTime() + 999_999) / 1_000_000;
+        return scheduler().schedule(delayMs, action);
+    }
+
+    /**
+     * Schedule the delivery of a message to receiver after delayMs of
+     * virtual time, into the receiver's partition when running in parallel.
+     */
+    void schedule(NetworkConnection receiver, long delayMs, Runnable action) {
+        if (parallel != null) {
+            parallel.schedule(receiver.partition(), delayMs, action);
+        } else {
+            scheduler.schedule(delayMs, action);
+        }
+    }
+
+    /**
+     * Partition a new connection belongs to, 0 unless running in parallel.
+     */
+    int assignPartition(String name) {
+        return parallel == null ? 0 : parallel.assign(name);
+    }
+
+    /**
+     * Start a thread that takes part in the simulation (e.g. a listener
+     * thread of a node). Use this instead of new Thread() so the activity is
+     * accounted for in virtual time. The thread gets the next random stream
+     * of the node that starts it (see RandomStreams).
+     */
+    public Thread startThread(String name, boolean daemon, Runnable task) {
+        return startThread(name, daemon, task, currentPartition(), RandomStreams.spawn());
+    }
+
+    /**
+     * Start the main thread of node name as an activity of the given
+     * partition.
+     */
+    Thread startThread(String name, boolean daemon, Runnable task, int partition) {
+        return startThread(name, daemon, task, partition, RandomStreams.root(name));
+    }
+
+    private Thread startThread(String name, boolean daemon, Runnable task, int partition,
+            RandomStreams.Activity activity) {
+        Runnable tracked = () -> {
+            if (parallel != null) {
+                ParallelScheduler.bind(partition);
+            }
+            RandomStreams.bind(activity);
+            try {
+                task.run();
+            } finally {
+                exit();
+            }
+        };
+        Thread t;
+        if (threadingMode == ThreadingMode.VIRTUAL) {
+            // Virtual threads are always daemon threads
+            t = VirtualThreads.unstarted(name, tracked);
+        } else {
+            t = new Thread(tracked);
+            t.setName(name);
+            t.setDaemon(daemon);
+        }
+        enter(partition);
+        try {
+            t.start();
+        } catch (RuntimeException | Error e) {
+            exit(partition);
+            throw e;
+        }
+        return t;
+    }
+
+    /**
+     * Executor for node-internal task loops. Tasks are accounted for in
+     * virtual time, so every submitted task should have a thread of its own.
+     * With virtual threads every task gets a fresh virtual thread and the
+     * pool size is ignored.
+     */
+    public ExecutorService newExecutorService(int threads) {
+        ExecutorService delegate = threadingMode == ThreadingMode.VIRTUAL
+                ? VirtualThreads.newThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(threads);
+        return new TrackedExecutorService(delegate, this);
+    }
+
+    void enter() {
+        if (isVirtualTime()) {
+            scheduler().enter();
+        }
+    }
+
+    void enter(int partition) {
+        if (parallel != null) {
+            parallel.partition(partition).enter();
+        } else {
+            enter();
+        }
+    }
+
+    void exit() {
+        if (isVirtualTime()) {
+            scheduler().exit();
+        }
+    }
+
+    void exit(int partition) {
+        if (parallel != null) {
+            parallel.partition(partition).exit();
+        } else {
+            exit();
+        }
+    }
+
+    /**
+     * Partition of the calling thread, 0 unless running in parallel.
+     */
+    int currentPartition() {
+        Integer partition = parallel == null ? null : ParallelScheduler.boundPartition();
+        return partition == null ? 0 : partition;
+    }
+
+    /**
+     * Scheduler of the calling thread: its partition's when running in
+     * parallel, the single one otherwise.
+     */
+    private VirtualTimeScheduler scheduler() {
+        return parallel == null ? scheduler : parallel.current();
+    }
+
+    // A blocked activity is woken by someone else, who calls unblock() for it
+    void block() {
+        exit();
+    }
+
+    void unblock() {
+        enter();
+    }
+
     private static Simulator instance = null;
     private final Logger logger;
-    private boolean simulating = false;
+    private volatile boolean simulating = false;
     private final CountDownLatch startSignal = new CountDownLatch(1);
+    private TimeMode timeMode = TimeMode.REAL_TIME;
+    private ThreadingMode threadingMode = ThreadingMode.PLATFORM;
+    private final VirtualTimeScheduler scheduler = new VirtualTimeScheduler();
+    // Null unless the simulation runs on several workers
+    private ParallelScheduler parallel = null;
 
     public void awaitSimulationStart() {
         if (simulating)
@@ -76,4 +404,4 @@ public class Simulator {
         } catch (InterruptedException e) {
         }
     }
-}
\ No newline at end of file
+}
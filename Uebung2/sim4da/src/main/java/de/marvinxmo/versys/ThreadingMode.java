@@ -0,0 +1,10 @@
+package de.marvinxmo.versys;
+
+/**
+ * Kind of threads used for node mains, DSM task loops and listener threads.
+ * VIRTUAL needs a JVM with virtual thread support (Java 21+).
+ */
+public enum ThreadingMode {
+    PLATFORM,
+    VIRTUAL
+}
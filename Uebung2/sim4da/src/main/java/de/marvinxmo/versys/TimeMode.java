@@ -0,0 +1,11 @@
+package de.marvinxmo.versys;
+
+/**
+ * Clock the simulation runs on.
+ * REAL_TIME sleeps on the wall clock, VIRTUAL_TIME advances a discrete-event
+ * clock whenever all simulated activities are blocked.
+ */
+public enum TimeMode {
+    REAL_TIME,
+    VIRTUAL_TIME
+}
@@ -0,0 +1,72 @@
+package de.marvinxmo.versys;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExecutorService that registers every submitted task with the simulator,
+ * so node-internal task loops take part in virtual time accounting.
+ */
+class TrackedExecutorService extends AbstractExecutorService {
+
+    TrackedExecutorService(ExecutorService delegate, Simulator simulator) {
+        this.delegate = delegate;
+        this.simulator = simulator;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        // Tasks belong to the partition and node of the submitter
+        int partition = simulator.currentPartition();
+        RandomStreams.Activity activity = RandomStreams.spawn();
+        simulator.enter(partition);
+        try {
+            delegate.execute(() -> {
+                if (simulator.getParallelism() > 1) {
+                    ParallelScheduler.bind(partition);
+                }
+                // Pool threads run tasks of several activities
+                RandomStreams.Activity previous = RandomStreams.bind(activity);
+                try {
+                    command.run();
+                } finally {
+                    RandomStreams.unbind(previous);
+                    simulator.exit();
+                }
+            });
+        } catch (RuntimeException e) {
+            simulator.exit(partition);
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    private final ExecutorService delegate;
+    private final Simulator simulator;
+}
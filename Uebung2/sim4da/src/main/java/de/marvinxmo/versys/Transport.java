@@ -0,0 +1,49 @@
+package de.marvinxmo.versys;
+
+import java.util.List;
+
+/**
+ * Moves messages between the connections of the simulation. The in-JVM
+ * {@link Network} is the default; SimulationBehavior.setTransport selects
+ * another one, e.g. the socket transport that spreads nodes over several
+ * processes.
+ *
+ * The transport has to be selected before the first node is created, since
+ * every NetworkConnection registers with it on construction.
+ */
+public interface Transport {
+
+    void registerConnection(NetworkConnection networkConnection, NodeProxy nodeProxy);
+
+    void unregisterConnection(NetworkConnection networkConnection);
+
+    /**
+     * Connections registered in this process.
+     */
+    List<NetworkConnection> getAllNetworkConnections();
+
+    /**
+     * Number of connections registered in this process.
+     */
+    int numberOfNodes();
+
+    /**
+     * Nodes the given node reaches with a broadcast.
+     */
+    List<String> neighbors(String node_name);
+
+    void send(Message message, NetworkConnection sender, String receiver_name) throws UnknownNodeException;
+
+    void send(Message message, NetworkConnection sender);
+
+    Message receive(NetworkConnection receiver);
+
+    /**
+     * Called by Simulator.simulate before the nodes are released. Transports
+     * spanning several processes wait here until all of them are ready.
+     */
+    default void awaitStart() {
+    }
+
+    void shutdown();
+}
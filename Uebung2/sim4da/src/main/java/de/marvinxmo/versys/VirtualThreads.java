@@ -0,0 +1,64 @@
+package de.marvinxmo.versys;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads without requiring Java 21 at compile time. The
+ * project still targets Java 17; the API is looked up reflectively and only
+ * used when the running JVM provides it.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    private static final Method ofVirtual;
+    private static final Method builderName;
+    private static final Method builderUnstarted;
+    private static final Method newPerTaskExecutor;
+
+    static {
+        Method ov = null, name = null, unstarted = null, executor = null;
+        // Java 19 and 20 have the methods too, but as a preview feature that
+        // throws unless the JVM runs with --enable-preview
+        if (Runtime.version().feature() >= 21) {
+            try {
+                ov = Thread.class.getMethod("ofVirtual");
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                name = builder.getMethod("name", String.class);
+                unstarted = builder.getMethod("unstarted", Runnable.class);
+                executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            } catch (ReflectiveOperationException e) {
+                ov = null;
+            }
+        }
+        ofVirtual = ov;
+        builderName = name;
+        builderUnstarted = unstarted;
+        newPerTaskExecutor = executor;
+    }
+
+    static boolean isSupported() {
+        return ofVirtual != null;
+    }
+
+    static Thread unstarted(String name, Runnable task) {
+        try {
+            Object builder = ofVirtual.invoke(null);
+            builder = builderName.invoke(builder, name);
+            return (Thread) builderUnstarted.invoke(builder, task);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create virtual thread", e);
+        }
+    }
+
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) newPerTaskExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package de.marvinxmo.versys;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Discrete-event scheduler backing {@link TimeMode#VIRTUAL_TIME}.
+ *
+ * Every simulated activity (node main, DSM task, quorum listener) is counted
+ * as running until it blocks in {@link #sleep(long)} or in a receive. Once no
+ * activity is running, the driver pops the earliest event from the queue,
+ * advances the virtual clock to its timestamp and fires it. Wake-ups and
+ * message deliveries are both events, so simulated time only passes when
+ * every node is waiting for something.
+ */
+public class VirtualTimeScheduler {
+
+    public static final class Event implements Comparable<Event> {
+        private final long time;
+        // Scheduler that created the event and its sequence number there; ties
+        // in time are broken by these, so the order does not depend on when an
+        // event of another partition arrived
+        private final int origin;
+        private final long seq;
+        private final Runnable action;
+        private volatile boolean cancelled = false;
+
+        private Event(long time, int origin, long seq, Runnable action) {
+            this.time = time;
+            this.origin = origin;
+            this.seq = seq;
+            this.action = action;
+        }
+
+        public long time() {
+            return time;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int c = Long.compare(time, other.time);
+            if (c == 0) {
+                c = Integer.compare(origin, other.origin);
+            }
+            return c != 0 ? c : Long.compare(seq, other.seq);
+        }
+    }
+
+    private final class Wakeup implements Runnable {
+        private final Thread thread = Thread.currentThread();
+        private boolean fired = false; // guarded by lock
+
+        @Override
+        public void run() {
+            lock.lock();
+            try {
+                if (fired) {
+                    return;
+                }
+                fired = true;
+                running++;
+            } finally {
+                lock.unlock();
+            }
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public VirtualTimeScheduler() {
+        this(0);
+    }
+
+    /**
+     * @param id distinguishes the partitions of a {@link ParallelScheduler}
+     */
+    VirtualTimeScheduler(int id) {
+        this.id = id;
+    }
+
+    private final int id;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition quiescent = lock.newCondition();
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private volatile long now = 0;
+    private long seq = 0;
+    private int running = 0;
+    private volatile boolean stopped = false;
+
+    /**
+     * Current virtual time in milliseconds since the start of the simulation.
+     */
+    public long now() {
+        return now;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Schedule an action at now + delayMs. The action is executed by the driver
+     * thread once all activities are blocked.
+     */
+    public Event schedule(long delayMs, Runnable action) {
+        lock.lock();
+        try {
+            Event e = new Event(now + Math.max(0, delayMs), id, seq++, action);
+            events.add(e);
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Schedule an action at now + delayMs of this scheduler into the queue of
+     * another one (a different partition of a parallel simulation).
+     */
+    Event schedule(VirtualTimeScheduler target, long delayMs, Runnable action) {
+        if (target == this) {
+            return schedule(delayMs, action);
+        }
+        long s;
+        lock.lock();
+        try {
+            s = seq++;
+        } finally {
+            lock.unlock();
+        }
+        Event e = new Event(now + Math.max(0, delayMs), id, s, action);
+        target.lock.lock();
+        try {
+            target.events.add(e);
+        } finally {
+            target.lock.unlock();
+        }
+        return e;
+    }
+
+    /**
+     * Register a new running activity. Must be called by the spawning thread
+     * before the activity starts, otherwise the driver could observe a
+     * quiescent state and advance time before the activity ever ran.
+     */
+    public void enter() {
+        lock.lock();
+        try {
+            running++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deregister an activity, either because it finished or because it is
+     * about to block until someone calls {@link #enter()} on its behalf.
+     */
+    public void exit() {
+        lock.lock();
+        try {
+            running--;
+            if (running <= 0) {
+                quiescent.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Block the calling activity for the given amount of virtual time.
+     */
+    public void sleep(long millis) throws InterruptedException {
+        Wakeup wakeup = new Wakeup();
+        lock.lock();
+        try {
+            if (stopped || Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            events.add(new Event(now + Math.max(0, millis), id, seq++, wakeup));
+            running--;
+            if (running <= 0) {
+                quiescent.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        while (true) {
+            LockSupport.park(this);
+            lock.lock();
+            try {
+                if (wakeup.fired) {
+                    return;
+                }
+                if (stopped || Thread.interrupted()) {
+                    // Claim the wake-up so the driver does not count us twice
+                    wakeup.fired = true;
+                    running++;
+                    throw new InterruptedException();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drive the simulation until the virtual clock would pass endTimeMs, the
+     * event queue runs dry while everything is blocked, or {@link #stop()} is
+     * called.
+     */
+    public void run(long endTimeMs) {
+        while (true) {
+            Event next;
+            lock.lock();
+            try {
+                while (running > 0 && !stopped) {
+                    quiescent.await(100, TimeUnit.MILLISECONDS);
+                }
+                if (stopped) {
+                    return;
+                }
+                next = events.poll();
+                while (next != null && next.cancelled) {
+                    next = events.poll();
+                }
+                if (next == null) {
+                    return;
+                }
+                if (next.time > endTimeMs) {
+                    events.add(next);
+                    now = endTimeMs;
+                    return;
+                }
+                now = next.time;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            next.action.run();
+        }
+    }
+
+    /**
+     * Fire the events up to and including lastTime, then return once every
+     * activity is blocked. Used by the workers of a {@link ParallelScheduler}
+     * for one window.
+     */
+    void runUntil(long lastTime) {
+        while (true) {
+            Event next;
+            lock.lock();
+            try {
+                while (running > 0 && !stopped) {
+                    quiescent.await(100, TimeUnit.MILLISECONDS);
+                }
+                next = events.peek();
+                while (next != null && next.cancelled) {
+                    events.poll();
+                    next = events.peek();
+                }
+                if (stopped || next == null || next.time > lastTime) {
+                    return;
+                }
+                events.poll();
+                now = next.time;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            next.action.run();
+        }
+    }
+
+    /**
+     * Time of the earliest pending event, Long.MAX_VALUE if there is none.
+     */
+    long nextEventTime() {
+        lock.lock();
+        try {
+            Event next = events.peek();
+            while (next != null && next.cancelled) {
+                events.poll();
+                next = events.peek();
+            }
+            return next == null ? Long.MAX_VALUE : next.time;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move the clock forward to time, e.g. to the end of the simulation.
+     */
+    void advanceTo(long time) {
+        lock.lock();
+        try {
+            if (time > now) {
+                now = time;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop driving. Sleeping activities are released with an
+     * InterruptedException so their loops can terminate.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            quiescent.signalAll();
+            for (Event e : events) {
+                if (e.action instanceof Wakeup w) {
+                    LockSupport.unpark(w.thread);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
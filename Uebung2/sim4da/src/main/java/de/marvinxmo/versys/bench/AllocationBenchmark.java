@@ -0,0 +1,224 @@
+package de.marvinxmo.versys.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessagePool;
+import de.marvinxmo.versys.Node;
+import de.marvinxmo.versys.Simulator;
+import de.marvinxmo.versys.dsm.messages.WritePropagation;
+
+/**
+ * Allocation rate of messaging with and without a MessagePool.
+ *
+ * 1. Ring: a token is passed around a ring of nodes, every hop is a new
+ * message to the next node.
+ * 2. AP gossip: every node broadcasts WritePropagation messages like an
+ * APNode and applies the writes it receives with last-write-wins. Senders
+ * keep a bounded number of messages in flight.
+ *
+ * Bytes are counted per node thread with the HotSpot per-thread allocation
+ * counter, so only messaging threads are included.
+ *
+ * Usage: AllocationBenchmark [nodes] [ringHops] [writesPerNode]
+ */
+public class AllocationBenchmark {
+
+    static final LongAdder allocatedBytes = new LongAdder();
+    static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    static int run = 0;
+    // Nodes of later runs engage right away, so they wait until all are registered
+    static CountDownLatch start;
+
+    public static void main(String[] args) throws Exception {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int hops = args.length > 1 ? Integer.parseInt(args[1]) : 400_000;
+        int writesPerNode = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int ringHops = hops - hops % nodes;
+
+        Simulator.getInstance();
+        // Warm up
+        ring(nodes, ringHops / 10, null);
+        ring(nodes, ringHops / 10, new MessagePool());
+        gossip(nodes, writesPerNode / 10, null);
+        gossip(nodes, writesPerNode / 10, new MessagePool());
+
+        System.out.println("=".repeat(80));
+        System.out.printf("Allocation per message, %d nodes%n", nodes);
+        System.out.println("=".repeat(80));
+        System.out.printf("%-12s %-9s %10s %12s %10s %12s %6s%n", "scenario", "messages", "count", "msgs/s",
+                "bytes/msg", "alloc[MB/s]", "GCs");
+        print("ring", "new", ringHops, () -> ring(nodes, ringHops, null));
+        print("ring", "pooled", ringHops, () -> ring(nodes, ringHops, new MessagePool()));
+        long gossipMessages = (long) nodes * (nodes - 1) * writesPerNode;
+        print("AP gossip", "new", gossipMessages, () -> gossip(nodes, writesPerNode, null));
+        print("AP gossip", "pooled", gossipMessages, () -> gossip(nodes, writesPerNode, new MessagePool()));
+        System.exit(0);
+    }
+
+    interface Scenario {
+        void run() throws Exception;
+    }
+
+    static void print(String scenario, String mode, long messages, Scenario s) throws Exception {
+        allocatedBytes.reset();
+        long gcs = gcCount();
+        long begin = System.nanoTime();
+        s.run();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        double bytes = allocatedBytes.sum();
+        System.out.printf("%-12s %-9s %10d %12.0f %10.1f %12.1f %6d%n", scenario, mode, messages,
+                messages / seconds, bytes / messages, bytes / seconds / (1024 * 1024), gcCount() - gcs);
+    }
+
+    static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+
+    static void awaitStart() {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void ring(int nodes, int hops, MessagePool pool) throws InterruptedException {
+        String prefix = "Ring" + (run++) + "-";
+        CountDownLatch done = new CountDownLatch(nodes);
+        start = new CountDownLatch(1);
+        for (int i = 0; i < nodes; i++) {
+            new RingNode(prefix, i, nodes, hops / nodes, pool, done);
+        }
+        start.countDown();
+        Simulator.getInstance().simulate();
+        done.await();
+    }
+
+    static class RingNode extends Node {
+        RingNode(String prefix, int id, int nodes, int rounds, MessagePool pool, CountDownLatch done) {
+            super(prefix + id);
+            this.id = id;
+            this.next = prefix + ((id + 1) % nodes);
+            this.rounds = rounds;
+            this.pool = pool;
+            this.done = done;
+        }
+
+        @Override
+        protected void engage() {
+            awaitStart();
+            long begin = threads.getCurrentThreadAllocatedBytes();
+            if (id == 0) {
+                sendBlindly(message().add("hop", 1), next);
+            }
+            for (int r = 0; r < rounds; r++) {
+                Message m = receive();
+                if (m == null) {
+                    break;
+                }
+                int hop = m.queryInteger("hop");
+                m.release();
+                if (id != 0 || r < rounds - 1) {
+                    sendBlindly(message().add("hop", hop + 1), next);
+                }
+            }
+            allocatedBytes.add(threads.getCurrentThreadAllocatedBytes() - begin);
+            done.countDown();
+        }
+
+        private Message message() {
+            return pool == null ? new Message() : pool.acquire();
+        }
+
+        private final int id;
+        private final String next;
+        private final int rounds;
+        private final MessagePool pool;
+        private final CountDownLatch done;
+    }
+
+    static void gossip(int nodes, int writesPerNode, MessagePool pool) throws InterruptedException {
+        String prefix = "Gossip" + (run++) + "-";
+        CountDownLatch done = new CountDownLatch(2 * nodes);
+        AtomicLong inFlight = new AtomicLong();
+        start = new CountDownLatch(1);
+        for (int i = 0; i < nodes; i++) {
+            new GossipNode(prefix + i, nodes, writesPerNode, pool, inFlight, done);
+        }
+        start.countDown();
+        Simulator.getInstance().simulate();
+        done.await();
+    }
+
+    static class GossipNode extends Node {
+        static final String[] KEYS = { "giraffe", "zebra", "lion", "elephant", "monkey", "koala" };
+        static final int WINDOW = 1024;
+
+        GossipNode(String name, int nodes, int writes, MessagePool pool, AtomicLong inFlight, CountDownLatch done) {
+            super(name);
+            this.receivers = nodes - 1;
+            this.writes = writes;
+            this.pool = pool;
+            this.inFlight = inFlight;
+            this.done = done;
+        }
+
+        @Override
+        protected void engage() {
+            awaitStart();
+            Simulator.getInstance().startThread(NodeName() + "-writer", false, this::writeLoop);
+            long begin = threads.getCurrentThreadAllocatedBytes();
+            Map<String, Long> storage = new HashMap<>();
+            long expected = (long) receivers * writes;
+            for (long i = 0; i < expected; i++) {
+                Message m = receive();
+                if (m == null) {
+                    break;
+                }
+                WritePropagation w = m.body(WritePropagation.SCHEMA);
+                Long current = storage.get(w.key());
+                if (current == null || w.timestamp() >= current) {
+                    storage.put(w.key(), w.timestamp());
+                }
+                m.release();
+                inFlight.decrementAndGet();
+            }
+            allocatedBytes.add(threads.getCurrentThreadAllocatedBytes() - begin);
+            done.countDown();
+        }
+
+        private void writeLoop() {
+            long begin = threads.getCurrentThreadAllocatedBytes();
+            String value = NodeName();
+            for (int i = 0; i < writes; i++) {
+                while (inFlight.get() > WINDOW) {
+                    Thread.onSpinWait();
+                }
+                inFlight.addAndGet(receivers);
+                WritePropagation w = new WritePropagation(KEYS[i % KEYS.length], value, i, NodeName());
+                broadcast(pool == null ? new Message(w) : pool.acquire(w));
+            }
+            allocatedBytes.add(threads.getCurrentThreadAllocatedBytes() - begin);
+            done.countDown();
+        }
+
+        private final int receivers;
+        private final int writes;
+        private final MessagePool pool;
+        private final AtomicLong inFlight;
+        private final CountDownLatch done;
+    }
+}
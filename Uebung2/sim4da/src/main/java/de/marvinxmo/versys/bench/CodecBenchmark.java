@@ -0,0 +1,115 @@
+package de.marvinxmo.versys.bench;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageCodec;
+import de.marvinxmo.versys.dsm.messages.WritePropagation;
+
+/**
+ * Round-trip check and throughput of the binary MessageCodec against the
+ * Jackson JSON path (toJson/fromJson).
+ *
+ * For every sample message both encodings are decoded again and compared with
+ * the original, then each path encodes and decodes the message repeatedly.
+ *
+ * Usage: CodecBenchmark [iterations]
+ */
+public class CodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+
+        Map<String, Message> samples = new LinkedHashMap<>();
+        samples.put("ring token", new Message().add("token", "1").addHeader("sender", "Node3"));
+        samples.put("DSM write", new Message(new WritePropagation("giraffe", "aB3dE5fG",
+                1_723_456_789_012L, "APNode7")).addHeader("sender", "APNode7"));
+        double[] times = new double[100];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = 1.5 + i * 0.013;
+        }
+        samples.put("100 doubles", new Message().add("type", "STATS").add("roundtrip_times", times)
+                .addHeader("sender", "Node0"));
+        samples.put("non-ASCII", new Message().add("text", "Grüße aus Köln, ½ € ✓")
+                .addHeader("sender", "Knoten1"));
+
+        MessageCodec codec = new MessageCodec();
+        for (Map.Entry<String, Message> sample : samples.entrySet()) {
+            checkRoundTrip(sample.getKey(), sample.getValue(), codec);
+        }
+
+        // Warm up both paths
+        for (Message m : samples.values()) {
+            json(m, iterations / 10);
+            binary(m, codec, iterations / 10);
+        }
+
+        System.out.println("=".repeat(80));
+        System.out.printf("Encode + decode, %d iterations [round trips/s]%n", iterations);
+        System.out.println("=".repeat(80));
+        System.out.printf("%-14s %10s %10s %14s %14s %8s%n", "message", "json[B]", "binary[B]",
+                "json", "binary", "speedup");
+        for (Map.Entry<String, Message> sample : samples.entrySet()) {
+            Message m = sample.getValue();
+            int jsonSize = m.toJson().getBytes(StandardCharsets.UTF_8).length;
+            int binarySize = codec.encode(m).remaining();
+            double jsonRate = json(m, iterations);
+            double binaryRate = binary(m, codec, iterations);
+            System.out.printf("%-14s %10d %10d %14.0f %14.0f %7.1fx%n", sample.getKey(), jsonSize, binarySize,
+                    jsonRate, binaryRate, binaryRate / jsonRate);
+        }
+    }
+
+    static void checkRoundTrip(String name, Message m, MessageCodec codec) throws Exception {
+        Message fromJson = Message.fromJson(m.toJson());
+        Message fromBinary = codec.decode(codec.encode(m));
+        for (Message decoded : List.of(fromJson, fromBinary)) {
+            if (!m.getPayload().equals(decoded.getPayload()) || !m.getHeader().equals(decoded.getHeader())
+                    || !sameDoubles(m, decoded)) {
+                throw new IllegalStateException("Round trip of '" + name + "' changed the message: " + decoded);
+            }
+        }
+    }
+
+    static boolean sameDoubles(Message a, Message b) {
+        Map<String, double[]> x = a.getDoubles();
+        Map<String, double[]> y = b.getDoubles();
+        if (x == null || y == null) {
+            return x == y;
+        }
+        return x.keySet().equals(y.keySet())
+                && x.keySet().stream().allMatch(k -> Arrays.equals(x.get(k), y.get(k)));
+    }
+
+    static double json(Message m, int iterations) throws Exception {
+        long begin = System.nanoTime();
+        int sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += Message.fromJson(m.toJson()).getPayload().size();
+        }
+        return rate(iterations, begin, sink);
+    }
+
+    static double binary(Message m, MessageCodec codec, int iterations) {
+        long begin = System.nanoTime();
+        int sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            ByteBuffer encoded = codec.encode(m);
+            sink += codec.decode(encoded).getPayload().size();
+        }
+        return rate(iterations, begin, sink);
+    }
+
+    private static double rate(int iterations, long begin, int sink) {
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        if (sink == 42) {
+            System.out.print(""); // Keeps the loop from being optimized away
+        }
+        return iterations / seconds;
+    }
+}
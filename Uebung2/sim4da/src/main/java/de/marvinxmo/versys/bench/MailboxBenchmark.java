@@ -0,0 +1,153 @@
+package de.marvinxmo.versys.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import de.marvinxmo.versys.Envelope;
+import de.marvinxmo.versys.Mailbox;
+import de.marvinxmo.versys.MailboxType;
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.NetworkConnection;
+import de.marvinxmo.versys.delivery.DeliveryPolicy;
+
+/**
+ * Throughput comparison of the mailbox implementations behind NodeProxy.
+ *
+ * 1. Fan-in: 1..N producer threads deliver into one mailbox while a single
+ * receiver drains it (broadcast storm onto one node).
+ * 2. Deep queue: a mailbox is filled first and then drained, which exposes
+ * the cost of dequeuing from the front of a deep queue.
+ *
+ * 3. Delivery policies: a deep queue with messages from several senders is
+ * drained through every DeliveryPolicy.
+ *
+ * Before the delivery policies, the LOCKED mailbox removed from the front of
+ * an ArrayList and its drain time grew quadratically with queue depth.
+ *
+ * Usage: MailboxBenchmark [messages] [deepQueueSize]
+ */
+public class MailboxBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int deepQueue = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int[] producerCounts = { 1, 2, 4, 8 };
+
+        // Warm up both implementations
+        for (MailboxType type : MailboxType.values()) {
+            fanIn(type, 2, messages / 10);
+            deepQueue(type, deepQueue / 10);
+        }
+
+        System.out.println("=".repeat(80));
+        System.out.printf("Fan-in throughput, %d messages [msgs/s]%n", messages);
+        System.out.println("=".repeat(80));
+        System.out.printf("%-10s", "producers");
+        for (MailboxType type : MailboxType.values()) {
+            System.out.printf("%15s", type);
+        }
+        System.out.println();
+        for (int producers : producerCounts) {
+            System.out.printf("%-10d", producers);
+            for (MailboxType type : MailboxType.values()) {
+                System.out.printf("%15.0f", fanIn(type, producers, messages));
+            }
+            System.out.println();
+        }
+
+        System.out.println("=".repeat(80));
+        System.out.printf("Deep queue: fill and drain %d messages [ms]%n", deepQueue);
+        System.out.println("=".repeat(80));
+        for (MailboxType type : MailboxType.values()) {
+            long[] t = deepQueue(type, deepQueue);
+            System.out.printf("%-10s fill %6d ms   drain %6d ms%n", type, t[0], t[1]);
+        }
+
+        System.out.println("=".repeat(80));
+        System.out.printf("Delivery policies: drain %d messages from 16 senders [ms]%n", deepQueue);
+        System.out.println("=".repeat(80));
+        NetworkConnection[] senders = new NetworkConnection[16];
+        for (int i = 0; i < senders.length; i++) {
+            senders[i] = new NetworkConnection("Sender" + i);
+        }
+        Map<String, Supplier<DeliveryPolicy>> policies = new LinkedHashMap<>();
+        policies.put("fifo", DeliveryPolicy::fifo);
+        policies.put("random", DeliveryPolicy::random);
+        policies.put("reorderWindow(8)", () -> DeliveryPolicy.reorderWindow(8));
+        policies.put("oldestFirst", DeliveryPolicy::oldestFirst);
+        policies.put("roundRobin", DeliveryPolicy::roundRobinPerSender);
+        policies.put("distribution", DeliveryPolicy::distribution);
+        for (Map.Entry<String, Supplier<DeliveryPolicy>> p : policies.entrySet()) {
+            drainPolicy(p.getValue(), senders, deepQueue / 10);
+            System.out.printf("%-18s %6d ms%n", p.getKey(), drainPolicy(p.getValue(), senders, deepQueue));
+        }
+    }
+
+    static long drainPolicy(Supplier<DeliveryPolicy> policy, NetworkConnection[] senders, int size)
+            throws InterruptedException {
+        Mailbox mailbox = MailboxType.LOCK_FREE.newMailbox(policy.get());
+        Message message = new Message().add("type", "BENCH");
+        for (int i = 0; i < size; i++) {
+            mailbox.deliver(new Envelope(message, senders[i % senders.length], size - i));
+        }
+        long begin = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            mailbox.receive();
+        }
+        return (System.nanoTime() - begin) / 1_000_000;
+    }
+
+    static double fanIn(MailboxType type, int producers, int messages) throws InterruptedException {
+        Mailbox mailbox = type.newMailbox();
+        Message message = new Message().add("type", "BENCH");
+        int perProducer = messages / producers;
+        int total = perProducer * producers;
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    mailbox.deliver(new Envelope(message, null));
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (int i = 0; i < total; i++) {
+            mailbox.receive();
+        }
+        long elapsed = System.nanoTime() - begin;
+        for (Thread t : threads) {
+            t.join();
+        }
+        return total / (elapsed / 1e9);
+    }
+
+    static long[] deepQueue(MailboxType type, int size) throws InterruptedException {
+        Mailbox mailbox = type.newMailbox();
+        Message message = new Message().add("type", "BENCH");
+        long begin = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            mailbox.deliver(new Envelope(message, null));
+        }
+        long filled = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            mailbox.receive();
+        }
+        long drained = System.nanoTime();
+        return new long[] { (filled - begin) / 1_000_000, (drained - filled) / 1_000_000 };
+    }
+}
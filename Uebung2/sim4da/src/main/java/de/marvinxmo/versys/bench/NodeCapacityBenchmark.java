@@ -0,0 +1,169 @@
+package de.marvinxmo.versys.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.marvinxmo.versys.Node;
+import de.marvinxmo.versys.Simulator;
+import de.marvinxmo.versys.ThreadingMode;
+
+/**
+ * Measures how many DSM-shaped nodes fit into one JVM per threading mode.
+ *
+ * Every node mirrors a DSMNode: a main loop plus an executor running a
+ * message processing loop and three sleeping task loops. Nodes are added in
+ * batches until the configured maximum is reached or thread creation fails.
+ * Each mode runs in its own child JVM because Simulator and Network are
+ * singletons.
+ *
+ * Usage: NodeCapacityBenchmark [maxNodes] [batchSize] [heap]
+ */
+public class NodeCapacityBenchmark {
+
+    // Main loop, message loop and three idle loops, like a DSMNode
+    static final int TASKS_PER_NODE = 5;
+    static final AtomicInteger startedTasks = new AtomicInteger();
+
+    static class CapacityNode extends Node {
+        CapacityNode(String name) {
+            super(name);
+        }
+
+        @Override
+        protected void engage() {
+            ExecutorService executor = Simulator.getInstance().newExecutorService(4);
+            executor.submit(() -> {
+                startedTasks.incrementAndGet();
+                while (!Thread.currentThread().isInterrupted() && receive() != null) {
+                }
+            });
+            for (int i = 0; i < 3; i++) {
+                executor.submit(this::idleLoop);
+            }
+            idleLoop();
+        }
+
+        private void idleLoop() {
+            startedTasks.incrementAndGet();
+            while (!Thread.currentThread().isInterrupted()) {
+                sleep(60_000);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--mode")) {
+            runMode(ThreadingMode.valueOf(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+
+        int maxNodes = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 250;
+        String heap = args.length > 2 ? args[2] : "1g";
+
+        List<String> results = new ArrayList<>();
+        for (ThreadingMode mode : ThreadingMode.values()) {
+            if (mode == ThreadingMode.VIRTUAL && !Simulator.isVirtualThreadSupported()) {
+                results.add(String.format("%-8s skipped (requires Java 21+)", mode));
+                continue;
+            }
+            results.add(runChild(mode, maxNodes, batchSize, heap));
+        }
+
+        System.out.println("=".repeat(80));
+        System.out.printf("Node capacity (max %d nodes, -Xmx%s)%n", maxNodes, heap);
+        System.out.println("=".repeat(80));
+        for (String r : results) {
+            System.out.println(r);
+        }
+    }
+
+    private static String runChild(ThreadingMode mode, int maxNodes, int batchSize, String heap)
+            throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder pb = new ProcessBuilder(java, "-Xmx" + heap,
+                "-cp", System.getProperty("java.class.path"),
+                NodeCapacityBenchmark.class.getName(), "--mode", mode.name(),
+                String.valueOf(maxNodes), String.valueOf(batchSize));
+        pb.redirectErrorStream(true);
+        Process p = pb.start();
+        String result = String.format("%-8s no result (child JVM exited early)", mode);
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("RESULT ")) {
+                    result = line.substring(7);
+                } else {
+                    System.out.println("[" + mode + "] " + line);
+                }
+            }
+        }
+        p.waitFor();
+        return result;
+    }
+
+    private static void runMode(ThreadingMode mode, int maxNodes, int batchSize) {
+        Simulator simulator = Simulator.getInstance();
+        simulator.setThreadingMode(mode);
+        // Start the simulation first, so nodes run as soon as they are created
+        simulator.simulate();
+
+        long start = System.nanoTime();
+        int nodes = 0;
+        String failure = null;
+        System.out.printf("%8s %10s %10s %14s %12s%n", "nodes", "time[ms]", "threads", "heap used[MB]", "rss[MB]");
+
+        while (nodes < maxNodes && failure == null) {
+            try {
+                for (int i = 0; i < batchSize && nodes < maxNodes; i++) {
+                    new CapacityNode("N" + nodes);
+                    nodes++;
+                }
+                // Wait until every task of the batch is actually running
+                long deadline = System.currentTimeMillis() + 30_000;
+                while (startedTasks.get() < nodes * TASKS_PER_NODE && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                }
+                if (startedTasks.get() < nodes * TASKS_PER_NODE) {
+                    failure = "tasks did not start within 30s";
+                }
+            } catch (Throwable t) {
+                failure = t.toString();
+            }
+            System.out.printf("%8d %10d %10d %14d %12d%n", nodes, (System.nanoTime() - start) / 1_000_000,
+                    ManagementFactory.getThreadMXBean().getThreadCount(), heapUsedMb(), rssMb());
+        }
+
+        System.out.printf("RESULT %-8s nodes=%d tasks=%d platformThreads=%d heapUsed=%dMB rss=%dMB time=%dms%s%n",
+                mode, nodes, startedTasks.get(), ManagementFactory.getThreadMXBean().getThreadCount(),
+                heapUsedMb(), rssMb(), (System.nanoTime() - start) / 1_000_000,
+                failure == null ? "" : " failed: " + failure);
+        System.out.flush();
+        // Thousands of blocked node threads would otherwise keep the JVM alive
+        Runtime.getRuntime().halt(0);
+    }
+
+    private static long heapUsedMb() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024);
+    }
+
+    private static long rssMb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) / 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,155 @@
+package de.marvinxmo.versys.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.Network;
+import de.marvinxmo.versys.Node;
+import de.marvinxmo.versys.SimulationBehavior;
+import de.marvinxmo.versys.Simulator;
+import de.marvinxmo.versys.TimeMode;
+import de.marvinxmo.versys.latency.LatencyModel;
+import de.marvinxmo.versys.topology.Topology;
+
+/**
+ * Wall time of a virtual time simulation on one worker and on several.
+ *
+ * Nodes form a ring; every node starts a token that travels the given
+ * number of hops with a latency of 1 to 5 ms per hop, and burns some CPU per
+ * hop. Each worker count runs in its own child JVM because Simulator and
+ * Network are singletons. The checksum over the receive times shows that
+ * the outcome does not depend on the thread scheduling.
+ *
+ * Usage: ParallelSimulationBenchmark [nodes] [hops] [workPerHop] [maxWorkers]
+ */
+public class ParallelSimulationBenchmark {
+
+    static final AtomicLong checksum = new AtomicLong();
+    static final AtomicLong received = new AtomicLong();
+
+    static class TokenNode extends Node {
+        TokenNode(String name, String successor, int hops, int work) {
+            super(name);
+            this.successor = successor;
+            this.hops = hops;
+            this.work = work;
+        }
+
+        @Override
+        protected void engage() {
+            sendBlindly(new Message().add("hop", 1), successor);
+            while (true) {
+                Message m = receive();
+                if (m == null) {
+                    return;
+                }
+                int hop = m.queryInteger("hop");
+                received.incrementAndGet();
+                checksum.addAndGet(currentTimeMillis() * 31 + hop);
+                busy();
+                if (hop < hops) {
+                    sendBlindly(new Message().add("hop", hop + 1), successor);
+                }
+            }
+        }
+
+        private void busy() {
+            long x = work;
+            for (int i = 0; i < work; i++) {
+                x = x * 6364136223846793005L + 1442695040888963407L;
+            }
+            if (x == 42) {
+                System.out.print("");
+            }
+        }
+
+        private final String successor;
+        private final int hops;
+        private final int work;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--workers")) {
+            run(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]));
+            return;
+        }
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int hops = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int work = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        int maxWorkers = args.length > 3 ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+
+        List<String> results = new ArrayList<>();
+        for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+            results.add(runChild(workers, nodes, hops, work));
+        }
+        System.out.println("=".repeat(80));
+        System.out.printf("Parallel simulation (%d nodes, %d hops, work %d)%n", nodes, hops, work);
+        System.out.println("=".repeat(80));
+        for (String r : results) {
+            System.out.println(r);
+        }
+    }
+
+    private static String runChild(int workers, int nodes, int hops, int work)
+            throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process p = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ParallelSimulationBenchmark.class.getName(), "--workers", String.valueOf(workers),
+                String.valueOf(nodes), String.valueOf(hops), String.valueOf(work))
+                .redirectErrorStream(true).start();
+        String result = String.format("workers=%-3d no result (child JVM exited early)", workers);
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("RESULT ")) {
+                    result = line.substring(7);
+                }
+            }
+        }
+        p.waitFor();
+        return result;
+    }
+
+    private static void run(int workers, int nodes, int hops, int work) {
+        Simulator simulator = Simulator.getInstance();
+        simulator.setTimeMode(TimeMode.VIRTUAL_TIME);
+        simulator.setParallelism(workers);
+        SimulationBehavior.setLatencyModel(new LatencyModel() {
+            // Fixed per link, so runs are comparable
+            @Override
+            public long delayMs(String from, String to) {
+                return 1 + Math.floorMod(from.hashCode() * 31 + to.hashCode(), 5);
+            }
+
+            @Override
+            public long minDelayMs() {
+                return 1;
+            }
+        });
+        List<String> names = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            names.add("N" + i);
+        }
+        Network.getInstance().setTopology(Topology.ring(names));
+        for (int i = 0; i < nodes; i++) {
+            new TokenNode(names.get(i), names.get((i + 1) % nodes), hops, work);
+        }
+
+        long begin = System.nanoTime();
+        simulator.simulate();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("RESULT workers=%-3d wall=%7.2f s  virtual=%6d ms  messages=%8d  msgs/s=%9.0f  checksum=%x%n",
+                workers, seconds, simulator.currentTimeMillis(), received.get(), received.get() / seconds,
+                checksum.get());
+        System.out.flush();
+        Runtime.getRuntime().halt(0);
+    }
+}
@@ -0,0 +1,367 @@
+package de.marvinxmo.versys.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.Node;
+import de.marvinxmo.versys.OneRingToRuleThemAll;
+import de.marvinxmo.versys.SimulationBehavior;
+import de.marvinxmo.versys.Simulator;
+import de.marvinxmo.versys.dsm.core.DSMNode;
+import de.marvinxmo.versys.dsm.nodes.APNode;
+import de.marvinxmo.versys.dsm.nodes.CANode;
+import de.marvinxmo.versys.dsm.nodes.CPNode;
+import de.marvinxmo.versys.metrics.Histogram;
+import de.marvinxmo.versys.metrics.Metrics;
+import de.marvinxmo.versys.metrics.NodeMetrics;
+
+/**
+ * Scaling benchmark of whole simulations: runs every scenario at every
+ * node count and writes the results as JSON, to graph scaling curves
+ * across commits.
+ *
+ * Scenarios:
+ * - ring: OneRingToRuleThemAll with the given number of segments
+ * - ap, ca, cp: the DSM nodes for a fixed duration, without latency or
+ * partitions
+ * - alltoall: every node broadcasts, all others receive
+ * - pingpong: pairs of nodes exchange messages
+ *
+ * Every run gets a fresh JVM (the Simulator is a singleton) and is killed
+ * after the timeout. Runs that time out or fail are reported with their
+ * status, so missing points of a curve stay visible. Per run:
+ * messagesPerSecond (received messages over the simulated wall time),
+ * latencyP50Micros and latencyP99Micros (send to receive, upper bounds of
+ * power-of-two buckets, see Metrics), peakHeapMb, peakThreads and
+ * timeToStartMs (creating and starting all nodes).
+ *
+ * alltoall and pingpong send about --messages messages in total (at least
+ * one round, which for alltoall is nodes^2 messages). Every alltoall node
+ * broadcasts all its rounds before receiving, so a round sits in the
+ * mailboxes at once; above ALLTOALL_MAX_NODES the run is skipped and
+ * reported with status "skipped" and the reason. Node counts start at 2.
+ *
+ * Usage: ScenarioBenchmark [--out file] [--scenarios ring,ap,...]
+ * [--nodes 10,100,...] [--messages n] [--seconds s] [--timeout s]
+ * [--label text] [--jvm option]...
+ */
+public class ScenarioBenchmark {
+
+    static final String[] SCENARIOS = { "ring", "ap", "ca", "cp", "alltoall", "pingpong" };
+    static final int[] NODES = { 10, 100, 1_000, 10_000, 100_000 };
+    // One round of 3000 nodes is about 9 million buffered messages
+    static final int ALLTOALL_MAX_NODES = 3_000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--run")) {
+            runScenario(args[1], Integer.parseInt(args[2]), Long.parseLong(args[3]), Integer.parseInt(args[4]),
+                    Path.of(args[5]));
+            return;
+        }
+        Path out = Path.of("scenario-benchmark.json");
+        String[] scenarios = SCENARIOS;
+        int[] nodeCounts = NODES;
+        long messages = 1_000_000;
+        int seconds = 10;
+        long timeout = 300;
+        String label = "";
+        List<String> jvmOptions = new ArrayList<>();
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--out" -> out = Path.of(value);
+                case "--scenarios" -> scenarios = value.split(",");
+                case "--nodes" -> {
+                    String[] parts = value.split(",");
+                    nodeCounts = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        nodeCounts[j] = Integer.parseInt(parts[j].trim());
+                        if (nodeCounts[j] < 2) {
+                            throw new IllegalArgumentException("Every scenario needs at least 2 nodes");
+                        }
+                    }
+                }
+                case "--messages" -> messages = Long.parseLong(value);
+                case "--seconds" -> seconds = Integer.parseInt(value);
+                case "--timeout" -> timeout = Long.parseLong(value);
+                case "--label" -> label = value;
+                case "--jvm" -> jvmOptions.add(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", label);
+        report.put("timestamp", Instant.now().toString());
+        report.put("java", System.getProperty("java.version"));
+        report.put("processors", Runtime.getRuntime().availableProcessors());
+        report.put("jvmOptions", jvmOptions);
+        List<Map<String, Object>> runs = new ArrayList<>();
+        report.put("runs", runs);
+        for (String scenario : scenarios) {
+            for (int nodes : nodeCounts) {
+                Map<String, Object> run = fork(scenario, nodes, messages, seconds, timeout, jvmOptions);
+                runs.add(run);
+                System.out.printf("%-9s %7d nodes: %-8s %12s msgs/s  p50 %8s us  p99 %8s us  heap %6s MB  "
+                        + "threads %6s  start %7s ms%n", scenario, nodes, run.get("status"),
+                        format(run.get("messagesPerSecond")), run.getOrDefault("latencyP50Micros", "-"),
+                        run.getOrDefault("latencyP99Micros", "-"), run.getOrDefault("peakHeapMb", "-"),
+                        run.getOrDefault("peakThreads", "-"), run.getOrDefault("timeToStartMs", "-"));
+                // Keep what we have in case a later run takes the machine down
+                MAPPER.writeValue(out.toFile(), report);
+            }
+        }
+        System.out.println("Results written to " + out);
+    }
+
+    private static String format(Object value) {
+        return value instanceof Number n ? String.format("%.0f", n.doubleValue()) : "-";
+    }
+
+    /**
+     * Run one scenario in a child JVM and read its result.
+     */
+    private static Map<String, Object> fork(String scenario, int nodes, long messages, int seconds, long timeout,
+            List<String> jvmOptions) throws IOException, InterruptedException {
+        if (scenario.equals("alltoall") && nodes > ALLTOALL_MAX_NODES) {
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("scenario", scenario);
+            run.put("nodes", nodes);
+            run.put("status", "skipped");
+            run.put("reason", "One round is " + (long) nodes * (nodes - 1)
+                    + " messages, buffered in the mailboxes at once; the limit is " + ALLTOALL_MAX_NODES + " nodes");
+            return run;
+        }
+        Path result = Files.createTempFile("sim4da-scenario", ".json");
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ScenarioBenchmark.class.getName());
+        command.add("--run");
+        command.add(scenario);
+        command.add(String.valueOf(nodes));
+        command.add(String.valueOf(messages));
+        command.add(String.valueOf(seconds));
+        command.add(result.toString());
+        // The scenarios print a lot; only the result file matters
+        Process p = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        Map<String, Object> run = new LinkedHashMap<>();
+        try {
+            if (!p.waitFor(timeout, TimeUnit.SECONDS)) {
+                p.destroyForcibly().waitFor();
+                run.put("status", "timeout");
+            } else if (Files.size(result) > 0) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> read = MAPPER.readValue(result.toFile(), Map.class);
+                run.putAll(read);
+            } else {
+                run.put("status", "failed");
+                run.put("exitCode", p.exitValue());
+            }
+        } finally {
+            Files.deleteIfExists(result);
+        }
+        run.putIfAbsent("scenario", scenario);
+        run.putIfAbsent("nodes", nodes);
+        return run;
+    }
+
+    /**
+     * Child JVM: run the scenario and write the result to file.
+     */
+    private static void runScenario(String scenario, int nodes, long messages, int seconds, Path file)
+            throws IOException {
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("scenario", scenario);
+        run.put("nodes", nodes);
+        try {
+            SimulationBehavior.setMetricsEnabled(true);
+            Metrics.setLinksEnabled(false);
+            Simulator simulator = Simulator.getInstance();
+
+            long begin = System.nanoTime();
+            List<DSMNode> dsm = create(scenario, nodes, messages, seconds);
+            long started = System.nanoTime();
+            if (dsm.isEmpty()) {
+                simulator.simulate();
+            } else {
+                simulateDsm(simulator, dsm, seconds);
+            }
+            long finished = System.nanoTime();
+
+            long received = 0;
+            long[] latency = new long[Histogram.BUCKETS];
+            for (NodeMetrics m : Metrics.nodes()) {
+                received += m.getReceived();
+                long[] c = m.transitTime().counts();
+                for (int i = 0; i < c.length; i++) {
+                    latency[i] += c[i];
+                }
+            }
+            double simulated = (finished - started) / 1e9;
+            run.put("status", "ok");
+            run.put("messages", received);
+            run.put("seconds", simulated);
+            run.put("messagesPerSecond", received / Math.max(simulated, 1e-9));
+            run.put("latencyP50Micros", Histogram.quantileNanos(latency, 0.5) / 1000);
+            run.put("latencyP99Micros", Histogram.quantileNanos(latency, 0.99) / 1000);
+            run.put("peakHeapMb", peakHeapMb());
+            run.put("peakThreads", ManagementFactory.getThreadMXBean().getPeakThreadCount());
+            run.put("timeToStartMs", (started - begin) / 1_000_000);
+        } catch (Throwable t) {
+            run.put("status", "failed");
+            run.put("error", t.toString());
+        }
+        MAPPER.writeValue(file.toFile(), run);
+        // Node threads blocked in receive would otherwise keep the JVM alive
+        System.exit(0);
+    }
+
+    /**
+     * Create the nodes of a scenario; returns the DSM nodes, which need to
+     * be shut down after the run.
+     */
+    private static List<DSMNode> create(String scenario, int nodes, long messages, int seconds) {
+        List<DSMNode> dsm = new ArrayList<>();
+        switch (scenario) {
+            case "ring" -> new OneRingToRuleThemAll(nodes).setUp();
+            case "ap", "ca", "cp" -> {
+                DSMNode.simulationDurationSec = seconds;
+                DSMNode.simulateNetworkLatency = false;
+                DSMNode.simulateNetworkPartitions = false;
+                DSMNode.minPauseMs = 100;
+                DSMNode.maxPauseMs = 500;
+                CPNode.approvalsNeeded = nodes / 2 + 1;
+                for (int i = 0; i < nodes; i++) {
+                    String name = scenario.equals("ca") && i == 0 ? "Coordinator" : "Node" + i;
+                    dsm.add(switch (scenario) {
+                        case "ap" -> new APNode(name);
+                        case "ca" -> new CANode(name);
+                        default -> new CPNode(name);
+                    });
+                }
+            }
+            case "alltoall" -> {
+                long rounds = Math.max(1, messages / ((long) nodes * (nodes - 1)));
+                for (int i = 0; i < nodes; i++) {
+                    new AllToAllNode("N" + i, rounds, nodes);
+                }
+            }
+            case "pingpong" -> {
+                long rounds = Math.max(1, messages / nodes);
+                for (int i = 0; i < nodes; i++) {
+                    // An odd last node has no partner and stays idle
+                    int partner = (i ^ 1) < nodes ? i ^ 1 : -1;
+                    new PingPongNode(i, partner, rounds);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown scenario " + scenario);
+        }
+        return dsm;
+    }
+
+    /**
+     * As in DSMTest: the DSM nodes run until they are stopped.
+     */
+    private static void simulateDsm(Simulator simulator, List<DSMNode> nodes, int seconds) {
+        Thread simulation = new Thread(() -> simulator.simulate(seconds));
+        simulation.start();
+        try {
+            Thread.sleep(seconds * 1000L);
+            for (DSMNode node : nodes) {
+                node.isAlive = false;
+                node.shutdown();
+            }
+            simulation.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long peakHeapMb() {
+        long bytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                bytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return bytes / (1024 * 1024);
+    }
+
+    static class AllToAllNode extends Node {
+        AllToAllNode(String name, long rounds, int nodes) {
+            super(name);
+            this.rounds = rounds;
+            this.nodes = nodes;
+        }
+
+        @Override
+        protected void engage() {
+            for (long r = 0; r < rounds; r++) {
+                broadcast(new Message().add("round", (int) r));
+            }
+            for (long i = 0; i < rounds * (nodes - 1); i++) {
+                if (receive() == null) {
+                    return;
+                }
+            }
+        }
+
+        private final long rounds;
+        private final int nodes;
+    }
+
+    static class PingPongNode extends Node {
+        PingPongNode(int id, int partner, long rounds) {
+            super("N" + id);
+            this.partner = partner < 0 ? null : "N" + partner;
+            this.pinger = id % 2 == 0;
+            this.rounds = rounds;
+        }
+
+        @Override
+        protected void engage() {
+            if (partner == null) {
+                return;
+            }
+            for (long r = 0; r < rounds; r++) {
+                if (pinger) {
+                    sendBlindly(new Message().add("type", "PING"), partner);
+                    if (receive() == null) {
+                        return;
+                    }
+                } else {
+                    if (receive() == null) {
+                        return;
+                    }
+                    sendBlindly(new Message().add("type", "PONG"), partner);
+                }
+            }
+        }
+
+        private final String partner;
+        private final boolean pinger;
+        private final long rounds;
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+}
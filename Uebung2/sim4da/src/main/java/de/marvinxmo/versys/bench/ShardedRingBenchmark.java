@@ -0,0 +1,65 @@
+package de.marvinxmo.versys.bench;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.Node;
+import de.marvinxmo.versys.shard.NodeFactory;
+import de.marvinxmo.versys.shard.ShardReport;
+import de.marvinxmo.versys.shard.ShardWorker;
+import de.marvinxmo.versys.shard.ShardedSimulator;
+
+/**
+ * Sharded simulation of a ring: every node streams messages to its
+ * successor and receives as many from its predecessor. Only the nodes at
+ * the block boundaries talk across shards, so this mostly measures how the
+ * node count scales with the number of worker JVMs.
+ *
+ * Usage: ShardedRingBenchmark [shards] [nodes] [messagesPerNode] [heapPerShard]
+ */
+public class ShardedRingBenchmark {
+
+    static int messages = Integer.getInteger("sim4da.ring.messages", 1000);
+
+    public static class RingFactory implements NodeFactory {
+        @Override
+        public void create(int id, int nodes) {
+            new RingNode(id, (id + 1) % nodes);
+        }
+    }
+
+    static class RingNode extends Node {
+        RingNode(int id, int successor) {
+            super("N" + id);
+            this.successor = "N" + successor;
+        }
+
+        @Override
+        protected void engage() {
+            for (int i = 0; i < messages; i++) {
+                sendBlindly(new Message().add("seq", i), successor);
+            }
+            for (int i = 0; i < messages; i++) {
+                if (receive() == null) {
+                    return;
+                }
+                ShardWorker.count("received", 1);
+            }
+        }
+
+        private final String successor;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int shards = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int nodes = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int perNode = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        String heap = args.length > 3 ? args[3] : "512m";
+        ShardReport report = new ShardedSimulator(RingFactory.class, shards, nodes)
+                .jvmOption("-Xmx" + heap)
+                .jvmOption("-Dsim4da.ring.messages=" + perNode)
+                .run(0);
+        System.out.println(report);
+        long ms = report.max("simulateMs");
+        System.out.printf("%d nodes on %d shards: %d messages in %d ms, %.0f msgs/s%n", nodes, shards,
+                report.total("received"), ms, report.total("received") * 1000.0 / Math.max(1, ms));
+    }
+}
@@ -0,0 +1,118 @@
+package de.marvinxmo.versys.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.Node;
+import de.marvinxmo.versys.SimulationBehavior;
+import de.marvinxmo.versys.Simulator;
+import de.marvinxmo.versys.transport.MultiProcessTransport;
+import de.marvinxmo.versys.transport.NameService;
+import de.marvinxmo.versys.transport.SharedMemoryTransport;
+import de.marvinxmo.versys.transport.SocketTransport;
+
+/**
+ * Throughput of the multi-process transports (socket or shared memory) with
+ * nodes spread over several JVMs.
+ *
+ * The parent starts a name service and one child JVM per process. Nodes are
+ * numbered across all processes so that every node's successor lives in the
+ * next process. Each node streams its messages to the successor and then
+ * receives as many from its predecessor, so every message crosses a process
+ * boundary (with more than one process).
+ *
+ * Usage: TransportBenchmark [socket|shm] [processes] [nodesPerProcess] [messagesPerNode]
+ */
+public class TransportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            child(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                    Integer.parseInt(args[5]), Integer.parseInt(args[6]));
+            return;
+        }
+        String kind = args.length > 0 ? args[0] : "socket";
+        int processes = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int nodesPerProcess = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int messages = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+        String shm = null;
+        if (kind.equals("shm")) {
+            Path file = Files.createTempFile(Path.of(Files.isDirectory(Path.of("/dev/shm")) ? "/dev/shm"
+                    : System.getProperty("java.io.tmpdir")), "sim4da-", ".rings");
+            file.toFile().deleteOnExit();
+            shm = file.toString();
+        }
+
+        NameService ns = new NameService(0);
+        ns.start();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> children = new ArrayList<>();
+        for (int i = 0; i < processes; i++) {
+            children.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    TransportBenchmark.class.getName(), "child", shm == null ? "socket" : shm,
+                    String.valueOf(ns.port()), String.valueOf(i),
+                    String.valueOf(processes), String.valueOf(nodesPerProcess), String.valueOf(messages))
+                    .inheritIO().start());
+        }
+        for (Process p : children) {
+            p.waitFor();
+        }
+        ns.close();
+    }
+
+    static void child(String kind, int nsPort, int index, int processes, int nodesPerProcess, int messages)
+            throws Exception {
+        Simulator simulator = Simulator.getInstance();
+        MultiProcessTransport transport = kind.equals("socket") ? SocketTransport.connect(nsPort)
+                : SharedMemoryTransport.open(Path.of(kind), processes, index, nsPort);
+        SimulationBehavior.setTransport(transport);
+        int total = processes * nodesPerProcess;
+        for (int j = 0; j < nodesPerProcess; j++) {
+            int id = j * processes + index;
+            new StreamNode(id, (id + 1) % total, messages);
+        }
+        if (!transport.awaitNodes(total, 30_000)) {
+            throw new IllegalStateException("Not all nodes registered in time");
+        }
+        long begin = System.nanoTime();
+        simulator.simulate();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        simulator.shutdown();
+        long sent = (long) nodesPerProcess * messages;
+        System.out.printf("process %d: %d nodes, %d messages sent and received in %.2f s, %.0f msgs/s%n",
+                index, nodesPerProcess, sent, seconds, sent / seconds);
+        System.exit(0);
+    }
+
+    static class StreamNode extends Node {
+        StreamNode(int id, int successor, int messages) {
+            super("N" + id);
+            this.successor = "N" + successor;
+            this.messages = messages;
+        }
+
+        @Override
+        protected void engage() {
+            for (int i = 0; i < messages; i++) {
+                sendBlindly(new Message().add("seq", i), successor);
+            }
+            for (int i = 0; i < messages; i++) {
+                Message m = receive();
+                if (m == null) {
+                    break;
+                }
+                if (m.queryInteger("seq") != i) {
+                    throw new IllegalStateException(NodeName() + " received seq " + m.query("seq")
+                            + " instead of " + i);
+                }
+            }
+        }
+
+        private final String successor;
+        private final int messages;
+    }
+}
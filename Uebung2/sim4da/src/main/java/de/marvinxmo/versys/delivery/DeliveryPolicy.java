@@ -0,0 +1,81 @@
+package de.marvinxmo.versys.delivery;
+
+import de.marvinxmo.versys.Envelope;
+
+/**
+ * Decides in which order the queued messages of a node are received.
+ *
+ * A policy instance belongs to exactly one mailbox and is only accessed by
+ * one thread at a time, so implementations need no synchronization. Every
+ * implementation selects and removes in O(1) or O(log n) of the queue length.
+ */
+public interface DeliveryPolicy {
+
+    void add(Envelope envelope);
+
+    /**
+     * Remove and return the next message to receive, or null if empty.
+     */
+    Envelope next();
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * True if messages leave in arrival order. Mailboxes may then skip the
+     * policy entirely.
+     */
+    default boolean isFifo() {
+        return false;
+    }
+
+    static DeliveryPolicy fifo() {
+        return new FifoPolicy();
+    }
+
+    /**
+     * Uniformly random message out of the whole queue.
+     */
+    static DeliveryPolicy random() {
+        return new RandomPolicy();
+    }
+
+    /**
+     * Uniformly random message out of the oldest `window` queued messages.
+     */
+    static DeliveryPolicy reorderWindow(int window) {
+        return new ReorderWindowPolicy(window);
+    }
+
+    /**
+     * Message with the earliest send time first.
+     */
+    static DeliveryPolicy oldestFirst() {
+        return new OldestFirstPolicy();
+    }
+
+    /**
+     * One message per sender in turn, FIFO per sender.
+     */
+    static DeliveryPolicy roundRobinPerSender() {
+        return new RoundRobinPolicy();
+    }
+
+    /**
+     * Messages in the given order of senders and send sequence numbers, as
+     * recorded in an EventLog.
+     */
+    static DeliveryPolicy replay(String[] senders, int[] seqs) {
+        return new ReplayPolicy(senders, seqs);
+    }
+
+    /**
+     * Selection by position as done by SimulationBehavior.selectMessageInQueue.
+     */
+    static DeliveryPolicy distribution() {
+        return new DistributionPolicy();
+    }
+}
@@ -0,0 +1,92 @@
+package de.marvinxmo.versys.delivery;
+
+import de.marvinxmo.versys.Envelope;
+import de.marvinxmo.versys.SimulationBehavior;
+
+/**
+ * Selects the k-th queued message with k drawn by
+ * SimulationBehavior.selectMessageInQueue, i.e. the same semantics as the
+ * original ArrayList queue.
+ *
+ * Messages stay in arrival order in a slot array; a Fenwick tree over the
+ * occupied slots finds the k-th live message and removes it in O(log n)
+ * instead of shifting the array.
+ */
+class DistributionPolicy implements DeliveryPolicy {
+
+    @Override
+    public void add(Envelope envelope) {
+        if (end == slots.length) {
+            rebuild(size * 2 > slots.length ? slots.length * 2 : slots.length);
+        }
+        slots[end] = envelope;
+        update(end, 1);
+        end++;
+        size++;
+    }
+
+    @Override
+    public Envelope next() {
+        if (size == 0) {
+            return null;
+        }
+        int slot = findKth(SimulationBehavior.selectMessageInQueue(size));
+        Envelope selected = slots[slot];
+        slots[slot] = null;
+        update(slot, -1);
+        size--;
+        return selected;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Fenwick tree is 1-based internally
+    private void update(int slot, int delta) {
+        for (int i = slot + 1; i <= slots.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Slot of the k-th (0-based) occupied position
+    private int findKth(int k) {
+        int pos = 0;
+        int remaining = k + 1;
+        for (int step = Integer.highestOneBit(slots.length); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= slots.length && tree[next] < remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        return pos; // 1-based pos + 1 - 1
+    }
+
+    // Compact live messages to the front, optionally with a larger capacity
+    private void rebuild(int capacity) {
+        Envelope[] compacted = new Envelope[capacity];
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            if (slots[i] != null) {
+                compacted[n++] = slots[i];
+            }
+        }
+        slots = compacted;
+        tree = new int[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            tree[i] += i <= n ? 1 : 0;
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                tree[parent] += tree[i];
+            }
+        }
+        end = n;
+    }
+
+    private Envelope[] slots = new Envelope[16]; // Length is a power of two
+    private int[] tree = new int[17];
+    private int end = 0;
+    private int size = 0;
+}
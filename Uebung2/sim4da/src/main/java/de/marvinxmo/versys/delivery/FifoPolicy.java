@@ -0,0 +1,30 @@
+package de.marvinxmo.versys.delivery;
+
+import java.util.ArrayDeque;
+
+import de.marvinxmo.versys.Envelope;
+
+class FifoPolicy implements DeliveryPolicy {
+
+    @Override
+    public void add(Envelope envelope) {
+        queue.addLast(envelope);
+    }
+
+    @Override
+    public Envelope next() {
+        return queue.pollFirst();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isFifo() {
+        return true;
+    }
+
+    private final ArrayDeque<Envelope> queue = new ArrayDeque<>();
+}
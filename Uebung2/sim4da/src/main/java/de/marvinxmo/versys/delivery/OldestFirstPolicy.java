@@ -0,0 +1,36 @@
+package de.marvinxmo.versys.delivery;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import de.marvinxmo.versys.Envelope;
+
+/**
+ * Binary heap ordered by send time, O(log n) per operation. Messages with
+ * the same send time leave in arrival order.
+ */
+class OldestFirstPolicy implements DeliveryPolicy {
+
+    private record Entry(Envelope envelope, long seq) {
+    }
+
+    @Override
+    public void add(Envelope envelope) {
+        heap.add(new Entry(envelope, seq++));
+    }
+
+    @Override
+    public Envelope next() {
+        Entry e = heap.poll();
+        return e == null ? null : e.envelope;
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>(
+            Comparator.comparingLong((Entry e) -> e.envelope.sendTime()).thenComparingLong(Entry::seq));
+    private long seq = 0;
+}
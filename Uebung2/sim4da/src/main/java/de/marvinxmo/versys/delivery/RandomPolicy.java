@@ -0,0 +1,43 @@
+package de.marvinxmo.versys.delivery;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import de.marvinxmo.versys.Envelope;
+import de.marvinxmo.versys.RandomStreams;
+
+/**
+ * Swap-remove array: the selected slot is filled with the last element, so
+ * both add and random removal are O(1).
+ */
+class RandomPolicy implements DeliveryPolicy {
+
+    @Override
+    public void add(Envelope envelope) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = envelope;
+    }
+
+    @Override
+    public Envelope next() {
+        if (size == 0) {
+            return null;
+        }
+        int i = random.nextInt(size);
+        Envelope selected = elements[i];
+        elements[i] = elements[--size];
+        elements[size] = null;
+        return selected;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private Envelope[] elements = new Envelope[16];
+    private int size = 0;
+    private final SplittableRandom random = RandomStreams.next();
+}
@@ -0,0 +1,68 @@
+package de.marvinxmo.versys.delivery;
+
+import java.util.SplittableRandom;
+
+import de.marvinxmo.versys.Envelope;
+import de.marvinxmo.versys.RandomStreams;
+
+/**
+ * Picks uniformly among the oldest `window` messages of a ring buffer.
+ * Removal shifts at most window - 1 elements, which is O(1) in the queue
+ * length, and messages outside the window keep their order.
+ */
+class ReorderWindowPolicy implements DeliveryPolicy {
+
+    ReorderWindowPolicy(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Reorder window must be >= 1");
+        }
+        this.window = window;
+    }
+
+    @Override
+    public void add(Envelope envelope) {
+        if (size == ring.length) {
+            grow();
+        }
+        ring[(head + size) & (ring.length - 1)] = envelope;
+        size++;
+    }
+
+    @Override
+    public Envelope next() {
+        if (size == 0) {
+            return null;
+        }
+        int mask = ring.length - 1;
+        int offset = random.nextInt(Math.min(window, size));
+        Envelope selected = ring[(head + offset) & mask];
+        // Close the gap by moving the older messages one slot up
+        for (int i = offset; i > 0; i--) {
+            ring[(head + i) & mask] = ring[(head + i - 1) & mask];
+        }
+        ring[head] = null;
+        head = (head + 1) & mask;
+        size--;
+        return selected;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        Envelope[] bigger = new Envelope[ring.length * 2];
+        for (int i = 0; i < size; i++) {
+            bigger[i] = ring[(head + i) & (ring.length - 1)];
+        }
+        ring = bigger;
+        head = 0;
+    }
+
+    private final int window;
+    private Envelope[] ring = new Envelope[16]; // Length is a power of two
+    private int head = 0;
+    private int size = 0;
+    private final SplittableRandom random = RandomStreams.next();
+}
@@ -0,0 +1,63 @@
+package de.marvinxmo.versys.delivery;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.marvinxmo.versys.Envelope;
+
+/**
+ * Hands out messages in a recorded order, identified by sender and send
+ * sequence number (the "sseq" header). A message that arrives early waits
+ * until it is its turn; the receiver blocks while the next recorded message
+ * has not arrived. Once the recording is used up, the rest is FIFO.
+ */
+class ReplayPolicy implements DeliveryPolicy {
+
+    private record Key(String sender, int seq) {
+    }
+
+    ReplayPolicy(String[] senders, int[] seqs) {
+        this.senders = senders;
+        this.seqs = seqs;
+    }
+
+    @Override
+    public void add(Envelope envelope) {
+        if (position >= seqs.length) {
+            rest.addLast(envelope);
+            return;
+        }
+        String seq = envelope.message().queryHeader("sseq");
+        waiting.put(new Key(envelope.message().queryHeader("sender"), seq == null ? -1 : Integer.parseInt(seq)),
+                envelope);
+    }
+
+    @Override
+    public Envelope next() {
+        if (position >= seqs.length) {
+            if (!waiting.isEmpty()) {
+                // Recording used up, keep the early ones in arrival order
+                rest.addAll(waiting.values());
+                waiting.clear();
+            }
+            return rest.pollFirst();
+        }
+        Envelope e = waiting.remove(new Key(senders[position], seqs[position]));
+        if (e != null) {
+            position++;
+        }
+        return e;
+    }
+
+    @Override
+    public int size() {
+        return waiting.size() + rest.size();
+    }
+
+    private final String[] senders;
+    private final int[] seqs;
+    private int position = 0;
+    private final Map<Key, Envelope> waiting = new LinkedHashMap<>();
+    private final ArrayDeque<Envelope> rest = new ArrayDeque<>();
+}
@@ -0,0 +1,53 @@
+package de.marvinxmo.versys.delivery;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.marvinxmo.versys.Envelope;
+import de.marvinxmo.versys.NetworkConnection;
+
+/**
+ * One FIFO queue per sender plus a rotation of the senders that currently
+ * have messages queued. Both add and next are O(1).
+ */
+class RoundRobinPolicy implements DeliveryPolicy {
+
+    @Override
+    public void add(Envelope envelope) {
+        ArrayDeque<Envelope> queue = perSender.get(envelope.sender());
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            perSender.put(envelope.sender(), queue);
+            rotation.addLast(queue);
+        }
+        queue.addLast(envelope);
+        size++;
+    }
+
+    @Override
+    public Envelope next() {
+        ArrayDeque<Envelope> queue = rotation.pollFirst();
+        if (queue == null) {
+            return null;
+        }
+        Envelope selected = queue.pollFirst();
+        if (queue.isEmpty()) {
+            perSender.remove(selected.sender());
+        } else {
+            rotation.addLast(queue);
+        }
+        size--;
+        return selected;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Keys may be null for messages injected without a sender
+    private final Map<NetworkConnection, ArrayDeque<Envelope>> perSender = new HashMap<>();
+    private final ArrayDeque<ArrayDeque<Envelope>> rotation = new ArrayDeque<>();
+    private int size = 0;
+}
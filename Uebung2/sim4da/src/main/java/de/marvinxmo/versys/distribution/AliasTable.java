@@ -0,0 +1,73 @@
+package de.marvinxmo.versys.distribution;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Walker's alias method (in Vose's numerically stable variant): picks an
+ * index with probability proportional to its weight in constant time.
+ * Building the table is O(n).
+ */
+class AliasTable {
+
+    AliasTable(double[] weights) {
+        int n = weights.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("Expected at least one weight");
+        }
+        double sum = 0;
+        for (double w : weights) {
+            if (!(w >= 0) || Double.isInfinite(w)) {
+                throw new IllegalArgumentException("Weights must be finite and not negative");
+            }
+            sum += w;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("Expected a positive weight");
+        }
+        probability = new double[n];
+        alias = new int[n];
+        // Scaled so the average is 1; small entries borrow from large ones
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] -= 1 - scaled[s];
+            if (scaled[l] < 1) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+        // Left-overs are 1 up to rounding errors
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+    }
+
+    int next(RandomGenerator random) {
+        // One draw gives both the column and the coin
+        double u = random.nextDouble() * probability.length;
+        int i = (int) u;
+        return u - i < probability[i] ? i : alias[i];
+    }
+
+    private final double[] probability;
+    private final int[] alias;
+}
@@ -0,0 +1,230 @@
+package de.marvinxmo.versys.distribution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+import java.util.random.RandomGenerator;
+
+import de.marvinxmo.versys.RandomStreams;
+
+/**
+ * Distribution of real values, e.g. latencies or pauses in milliseconds.
+ *
+ * Every sample takes constant time and allocates nothing: distributions
+ * without a cheap closed-form inverse are turned into lookup tables once,
+ * when they are created. sample is thread-safe as long as the generator is
+ * only used by one thread.
+ *
+ * Use with LatencyModel.of, DSMNode.pauseDistribution, or
+ * SimulationBehavior.setMessageQueueSelectionSampler (values in [0, 1]).
+ */
+public interface Distribution {
+
+    double sample(RandomGenerator random);
+
+    /**
+     * Lower bound of all samples, negative infinity if there is none.
+     */
+    default double min() {
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Sampler drawing from the RandomStreams of the calling thread.
+     */
+    default DoubleSupplier sampler() {
+        return () -> sample(RandomStreams.current());
+    }
+
+    static Distribution constant(double value) {
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random) {
+                return value;
+            }
+
+            @Override
+            public double min() {
+                return value;
+            }
+        };
+    }
+
+    static Distribution uniform(double min, double max) {
+        if (max < min) {
+            throw new IllegalArgumentException("Expected min <= max");
+        }
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random) {
+                return min + random.nextDouble() * (max - min);
+            }
+
+            @Override
+            public double min() {
+                return min;
+            }
+        };
+    }
+
+    static Distribution normal(double mean, double std) {
+        return random -> mean + std * random.nextGaussian();
+    }
+
+    /**
+     * Log-normal: the logarithm of the values is normal with mean mu and
+     * standard deviation sigma, so exp(mu) is the median.
+     */
+    static Distribution logNormal(double mu, double sigma) {
+        if (sigma < 0) {
+            throw new IllegalArgumentException("Sigma must not be negative");
+        }
+        return new InverseCdfTable(u -> Math.exp(mu + sigma * InverseCdfTable.normalQuantile(u)));
+    }
+
+    /**
+     * Pareto with the given scale (minimum value) and shape; heavy-tailed
+     * for small shapes. The inverse CDF is closed-form, no table is needed.
+     */
+    static Distribution pareto(double scale, double shape) {
+        if (scale <= 0 || shape <= 0) {
+            throw new IllegalArgumentException("Scale and shape must be positive");
+        }
+        double exponent = -1 / shape;
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random) {
+                // 1 - u is in (0, 1], so the power is finite
+                return scale * Math.pow(1 - random.nextDouble(), exponent);
+            }
+
+            @Override
+            public double min() {
+                return scale;
+            }
+        };
+    }
+
+    /**
+     * Mixture drawing from first with probability p and from second
+     * otherwise, e.g. fast local and slow remote replies.
+     */
+    static Distribution bimodal(double p, Distribution first, Distribution second) {
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException("Expected 0 <= p <= 1");
+        }
+        return mixture(new double[] { p, 1 - p }, first, second);
+    }
+
+    /**
+     * Mixture of components with the given weights (need not sum to 1).
+     */
+    static Distribution mixture(double[] weights, Distribution... components) {
+        if (weights.length != components.length) {
+            throw new IllegalArgumentException("Expected one weight per component");
+        }
+        AliasTable alias = new AliasTable(weights);
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < components.length; i++) {
+            if (weights[i] > 0) {
+                min = Math.min(min, components[i].min());
+            }
+        }
+        double lowest = min;
+        Distribution[] copy = components.clone();
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random) {
+                return copy[alias.next(random)].sample(random);
+            }
+
+            @Override
+            public double min() {
+                return lowest;
+            }
+        };
+    }
+
+    /**
+     * One of values, chosen with the given weights.
+     */
+    static Distribution discrete(double[] values, double[] weights) {
+        if (values.length != weights.length) {
+            throw new IllegalArgumentException("Expected one weight per value");
+        }
+        AliasTable alias = new AliasTable(weights);
+        double[] copy = values.clone();
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < copy.length; i++) {
+            if (weights[i] > 0) {
+                min = Math.min(min, copy[i]);
+            }
+        }
+        double lowest = min;
+        return new Distribution() {
+            @Override
+            public double sample(RandomGenerator random) {
+                return copy[alias.next(random)];
+            }
+
+            @Override
+            public double min() {
+                return lowest;
+            }
+        };
+    }
+
+    /**
+     * Empirical distribution of measured samples, interpolating linearly
+     * between neighbouring order statistics.
+     */
+    static Distribution empirical(double[] samples) {
+        if (samples.length == 0) {
+            throw new IllegalArgumentException("Expected at least one sample");
+        }
+        double[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return new InverseCdfTable(sorted);
+    }
+
+    /**
+     * Empirical distribution from a text file, e.g. measured latencies in
+     * milliseconds. Every line holds either one sample, or a value and its
+     * weight (a histogram). Empty lines and lines starting with # are
+     * skipped.
+     */
+    static Distribution load(Path file) throws IOException {
+        double[] values = new double[64];
+        double[] weights = new double[64];
+        int n = 0;
+        boolean weighted = false;
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file)) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("[\\s,;]+");
+            if (n == values.length) {
+                values = Arrays.copyOf(values, 2 * n);
+                weights = Arrays.copyOf(weights, 2 * n);
+            }
+            try {
+                values[n] = Double.parseDouble(fields[0]);
+                weights[n] = fields.length > 1 ? Double.parseDouble(fields[1]) : 1;
+            } catch (NumberFormatException e) {
+                throw new IOException(file + ":" + lineNumber + ": not a number", e);
+            }
+            weighted |= fields.length > 1;
+            n++;
+        }
+        if (n == 0) {
+            throw new IOException(file + " holds no samples");
+        }
+        return weighted ? discrete(Arrays.copyOf(values, n), Arrays.copyOf(weights, n))
+                : empirical(Arrays.copyOf(values, n));
+    }
+}
@@ -1,10 +1,13 @@
 package de.marvinxmo.versys.dsm.core;
 
-import java.util.Random;
 import java.util.concurrent.ExecutorService;
+import java.util.random.RandomGenerator;
 
 import de.marvinxmo.versys.Message;
 import de.marvinxmo.versys.Node;
+import de.marvinxmo.versys.RandomStreams;
+import de.marvinxmo.versys.distribution.Distribution;
+import de.marvinxmo.versys.jfr.DSMHandleEvent;
 
 /**
  * Enhanced base class for nodes that use Distributed Shared Memory
@@ -24,12 +27,18 @@ public abstract class DSMNode extends Node {
 
     public static int minPauseMs; // Minimum pause between read/write operations
     public static int maxPauseMs; // Maximum pause between read/write operations
+    // Pause in ms between read/write operations; null draws uniformly from
+    // [minPauseMs, maxPauseMs)
+    public static Distribution pauseDistribution;
+
+    public static boolean usePooledMessages; // Reuse messages, see MessagePool
 
     public boolean isAlive = true;
-    private Random random = new Random();
     public boolean isPartitioned = false;
     public ExecutorService executorService;
     public boolean messageProcessingEnabled = true;
+    // Simulator time in ms at which the current partition ends
+    protected volatile long partitionEndMillis = 0;
 
     // Configuration parameters
 
@@ -73,46 +82,47 @@ public abstract class DSMNode extends Node {
         return NodeName();
     }
 
-    public String getRandomKey() {
-        return KEYS_FOR_DSM[random.nextInt(KEYS_FOR_DSM.length)];
+    /**
+     * Random stream of this node for one task loop, derived from the global
+     * seed. Every loop uses its own, so their values do not depend on how
+     * the loops interleave.
+     */
+    protected RandomGenerator randomStream(String purpose) {
+        return RandomStreams.derive(getName() + "/" + purpose);
     }
 
-    public int getLatencyMs() {
-        if (simulateNetworkLatency) {
-            // Simulate network latency using a normal distribution
-            return (int) Math.max(0, Math.round(
-                    random.nextGaussian() * latencyStdMs + latencyMeanMs));
-        } else {
-            return 0; // No latency simulation
+    /**
+     * Pause before the next read/write operation, see pauseDistribution.
+     */
+    protected int nextPauseMs(RandomGenerator random) {
+        Distribution d = pauseDistribution;
+        if (d != null) {
+            // Heavy-tailed samples may exceed the int range of sleep
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, Math.round(d.sample(random))));
         }
+        return maxPauseMs > minPauseMs ? random.nextInt(minPauseMs, maxPauseMs) : minPauseMs;
+    }
+
+    public String getRandomKey(RandomGenerator random) {
+        return KEYS_FOR_DSM[random.nextInt(KEYS_FOR_DSM.length)];
     }
 
     public void messageProcessingLoop() {
 
         while (this.isAlive() && !Thread.currentThread().isInterrupted()) {
             try {
-                // Skip message processing if disabled (during partition)
-                if (!this.messageProcessingEnabled) {
-                    sleep(100); // Short wait when disabled
-                    if (!this.getName().equals("Coordinator")) {
-                        // If not Coordinator, continue to next iteration
-                        // Coordinator needs to receive to detect inconsistencies
-                        continue;
-                    }
-                }
-
-                Message message = null;
-                try {
-                    message = receive();
-                } catch (Exception e) {
-                    // Handle any receive exceptions
-                    if (Thread.currentThread().isInterrupted()) {
-                        break;
-                    }
+                // While partitioned, messages stay queued until the partition
+                // ends. The Coordinator keeps receiving to detect
+                // inconsistencies
+                if (!this.messageProcessingEnabled && !this.getName().equals("Coordinator")) {
+                    sleep((int) Math.max(1, partitionEndMillis - currentTimeMillis()));
                     continue;
                 }
 
-                if (Thread.currentThread().isInterrupted() || !this.isAlive()) {
+                // Blocks until a message arrives; null only when interrupted
+                Message message = receive();
+
+                if (message == null || Thread.currentThread().isInterrupted() || !this.isAlive()) {
                     break;
                 }
 
@@ -120,13 +130,17 @@ public abstract class DSMNode extends Node {
                     continue;
                 }
 
-                if (message == null) {
-                    sleep(10); // Small delay to prevent busy waiting
-                    continue;
-                }
-
                 // Process the message
+                DSMHandleEvent event = new DSMHandleEvent();
+                if (event.isEnabled()) {
+                    // Before handling: the handler may release a pooled message
+                    event.sender = message.queryHeader("sender");
+                    event.receiver = getName();
+                    event.type = message.type();
+                }
+                event.begin();
                 handleIncomingMessage(message);
+                event.commit();
 
             } catch (Exception e) {
                 System.err.printf("[%s] Error in message processing loop: %s%n",
@@ -147,21 +161,18 @@ public abstract class DSMNode extends Node {
     public void partitionControl() {
 
         try {
+            RandomGenerator random = randomStream("partition");
 
-            boolean shouldBePartitioned = simulateNetworkPartitions && Math.random() < partitionProbability;
+            boolean shouldBePartitioned = simulateNetworkPartitions && random.nextDouble() < partitionProbability;
 
             if (!shouldBePartitioned) {
                 return;
             }
 
             // Wait for random interval before considering partition
-            int waitTime = new Random().nextInt(1000,
+            int waitTime = random.nextInt(1000,
                     (int) (DSMNode.simulationDurationSec - DSMNode.partitionDurationSec - 1) * 1000);
-            try {
-                Thread.sleep(waitTime);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            sleep(waitTime);
 
             if (!this.isAlive() || Thread.currentThread().isInterrupted()) {
                 return;
@@ -187,12 +198,13 @@ public abstract class DSMNode extends Node {
     public void triggerNetworkPartition() {
         System.out.printf("[%s] *** NETWORK PARTITION STARTED ***%n", getName());
 
-        // Disable message processing
-        this.messageProcessingEnabled = false;
-
         // Calculate partition duration
         int partitionDurationMs = (int) (partitionDurationSec * 1000);
 
+        // Disable message processing
+        this.partitionEndMillis = currentTimeMillis() + partitionDurationMs;
+        this.messageProcessingEnabled = false;
+
         try {
             sleep(partitionDurationMs);
             endNetworkPartition();
@@ -0,0 +1,31 @@
+package de.marvinxmo.versys.dsm.messages;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageBody;
+import de.marvinxmo.versys.MessageSchema;
+
+/**
+ * Write of an AP node, gossiped to all other nodes.
+ */
+public record WritePropagation(String key, String value, long timestamp, String originNodeId) implements MessageBody {
+
+    public static final String TYPE = "WRITE_PROPAGATION";
+
+    public static final MessageSchema<WritePropagation> SCHEMA = MessageSchema.of(TYPE, WritePropagation.class,
+            m -> new WritePropagation(m.query("key"), m.query("value"),
+                    Long.parseLong(m.query("timestamp")), m.query("originNodeId")));
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void writeTo(Message message) {
+        message.add("type", TYPE);
+        message.add("key", key);
+        message.add("value", value);
+        message.add("timestamp", String.valueOf(timestamp));
+        message.add("originNodeId", originNodeId);
+    }
+}
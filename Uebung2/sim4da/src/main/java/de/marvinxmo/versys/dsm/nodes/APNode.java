@@ -2,14 +2,16 @@ package de.marvinxmo.versys.dsm.nodes;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.random.RandomGenerator;
 
 import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessagePool;
+import de.marvinxmo.versys.Simulator;
 import de.marvinxmo.versys.dsm.core.DSMNode;
+import de.marvinxmo.versys.dsm.messages.WritePropagation;
 import de.marvinxmo.versys.utils.ColorPrinter;
 import de.marvinxmo.versys.utils.RandomString;
 
@@ -26,6 +28,8 @@ import de.marvinxmo.versys.utils.RandomString;
  */
 public class APNode extends DSMNode {
 
+    private static final MessagePool messagePool = new MessagePool();
+
     private final Map<String, VersionedValue> localStorage;
     private final AtomicBoolean running;
 
@@ -38,7 +42,7 @@ public class APNode extends DSMNode {
     public APNode(String name) {
         super(name);
         this.localStorage = new ConcurrentHashMap<>();
-        this.executorService = Executors.newFixedThreadPool(4); // Increased to 4 for message processing
+        this.executorService = Simulator.getInstance().newExecutorService(4); // Increased to 4 for message processing
         this.running = new AtomicBoolean(false);
     }
 
@@ -69,26 +73,26 @@ public class APNode extends DSMNode {
      * Handle incoming messages and update local storage
      */
     public void handleIncomingMessage(Message message) {
-        String messageType = message.query("type");
+        String messageType = message.type();
 
-        if ("WRITE_PROPAGATION".equals(messageType)) {
-            handleWritePropagation(message);
+        if (WritePropagation.TYPE.equals(messageType)) {
+            handleWritePropagation(message.body(WritePropagation.SCHEMA));
         } else {
             System.out.printf("[%s] Received unsupported message type: %s%n",
                     getName(), messageType);
         }
+        message.release();
     }
 
     /**
      * Handle write propagation messages and update local storage
      */
-    private void handleWritePropagation(Message message) {
+    private void handleWritePropagation(WritePropagation write) {
         try {
-            String key = message.query("key");
-            String value = message.query("value");
-            String timestampStr = message.query("timestamp");
-            long timestamp = Long.parseLong(timestampStr);
-            String originNodeId = message.query("originNodeId");
+            String key = write.key();
+            String value = write.value();
+            long timestamp = write.timestamp();
+            String originNodeId = write.originNodeId();
 
             // Update local storage with the new value if it's more recent
             VersionedValue currentValue = localStorage.get(key);
@@ -134,56 +138,50 @@ public class APNode extends DSMNode {
     }
 
     public void randomWriteLoop() {
+        RandomGenerator random = randomStream("write");
+        RandomString values = new RandomString(8, random);
 
         while (this.isAlive() && !Thread.currentThread().isInterrupted()) {
             try {
                 // Random pause before operation
-                int pauseMillis = new Random().nextInt(DSMNode.minPauseMs, DSMNode.maxPauseMs);
+                int pauseMillis = nextPauseMs(random);
                 sleep(pauseMillis);
 
                 if (Thread.currentThread().isInterrupted() || !this.isAlive()) {
                     break;
                 }
 
-                String key = this.getRandomKey();
+                String key = getRandomKey(random);
                 VersionedValue prev_value = localStorage.get(key);
                 VersionedValue new_value;
-                String rstr = new RandomString(8).nextString();
+                String rstr = values.nextString();
 
                 if (prev_value == null) {
-                    new_value = new VersionedValue(rstr, System.currentTimeMillis(), getName());
+                    new_value = new VersionedValue(rstr, currentTimeMillis(), getName());
                 } else {
-                    new_value = new VersionedValue(rstr, System.currentTimeMillis(), getName());
+                    new_value = new VersionedValue(rstr, currentTimeMillis(), getName());
                 }
 
                 // Always perform local write (AP model)
                 localStorage.put(key, new_value);
                 Boolean broadcasted = false;
-                int latency = 0;
-                latency = this.getLatencyMs();
 
                 System.out.printf(
-                        "[%s] WRITE: %s = %s (timestamp: %d) [Partitioned: %s] [try to broadcast with latency %d] %n",
-                        getName(), key, new_value.value, new_value.timestamp, !this.messageProcessingEnabled,
-                        latency);
+                        "[%s] WRITE: %s = %s (timestamp: %d) [Partitioned: %s] [try to broadcast] %n",
+                        getName(), key, new_value.value, new_value.timestamp, !this.messageProcessingEnabled);
 
                 // Try to broadcast (will fail during partition due to disabled message
                 // processing)
                 if (this.messageProcessingEnabled) {
 
                     try {
-                        Message message = new Message();
-                        message.add("type", "WRITE_PROPAGATION");
-                        message.add("key", key);
-                        message.add("value", String.valueOf(new_value.value));
-                        message.add("timestamp", String.valueOf(new_value.timestamp));
-                        message.add("originNodeId", getName());
-
-                        sleep(latency);
+                        WritePropagation write = new WritePropagation(key, new_value.value,
+                                new_value.timestamp, getName());
+                        Message message = usePooledMessages ? messagePool.acquire(write) : new Message(write);
 
+                        // Network latency is applied per receiver by the Network
                         broadcast(message);
-                        System.out.printf("[%s] Broadcasted write propagation for %s with delay of %d ms %n", getName(),
-                                key, latency);
+                        System.out.printf("[%s] Broadcasted write propagation for %s%n", getName(), key);
                         broadcasted = true;
 
                     } catch (Exception broadcastError) {
@@ -211,18 +209,19 @@ public class APNode extends DSMNode {
     }
 
     public void randomReadLoop() {
+        RandomGenerator random = randomStream("read");
 
         while (this.isAlive() && !Thread.currentThread().isInterrupted()) {
             try {
                 // Random pause before operation
-                int pauseMillis = new Random().nextInt(DSMNode.minPauseMs, DSMNode.maxPauseMs);
+                int pauseMillis = nextPauseMs(random);
                 sleep(pauseMillis);
 
                 if (Thread.currentThread().isInterrupted() || !this.isAlive()) {
                     break;
                 }
 
-                String key = this.getRandomKey();
+                String key = getRandomKey(random);
                 VersionedValue read = localStorage.get(key);
 
                 boolean partitioned = !this.messageProcessingEnabled;
@@ -235,7 +234,7 @@ public class APNode extends DSMNode {
 
                 // Check for potential stale read during partition
                 if (partitioned && read.timestamp > 0) {
-                    long timeSinceWrite = System.currentTimeMillis() - read.timestamp;
+                    long timeSinceWrite = currentTimeMillis() - read.timestamp;
                     if (timeSinceWrite > 10000) { // 10 seconds old
                         ColorPrinter.printRed(String.format(
                                 "[%s] AP INCONSISTENCY DETECTED: Potentially stale read during partition - " +
@@ -1,14 +1,19 @@
 package de.marvinxmo.versys.dsm.nodes;
 
+import java.time.Duration;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.random.RandomGenerator;
 
 import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.Simulator;
 import de.marvinxmo.versys.dsm.core.DSMNode;
+import de.marvinxmo.versys.dsm.messages.CoordinatorWriteRequest;
 import de.marvinxmo.versys.utils.ColorPrinter;
 import de.marvinxmo.versys.utils.RandomString;
 
@@ -27,7 +32,8 @@ public class CANode extends DSMNode {
 
     // This is the DSMs data storage
     public Map<String, VersionedValue> storage;
-    public Message lastCoordinatorResponse;
+    // A coordinator that is partitioned never answers
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(2);
 
     private final AtomicBoolean running;
 
@@ -39,7 +45,7 @@ public class CANode extends DSMNode {
 
     public CANode(String name) {
         super(name);
-        this.executorService = Executors.newFixedThreadPool(4); // Increased to 4 for message processing
+        this.executorService = Simulator.getInstance().newExecutorService(4); // Increased to 4 for message processing
         this.running = new AtomicBoolean(false);
         this.storage = new ConcurrentHashMap<>();
 
@@ -78,12 +84,7 @@ public class CANode extends DSMNode {
      */
     public void handleIncomingMessage(Message message) {
 
-        String messageType = message.query("type");
-
-        if ("COORDINATOR_READ_RESPONSE".equals(messageType)) {
-            this.lastCoordinatorResponse = message;
-            return;
-        }
+        String messageType = message.type();
 
         if (!this.getName().equals("Coordinator")) {
             System.out.printf("[%s] Ignoring message - only Coordinator should get read/write requests %n", getName());
@@ -97,8 +98,8 @@ public class CANode extends DSMNode {
             return;
         }
 
-        if ("COORDINATOR_WRITE_REQUEST".equals(messageType)) {
-            handleCoordinatorWrite(message);
+        if (CoordinatorWriteRequest.TYPE.equals(messageType)) {
+            handleCoordinatorWrite(message.body(CoordinatorWriteRequest.SCHEMA));
             return;
         }
 
@@ -116,14 +117,13 @@ public class CANode extends DSMNode {
     /**
      * Handle write propagation messages and update local storage
      */
-    private void handleCoordinatorWrite(Message message) {
+    private void handleCoordinatorWrite(CoordinatorWriteRequest write) {
 
         try {
-            String key = message.query("key");
-            String value = message.query("value");
-            String timestampStr = message.query("timestamp");
-            long timestamp = Long.parseLong(timestampStr);
-            String originNodeId = message.query("originNodeId");
+            String key = write.key();
+            String value = write.value();
+            long timestamp = write.timestamp();
+            String originNodeId = write.originNodeId();
 
             // Update local storage with the new value if it's more recent
             VersionedValue currentValue = storage.get(key);
@@ -159,7 +159,6 @@ public class CANode extends DSMNode {
     private void handleCoordinatorRead(Message message) {
         try {
             String qKey = message.query("key");
-            String fromNode = message.query("fromNode");
             VersionedValue requestedData = storage.get(qKey);
 
             if (requestedData != null) {
@@ -170,8 +169,8 @@ public class CANode extends DSMNode {
                 response.add("timestamp", String.valueOf(requestedData.timestamp));
                 response.add("originNodeId", String.valueOf(requestedData.lastUpdater));
 
-                // Send the response back to the coordinator
-                send(response, fromNode);
+                // Send the response back to the reading node
+                reply(message, response);
             }
         } catch (Exception e) {
             System.err.printf("[%s] Error handling read request: %s%n",
@@ -180,26 +179,28 @@ public class CANode extends DSMNode {
     }
 
     public void randomWriteLoop() {
+        RandomGenerator random = randomStream("write");
+        RandomString values = new RandomString(8, random);
 
         while (this.isAlive() && !Thread.currentThread().isInterrupted()) {
             try {
                 // Random pause before operation
-                int pauseMillis = new Random().nextInt(DSMNode.minPauseMs, DSMNode.maxPauseMs);
+                int pauseMillis = nextPauseMs(random);
                 sleep(pauseMillis);
 
                 if (Thread.currentThread().isInterrupted() || !this.isAlive()) {
                     break;
                 }
 
-                String key = this.getRandomKey();
+                String key = getRandomKey(random);
                 VersionedValue prev_value = storage.get(key);
                 VersionedValue new_value;
-                String rstr = new RandomString(8).nextString();
+                String rstr = values.nextString();
 
                 if (prev_value == null) {
-                    new_value = new VersionedValue(rstr, System.currentTimeMillis(), getName());
+                    new_value = new VersionedValue(rstr, currentTimeMillis(), getName());
                 } else {
-                    new_value = new VersionedValue(rstr, System.currentTimeMillis(), getName());
+                    new_value = new VersionedValue(rstr, currentTimeMillis(), getName());
                 }
 
                 // Try to broadcast (will fail during partition due to disabled message
@@ -207,19 +208,12 @@ public class CANode extends DSMNode {
                 if (this.messageProcessingEnabled) {
 
                     try {
-                        Message message = new Message();
-                        message.add("type", "COORDINATOR_WRITE_REQUEST");
-                        message.add("key", key);
-                        message.add("value", String.valueOf(new_value.value));
-                        message.add("timestamp", String.valueOf(new_value.timestamp));
-                        message.add("originNodeId", getName());
-
-                        int latency = this.getLatencyMs();
+                        Message message = new Message(new CoordinatorWriteRequest(key, new_value.value,
+                                new_value.timestamp, getName()));
+
                         System.out.printf(
-                                "[%s] Send WRITE_REQUEST: %s = %s (timestamp: %d) [Partitioned: %s] [latency: %d] %n",
-                                getName(), key, new_value.value, new_value.timestamp, !this.messageProcessingEnabled,
-                                latency);
-                        sleep(latency);
+                                "[%s] Send WRITE_REQUEST: %s = %s (timestamp: %d) [Partitioned: %s] %n",
+                                getName(), key, new_value.value, new_value.timestamp, !this.messageProcessingEnabled);
 
                         send(message, "Coordinator");
 
@@ -247,23 +241,24 @@ public class CANode extends DSMNode {
     }
 
     public void randomReadLoop() {
+        RandomGenerator random = randomStream("read");
 
         while (this.isAlive() && !Thread.currentThread().isInterrupted()) {
             try {
                 // Random pause before operation
-                int pauseMillis = new Random().nextInt(DSMNode.minPauseMs, DSMNode.maxPauseMs);
+                int pauseMillis = nextPauseMs(random);
                 sleep(pauseMillis);
 
                 if (Thread.currentThread().isInterrupted() || !this.isAlive()) {
                     break;
                 }
 
-                String key = this.getRandomKey();
+                String key = getRandomKey(random);
 
                 Message message = new Message();
                 message.add("type", "COORDINATOR_READ_REQUEST");
                 message.add("key", key);
-                message.add("timestamp", String.valueOf(System.currentTimeMillis()));
+                message.add("timestamp", String.valueOf(currentTimeMillis()));
                 message.add("fromNode", getName());
 
                 boolean partitioned = !this.messageProcessingEnabled;
@@ -275,24 +270,26 @@ public class CANode extends DSMNode {
                     continue;
                 }
 
-                this.lastCoordinatorResponse = null; // Reset response before sending
+                // The response completes the call as soon as it lands
+                CompletableFuture<Message> call = call("Coordinator", message, READ_TIMEOUT);
+                System.out.println(String.format("[%s] Sent READ_REQUEST for key: %s",
+                        getName(), key, partitioned));
 
+                Message response;
                 try {
-                    send(message, "Coordinator");
-                    System.out.println(String.format("[%s] Sent READ_REQUEST for key: %s",
-                            getName(), key, partitioned));
-                } catch (Exception sendError) {
-                    System.err.printf("[%s] Read request send failed: %s%n", getName(), sendError.getMessage());
-                }
-
-                while (this.lastCoordinatorResponse == null) {
-                    sleep(100); // Wait for response
-                    if (Thread.currentThread().isInterrupted()) {
-                        return; // Exit if interrupted
+                    response = await(call);
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof TimeoutException) {
+                        System.out.printf("[%s] READ_REQUEST for key %s timed out%n", getName(), key);
+                    } else {
+                        System.err.printf("[%s] Read request send failed: %s%n", getName(),
+                                e.getCause().getMessage());
                     }
+                    continue;
+                }
+                if (response == null) {
+                    break; // Interrupted
                 }
-
-                Message response = this.lastCoordinatorResponse;
 
                 String value = response.query("value");
                 long timestamp = Long.parseLong(response.query("timestamp"));
@@ -302,8 +299,6 @@ public class CANode extends DSMNode {
                         "[%s] Sucessfully received READ_RESPONSE: %s = %s (written by %s at %d) [Partitioned: %s]%n",
                         getName(), key, value, lastUpdater, timestamp, partitioned);
 
-                this.lastCoordinatorResponse = null; // Reset for next read
-
             } catch (Exception e) {
                 System.err.printf("[%s] Read operation failed: %s%n", getName(), e.getMessage());
                 if (Thread.currentThread().isInterrupted()) {
@@ -3,15 +3,16 @@ package de.marvinxmo.versys.dsm.nodes;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.random.RandomGenerator;
 
 import de.marvinxmo.versys.Message;
 import de.marvinxmo.versys.NetworkConnection;
+import de.marvinxmo.versys.Simulator;
 import de.marvinxmo.versys.dsm.core.DSMNode;
+import de.marvinxmo.versys.jfr.QuorumWriteEvent;
 import de.marvinxmo.versys.utils.ColorPrinter;
 import de.marvinxmo.versys.utils.RandomString;
 
@@ -57,10 +58,8 @@ public class CPNode extends DSMNode {
             this.connection = new NetworkConnection(id);
 
             // Start the thread to listen for approval messages
-            Thread approvalListenerThread = new Thread(this::receiveApprovals);
-            approvalListenerThread.setName("Quorum-" + id + "-Approval-Thread");
-            approvalListenerThread.setDaemon(true); // Make it a daemon thread so it doesn't block program exit
-            approvalListenerThread.start();
+            // Daemon thread so it doesn't block program exit
+            Simulator.getInstance().startThread("Quorum-" + id + "-Approval-Thread", true, this::receiveApprovals);
 
             this.sendApprovalRequests();
 
@@ -137,13 +136,24 @@ public class CPNode extends DSMNode {
         }
 
         public void writeToDSM() {
-            if (approver.size() >= approvalsNeeded) {
+            QuorumWriteEvent event = new QuorumWriteEvent();
+            event.begin();
+            int approvals = approver.size();
+            if (approvals >= approvalsNeeded) {
 
-                VersionedValue newValueObj = new VersionedValue(newValue, System.currentTimeMillis(), this.initiator);
+                VersionedValue newValueObj = new VersionedValue(newValue, currentTimeMillis(), this.initiator);
                 storage.put(this.keyForEdit, newValueObj);
                 System.out.printf("[%s] Quorum %s wrote to DSM: %s = %s%n",
                         getName(), id, keyForEdit, newValue);
             }
+            if (event.shouldCommit()) {
+                event.node = getName();
+                event.quorum = id;
+                event.key = keyForEdit;
+                event.approvals = approvals;
+                event.written = approvals >= approvalsNeeded;
+                event.commit();
+            }
         }
     }
 
@@ -158,10 +168,12 @@ public class CPNode extends DSMNode {
     private Future<?> writeLoopTask;
     private Future<?> readLoopTask;
     private Future<?> partitionTask;
+    // Only used by the message processing loop
+    private final RandomGenerator approvalRandom = randomStream("approval");
 
     public CPNode(String name) {
         super(name);
-        this.executorService = Executors.newFixedThreadPool(4); // Increased to 4 for message processing
+        this.executorService = Simulator.getInstance().newExecutorService(4); // Increased to 4 for message processing
         this.running = new AtomicBoolean(false);
     }
 
@@ -207,8 +219,7 @@ public class CPNode extends DSMNode {
 
     private void handleApprovalRequest(Message message) {
 
-        Random r = new Random();
-        if (r.nextDouble() < 0.2) {
+        if (approvalRandom.nextDouble() < 0.2) {
             // Ignore or decline with 20% chance
             return;
         }
@@ -223,9 +234,6 @@ public class CPNode extends DSMNode {
             response.add("type", "QUORUM_APPROVAL");
 
             try {
-                if (simulateNetworkLatency) {
-                    sleep(getLatencyMs());
-                }
                 send(response, message.query("quorumId"));
                 // System.out.println("send approval to" + message.query("quorumId"));
             } catch (Exception e) {
@@ -240,25 +248,28 @@ public class CPNode extends DSMNode {
     }
 
     public void randomWriteLoop() {
+        RandomGenerator random = randomStream("write");
+        RandomString values = new RandomString(8, random);
+        RandomString quorumIds = new RandomString(4, random);
 
         while (this.isAlive() && !Thread.currentThread().isInterrupted()) {
             // Random pause before operation
-            int pauseMillis = new Random().nextInt(DSMNode.minPauseMs, DSMNode.maxPauseMs);
+            int pauseMillis = nextPauseMs(random);
             sleep(pauseMillis);
 
             if (Thread.currentThread().isInterrupted() || !this.isAlive()) {
                 break;
             }
 
-            String key = this.getRandomKey();
-            String rstr = new RandomString(8).nextString();
+            String key = getRandomKey(random);
+            String rstr = values.nextString();
 
             // Try to create Quorum (will fail during partition due to disabled message
             // processing)
             if (this.messageProcessingEnabled) {
 
                 try {
-                    Quorum quo = new Quorum("Q-" + new RandomString(4).nextString(), key, rstr, getName());
+                    Quorum quo = new Quorum("Q-" + quorumIds.nextString(), key, rstr, getName());
                     CPNode.quorums.add(quo);
 
                 } catch (Exception sendError) {
@@ -277,18 +288,19 @@ public class CPNode extends DSMNode {
     }
 
     public void randomReadLoop() {
+        RandomGenerator random = randomStream("read");
 
         while (this.isAlive() && !Thread.currentThread().isInterrupted()) {
             try {
                 // Random pause before operation
-                int pauseMillis = new Random().nextInt(DSMNode.minPauseMs, DSMNode.maxPauseMs);
+                int pauseMillis = nextPauseMs(random);
                 sleep(pauseMillis);
 
                 if (Thread.currentThread().isInterrupted() || !this.isAlive()) {
                     break;
                 }
 
-                String key = this.getRandomKey();
+                String key = getRandomKey(random);
 
                 boolean partitioned = !this.messageProcessingEnabled;
 
@@ -1,17 +1,24 @@
 package de.marvinxmo.versys.dsm.testing;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 
+import de.marvinxmo.versys.SimulationBehavior;
 import de.marvinxmo.versys.Simulator;
+import de.marvinxmo.versys.ThreadingMode;
+import de.marvinxmo.versys.TimeMode;
+import de.marvinxmo.versys.distribution.Distribution;
 import de.marvinxmo.versys.dsm.core.CAPType;
 import de.marvinxmo.versys.dsm.core.DSMNode;
 import de.marvinxmo.versys.dsm.nodes.APNode;
 import de.marvinxmo.versys.dsm.nodes.CANode;
 import de.marvinxmo.versys.dsm.nodes.CPNode;
+import de.marvinxmo.versys.latency.LatencyModel;
 
 /**
  * Comprehensive test application for all three DSM implementations
@@ -32,6 +39,8 @@ public class DSMTest {
         boolean simulateNetworkLatency = true;
         double latencyMeanMs = 70;
         double latencyStdMs = 30;
+        String latencyFile = null; // Measured latencies, see Distribution.load
+        Distribution latencyDistribution = null; // Loaded from latencyFile
 
         boolean simulateNetworkPartitions = true;
         double partitionProbability = 0.1; // Probability of partitioning during simulation
@@ -40,6 +49,9 @@ public class DSMTest {
         int minPauseMs = 1000; // Minimum pause between read/write operations
         int maxPauseMs = 5000; // Maximum pause between read/write operations
 
+        boolean useVirtualTime = false; // Discrete-event simulation instead of wall clock
+        boolean useVirtualThreads = false; // Virtual threads for node and task loops (Java 21+)
+
         // For AP
 
         // For CA
@@ -133,6 +145,21 @@ public class DSMTest {
             }
         }
 
+        System.out.printf("Use virtual time (discrete-event simulation)? (y/N) [default: %s]: ",
+                config.useVirtualTime ? "y" : "N");
+        String virtualTimeChoice = scanner.nextLine().trim().toLowerCase();
+        if (!virtualTimeChoice.isEmpty()) {
+            config.useVirtualTime = virtualTimeChoice.startsWith("y");
+        }
+
+        if (Simulator.isVirtualThreadSupported()) {
+            System.out.printf("Use virtual threads? (y/N) [default: %s]: ", config.useVirtualThreads ? "y" : "N");
+            String virtualThreadChoice = scanner.nextLine().trim().toLowerCase();
+            if (!virtualThreadChoice.isEmpty()) {
+                config.useVirtualThreads = virtualThreadChoice.startsWith("y");
+            }
+        }
+
         // Operation timing parameters
         System.out.println("\n Operation Timing (Nodes randomly generate read/write actions):");
 
@@ -173,6 +200,20 @@ public class DSMTest {
         }
 
         if (config.simulateNetworkLatency) {
+            System.out.print("File with measured latencies (ms) [default: normal distribution]: ");
+            String latencyFileStr = scanner.nextLine().trim();
+            if (!latencyFileStr.isEmpty()) {
+                try {
+                    config.latencyDistribution = Distribution.load(Path.of(latencyFileStr));
+                    config.latencyFile = latencyFileStr;
+                } catch (IOException e) {
+                    System.out.println("Cannot read " + latencyFileStr + " (" + e.getMessage()
+                            + "), using normal distribution");
+                }
+            }
+        }
+
+        if (config.simulateNetworkLatency && config.latencyDistribution == null) {
             System.out.printf("Average latency (ms) [default: %.1f]: ", config.latencyMeanMs);
             String latencyMeanStr = scanner.nextLine().trim();
             if (!latencyMeanStr.isEmpty()) {
@@ -268,11 +309,13 @@ public class DSMTest {
         System.out.printf("DSM Type: %s%n", config.capType);
         System.out.printf("Nodes: %d%n", config.nodeCount);
         System.out.printf("Duration: %d seconds%n", config.simulationDurationSeconds);
+        System.out.printf("Time: %s%n", config.useVirtualTime ? "virtual" : "real");
+        System.out.printf("Threads: %s%n", config.useVirtualThreads ? "virtual" : "platform");
         System.out.printf("Operation pause: %d - %d ms%n", config.minPauseMs, config.maxPauseMs);
         System.out.printf("Network latency: %s%n",
-                config.simulateNetworkLatency
-                        ? String.format("%.1f +- %.1f ms", config.latencyMeanMs, config.latencyStdMs)
-                        : "disabled");
+                !config.simulateNetworkLatency ? "disabled"
+                        : config.latencyDistribution != null ? "measured (" + config.latencyFile + ")"
+                                : String.format("%.1f +- %.1f ms", config.latencyMeanMs, config.latencyStdMs));
         System.out.printf("Network partitions: %s%n",
                 config.simulateNetworkPartitions ? String.format("%.1f%% chance, %.1fs duration",
                         config.partitionProbability * 100, config.partitionDurationSec) : "disabled");
@@ -312,6 +355,11 @@ public class DSMTest {
             nodeNames.add("Node" + i);
         }
 
+        // Start simulation
+        Simulator simulator = Simulator.getInstance();
+        simulator.setTimeMode(config.useVirtualTime ? TimeMode.VIRTUAL_TIME : TimeMode.REAL_TIME);
+        simulator.setThreadingMode(config.useVirtualThreads ? ThreadingMode.VIRTUAL : ThreadingMode.PLATFORM);
+
         // Create nodes
         Map<String, DSMNode> nodes = new HashMap<>();
 
@@ -341,6 +389,10 @@ public class DSMTest {
         DSMNode.simulateNetworkLatency = config.simulateNetworkLatency;
         DSMNode.latencyMeanMs = config.latencyMeanMs;
         DSMNode.latencyStdMs = config.latencyStdMs;
+        // Latency is applied by the Network per receiver, senders do not wait
+        SimulationBehavior.setLatencyModel(!config.simulateNetworkLatency ? null
+                : config.latencyDistribution != null ? LatencyModel.of(config.latencyDistribution)
+                        : LatencyModel.normal(config.latencyMeanMs, config.latencyStdMs));
         DSMNode.simulateNetworkPartitions = config.simulateNetworkPartitions;
         DSMNode.partitionProbability = config.partitionProbability;
         DSMNode.partitionDurationSec = config.partitionDurationSec;
@@ -351,9 +403,6 @@ public class DSMTest {
             CPNode.approvalsNeeded = config.quorumSize;
         }
 
-        // Start simulation
-        Simulator simulator = Simulator.getInstance();
-
         System.out.println("Starting simulation...");
 
         // Start the simulation in a background thread
@@ -363,7 +412,12 @@ public class DSMTest {
         simulationThread.start();
 
         try {
-            Thread.sleep(config.simulationDurationSeconds * 1000);
+            if (config.useVirtualTime) {
+                // Virtual time ends as soon as the simulated duration has been covered
+                simulationThread.join();
+            } else {
+                Thread.sleep(config.simulationDurationSeconds * 1000);
+            }
         } catch (InterruptedException e) {
             System.out.println("Simulation interrupted.1");
             Thread.currentThread().interrupt();
@@ -0,0 +1,27 @@
+package de.marvinxmo.versys.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call of DSMNode.handleIncomingMessage.
+ */
+@Name("de.marvinxmo.versys.DSMHandle")
+@Label("DSM Message Handling")
+@Category({ "sim4da", "DSM" })
+@Enabled(false)
+@StackTrace(false)
+public class DSMHandleEvent extends jdk.jfr.Event {
+
+    @Label("Sender")
+    public String sender;
+
+    @Label("Node")
+    public String receiver;
+
+    @Label("Message Type")
+    public String type;
+}
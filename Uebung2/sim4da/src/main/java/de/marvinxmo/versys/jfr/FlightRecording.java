@@ -0,0 +1,57 @@
+package de.marvinxmo.versys.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * JDK Flight Recorder events of the message path and the DSM nodes.
+ *
+ * All events are disabled by default. While disabled, an event object
+ * never escapes, so the JIT removes it together with begin() and commit()
+ * and the instrumented code costs nothing. Enable them for a recording
+ * with start, in JDK Mission Control, or on the command line:
+ *
+ * <pre>
+ * -XX:StartFlightRecording:filename=run.jfr,+de.marvinxmo.versys.MessageSend#enabled=true
+ * </pre>
+ *
+ * (individual event settings on the command line need JDK 17).
+ */
+public final class FlightRecording {
+
+    private static final String[] EVENTS = {
+            "de.marvinxmo.versys.MessageSend",
+            "de.marvinxmo.versys.MessageDeliver",
+            "de.marvinxmo.versys.MessageReceive",
+            "de.marvinxmo.versys.DSMHandle",
+            "de.marvinxmo.versys.QuorumWrite",
+    };
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Start a recording with the JDK's default settings (GC, locks, ...)
+     * and all sim4da events. Stopping the recording writes it to file.
+     */
+    public static Recording start(Path file) throws IOException {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            throw new IOException("Cannot read the default JFR configuration", e);
+        }
+        for (String event : EVENTS) {
+            recording.enable(event).withoutStackTrace();
+        }
+        recording.setName("sim4da");
+        recording.setDestination(file);
+        recording.setToDisk(true);
+        recording.start();
+        return recording;
+    }
+}
@@ -0,0 +1,34 @@
+package de.marvinxmo.versys.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A message put into the mailbox of its receiver.
+ */
+@Name("de.marvinxmo.versys.MessageDeliver")
+@Label("Message Deliver")
+@Category({ "sim4da", "Messages" })
+@Enabled(false)
+@StackTrace(false)
+public class MessageDeliverEvent extends jdk.jfr.Event {
+
+    @Label("Sender")
+    public String sender;
+
+    @Label("Receiver")
+    public String receiver;
+
+    @Label("Message Type")
+    public String type;
+
+    @Label("Transit Time")
+    @Description("Time since the message was sent, in simulator time")
+    @Timespan
+    public long transitTime;
+}
@@ -0,0 +1,43 @@
+package de.marvinxmo.versys.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A message taken from a mailbox; the duration is the time the receiver
+ * waited for it.
+ */
+@Name("de.marvinxmo.versys.MessageReceive")
+@Label("Message Receive")
+@Category({ "sim4da", "Messages" })
+@Enabled(false)
+@StackTrace(false)
+public class MessageReceiveEvent extends jdk.jfr.Event {
+
+    @Label("Sender")
+    public String sender;
+
+    @Label("Receiver")
+    public String receiver;
+
+    @Label("Message Type")
+    public String type;
+
+    /**
+     * True while the event is enabled in a recording; NodeProxy then stamps
+     * the delivery time for the queue time.
+     */
+    public static boolean recording() {
+        return new MessageReceiveEvent().isEnabled();
+    }
+
+    @Label("Queue Time")
+    @Description("Time the message spent in the mailbox, in simulator time")
+    @Timespan
+    public long queueTime;
+}
@@ -0,0 +1,31 @@
+package de.marvinxmo.versys.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A unicast or broadcast handed to the Network; the duration covers
+ * stamping, latency sampling and the delivery (or scheduling) to all
+ * receivers.
+ */
+@Name("de.marvinxmo.versys.MessageSend")
+@Label("Message Send")
+@Category({ "sim4da", "Messages" })
+@Enabled(false)
+@StackTrace(false)
+public class MessageSendEvent extends jdk.jfr.Event {
+
+    @Label("Sender")
+    public String sender;
+
+    @Label("Receiver")
+    @Description("Receiving node, * for a broadcast")
+    public String receiver;
+
+    @Label("Message Type")
+    public String type;
+}
@@ -0,0 +1,33 @@
+package de.marvinxmo.versys.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A CP quorum writing its value to the shared storage.
+ */
+@Name("de.marvinxmo.versys.QuorumWrite")
+@Label("Quorum Write")
+@Category({ "sim4da", "DSM" })
+@Enabled(false)
+@StackTrace(false)
+public class QuorumWriteEvent extends jdk.jfr.Event {
+
+    @Label("Node")
+    public String node;
+
+    @Label("Quorum")
+    public String quorum;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Approvals")
+    public int approvals;
+
+    @Label("Written")
+    public boolean written;
+}
@@ -0,0 +1,27 @@
+package de.marvinxmo.versys.latency;
+
+import de.marvinxmo.versys.RandomStreams;
+import de.marvinxmo.versys.distribution.Distribution;
+
+class DistributionLatency implements LatencyModel {
+
+    DistributionLatency(Distribution distribution) {
+        this.distribution = distribution;
+        double min = distribution.min();
+        // Rounding is monotonic, so no sample rounds below the rounded minimum
+        this.minMs = min > 0 ? Math.round(min) : 0;
+    }
+
+    @Override
+    public long delayMs(String from, String to) {
+        return Math.max(0, Math.round(distribution.sample(RandomStreams.current())));
+    }
+
+    @Override
+    public long minDelayMs() {
+        return minMs;
+    }
+
+    private final Distribution distribution;
+    private final long minMs;
+}
@@ -0,0 +1,21 @@
+package de.marvinxmo.versys.latency;
+
+import de.marvinxmo.versys.RandomStreams;
+
+class ExponentialLatency implements LatencyModel {
+
+    ExponentialLatency(double meanMs) {
+        if (meanMs < 0) {
+            throw new IllegalArgumentException("Mean must not be negative");
+        }
+        this.meanMs = meanMs;
+    }
+
+    @Override
+    public long delayMs(String from, String to) {
+        // 1 - u is in (0, 1], so the logarithm is finite
+        return Math.round(-meanMs * Math.log(1 - RandomStreams.current().nextDouble()));
+    }
+
+    private final double meanMs;
+}
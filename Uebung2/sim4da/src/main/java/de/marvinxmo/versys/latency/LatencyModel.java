@@ -0,0 +1,97 @@
+package de.marvinxmo.versys.latency;
+
+import de.marvinxmo.versys.distribution.Distribution;
+
+/**
+ * Transmission delay of messages, applied by the Network when it delivers.
+ *
+ * delayMs is called once per receiver of a message, from the sending thread,
+ * so implementations have to be thread-safe. Sampled delays are never
+ * negative.
+ */
+public interface LatencyModel {
+
+    long delayMs(String from, String to);
+
+    /**
+     * Lower bound of every delay this model samples. A parallel simulation
+     * uses it as lookahead between partitions, so it has to hold for the
+     * whole run.
+     */
+    default long minDelayMs() {
+        return 0;
+    }
+
+    static LatencyModel none() {
+        return (from, to) -> 0;
+    }
+
+    static LatencyModel constant(long delayMs) {
+        if (delayMs < 0) {
+            throw new IllegalArgumentException("Delay must not be negative");
+        }
+        return new LatencyModel() {
+            @Override
+            public long delayMs(String from, String to) {
+                return delayMs;
+            }
+
+            @Override
+            public long minDelayMs() {
+                return delayMs;
+            }
+        };
+    }
+
+    /**
+     * Delays of model, raised to at least minMs (e.g. a normal distribution
+     * with a guaranteed minimum for parallel simulation).
+     */
+    static LatencyModel atLeast(long minMs, LatencyModel model) {
+        if (minMs < 0) {
+            throw new IllegalArgumentException("Minimum must not be negative");
+        }
+        return new LatencyModel() {
+            @Override
+            public long delayMs(String from, String to) {
+                return Math.max(minMs, model.delayMs(from, to));
+            }
+
+            @Override
+            public long minDelayMs() {
+                return Math.max(minMs, model.minDelayMs());
+            }
+        };
+    }
+
+    /**
+     * Normally distributed delay, cut off at 0 (the former
+     * DSMNode.getLatencyMs).
+     */
+    static LatencyModel normal(double meanMs, double stdMs) {
+        return new NormalLatency(meanMs, stdMs);
+    }
+
+    static LatencyModel uniform(long minMs, long maxMs) {
+        return new UniformLatency(minMs, maxMs);
+    }
+
+    static LatencyModel exponential(double meanMs) {
+        return new ExponentialLatency(meanMs);
+    }
+
+    /**
+     * Delays sampled from distribution in milliseconds, rounded and cut off
+     * at 0; e.g. log-normal, Pareto or measured latencies (Distribution.load).
+     */
+    static LatencyModel of(Distribution distribution) {
+        return new DistributionLatency(distribution);
+    }
+
+    /**
+     * Individual models for single links, and the given model for all others.
+     */
+    static PerLinkLatency perLink(LatencyModel defaultModel) {
+        return new PerLinkLatency(defaultModel);
+    }
+}
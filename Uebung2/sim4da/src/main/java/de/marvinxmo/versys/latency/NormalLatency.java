@@ -0,0 +1,19 @@
+package de.marvinxmo.versys.latency;
+
+import de.marvinxmo.versys.RandomStreams;
+
+class NormalLatency implements LatencyModel {
+
+    NormalLatency(double meanMs, double stdMs) {
+        this.meanMs = meanMs;
+        this.stdMs = stdMs;
+    }
+
+    @Override
+    public long delayMs(String from, String to) {
+        return Math.max(0, Math.round(RandomStreams.current().nextGaussian() * stdMs + meanMs));
+    }
+
+    private final double meanMs;
+    private final double stdMs;
+}
@@ -0,0 +1,49 @@
+package de.marvinxmo.versys.latency;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency configured per directed link, e.g. a slow WAN link between two
+ * nodes of an otherwise fast cluster. Links can be changed while the
+ * simulation is running.
+ */
+public class PerLinkLatency implements LatencyModel {
+
+    PerLinkLatency(LatencyModel defaultModel) {
+        this.defaultModel = defaultModel;
+    }
+
+    public PerLinkLatency link(String from, String to, LatencyModel model) {
+        links.computeIfAbsent(from, k -> new ConcurrentHashMap<>()).put(to, model);
+        return this;
+    }
+
+    /**
+     * Same model in both directions.
+     */
+    public PerLinkLatency between(String a, String b, LatencyModel model) {
+        return link(a, b, model).link(b, a, model);
+    }
+
+    @Override
+    public long delayMs(String from, String to) {
+        Map<String, LatencyModel> outgoing = links.get(from);
+        LatencyModel model = outgoing == null ? null : outgoing.get(to);
+        return (model == null ? defaultModel : model).delayMs(from, to);
+    }
+
+    @Override
+    public long minDelayMs() {
+        long min = defaultModel.minDelayMs();
+        for (Map<String, LatencyModel> outgoing : links.values()) {
+            for (LatencyModel model : outgoing.values()) {
+                min = Math.min(min, model.minDelayMs());
+            }
+        }
+        return min;
+    }
+
+    private final LatencyModel defaultModel;
+    private final Map<String, Map<String, LatencyModel>> links = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,27 @@
+package de.marvinxmo.versys.latency;
+
+import de.marvinxmo.versys.RandomStreams;
+
+class UniformLatency implements LatencyModel {
+
+    UniformLatency(long minMs, long maxMs) {
+        if (minMs < 0 || maxMs < minMs) {
+            throw new IllegalArgumentException("Expected 0 <= minMs <= maxMs");
+        }
+        this.minMs = minMs;
+        this.maxMs = maxMs;
+    }
+
+    @Override
+    public long delayMs(String from, String to) {
+        return RandomStreams.current().nextLong(minMs, maxMs + 1);
+    }
+
+    @Override
+    public long minDelayMs() {
+        return minMs;
+    }
+
+    private final long minMs;
+    private final long maxMs;
+}
@@ -0,0 +1,77 @@
+package de.marvinxmo.versys.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds with power-of-two buckets: bucket
+ * i counts values in [2^(i-1), 2^i), bucket 0 counts zeros. Recording is a
+ * few plain stores.
+ *
+ * Only one thread may record (the receiving thread of a node); any thread
+ * may read, and sees counts that are at most slightly out of date.
+ */
+public class Histogram {
+
+    public static final int BUCKETS = 64;
+
+    public void record(long nanos) {
+        int bucket = nanos <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(nanos);
+        if (bucket >= BUCKETS) {
+            bucket = BUCKETS - 1;
+        }
+        // Single writer: no read-modify-write needed
+        counts.lazySet(bucket, counts.get(bucket) + 1);
+        count.lazySet(0, count.get(0) + 1);
+        count.lazySet(1, count.get(1) + Math.max(0, nanos));
+    }
+
+    public long count() {
+        return count.get(0);
+    }
+
+    public double meanNanos() {
+        long n = count.get(0);
+        return n == 0 ? 0 : (double) count.get(1) / n;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given quantile (0 to 1).
+     */
+    public long quantileNanos(double q) {
+        return quantileNanos(counts(), q);
+    }
+
+    /**
+     * Quantile of bucket counts, e.g. the sum of several histograms.
+     */
+    public static long quantileNanos(long[] c, double q) {
+        long total = 0;
+        for (long x : c) {
+            total += x;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < c.length; i++) {
+            seen += c[i];
+            if (seen >= rank && c[i] > 0) {
+                return i == 0 ? 0 : i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public long[] counts() {
+        long[] c = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            c[i] = counts.get(i);
+        }
+        return c;
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    // Number of values and their sum
+    private final AtomicLongArray count = new AtomicLongArray(2);
+}
@@ -0,0 +1,48 @@
+package de.marvinxmo.versys.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Messages and encoded bytes sent over one directed link. Bytes are only
+ * known for messages that leave the process (socket or shared memory
+ * transport); the in-process Network passes references.
+ */
+public class LinkMetrics implements LinkMetricsMBean {
+
+    LinkMetrics(String from, String to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    void sent(int bytes) {
+        messages.increment();
+        if (bytes > 0) {
+            this.bytes.add(bytes);
+        }
+    }
+
+    @Override
+    public String getFrom() {
+        return from;
+    }
+
+    @Override
+    public String getTo() {
+        return to;
+    }
+
+    @Override
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    private final String from;
+    private final String to;
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+}
@@ -0,0 +1,15 @@
+package de.marvinxmo.versys.metrics;
+
+/**
+ * JMX view of a LinkMetrics.
+ */
+public interface LinkMetricsMBean {
+
+    String getFrom();
+
+    String getTo();
+
+    long getMessages();
+
+    long getBytes();
+}
@@ -0,0 +1,118 @@
+package de.marvinxmo.versys.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the runtime metrics of a simulation, published as MBeans in
+ * the platform MBean server (jconsole, VisualVM, jcmd):
+ *
+ * <pre>
+ * de.marvinxmo.versys:type=Simulation
+ * de.marvinxmo.versys:type=Node,name=N1
+ * de.marvinxmo.versys:type=Link,from=N1,to=N2
+ * </pre>
+ *
+ * Enabled with SimulationBehavior.setMetricsEnabled or -Dsim4da.metrics=true
+ * before the nodes are created. Disabled, the message path only checks a
+ * null field.
+ */
+public final class Metrics {
+
+    public static final String DOMAIN = "de.marvinxmo.versys";
+
+    private Metrics() {
+    }
+
+    /**
+     * Metrics of the named node, replacing those of an earlier node with
+     * the same name.
+     */
+    public static NodeMetrics node(String name) {
+        register(SIMULATION, "type=Simulation");
+        NodeMetrics m = register(new NodeMetrics(name));
+        nodes.put(name, m);
+        return m;
+    }
+
+    /**
+     * Per-link metrics take one object and MBean per pair of nodes that
+     * talk; switch them off for large all-to-all runs.
+     */
+    public static void setLinksEnabled(boolean enabled) {
+        linksEnabled = enabled;
+    }
+
+    public static boolean isLinksEnabled() {
+        return linksEnabled;
+    }
+
+    public static NodeMetrics find(String name) {
+        return nodes.get(name);
+    }
+
+    public static Collection<NodeMetrics> nodes() {
+        return nodes.values();
+    }
+
+    public static SimulationMetrics simulation() {
+        return SIMULATION;
+    }
+
+    /**
+     * Unregister all MBeans and forget all nodes.
+     */
+    public static void clear() {
+        nodes.clear();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName(DOMAIN + ":*"), null)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            logger.warn("Cannot unregister metrics: {}", e.getMessage());
+        }
+    }
+
+    static NodeMetrics register(NodeMetrics m) {
+        return register(m, "type=Node,name=" + ObjectName.quote(m.getName()));
+    }
+
+    static LinkMetrics register(LinkMetrics m) {
+        return register(m, "type=Link,from=" + ObjectName.quote(m.getFrom()) + ",to=" + ObjectName.quote(m.getTo()));
+    }
+
+    private static <T> T register(T mbean, String properties) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            synchronized (Metrics.class) {
+                if (server.isRegistered(name)) {
+                    if (mbean == SIMULATION) {
+                        return mbean;
+                    }
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(mbean, name);
+            }
+        } catch (JMException e) {
+            // Metrics are still recorded, only not visible over JMX
+            logger.warn("Cannot register {}: {}", properties, e.getMessage());
+        }
+        return mbean;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+    private static final Map<String, NodeMetrics> nodes = new ConcurrentHashMap<>();
+    private static volatile boolean linksEnabled = true;
+    private static final SimulationMetrics SIMULATION = new SimulationMetrics(nodes.values());
+}
@@ -0,0 +1,177 @@
+package de.marvinxmo.versys.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters of one node, updated by the Network and the node's NodeProxy.
+ *
+ * Counters updated by many threads (sends of executor tasks, deliveries
+ * from all senders) are LongAdders. Receive-side values have a single
+ * writer, the node's receiving thread.
+ *
+ * The peak mailbox depth is taken right before each receive: the depth
+ * only shrinks when a message is received, so its maximum is reached
+ * there or now.
+ */
+public class NodeMetrics implements NodeMetricsMBean {
+
+    NodeMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Current depth of the node's mailbox, set by its NodeProxy.
+     */
+    public void setMailboxDepth(IntSupplier depth) {
+        this.depth = depth;
+    }
+
+    public void sent(String receiver) {
+        sent(receiver, 0);
+    }
+
+    /**
+     * A message to receiver, encoded into bytes if it left the process.
+     */
+    public void sent(String receiver, int bytes) {
+        sent.increment();
+        if (bytes > 0) {
+            bytesSent.add(bytes);
+        }
+        if (Metrics.isLinksEnabled()) {
+            link(receiver).sent(bytes);
+        }
+    }
+
+    /**
+     * A broadcast frame of the given size to another process.
+     */
+    public void sentBytes(int bytes) {
+        bytesSent.add(bytes);
+    }
+
+    public void delivered() {
+        delivered.increment();
+    }
+
+    /**
+     * A message left the mailbox after queueNanos, transitNanos after it was
+     * sent; depth is the mailbox depth right before.
+     */
+    public void received(long queueNanos, long transitNanos, int depth) {
+        received.increment();
+        queueTime.record(queueNanos);
+        transitTime.record(transitNanos);
+        if (depth > peakDepth) {
+            peakDepth = depth;
+        }
+    }
+
+    public LinkMetrics link(String receiver) {
+        // Nodes mostly send to the same receiver several times in a row
+        LinkMetrics l = lastLink;
+        if (l != null && l.getTo().equals(receiver)) {
+            return l;
+        }
+        l = links.get(receiver);
+        if (l == null) {
+            l = links.computeIfAbsent(receiver, to -> Metrics.register(new LinkMetrics(name, to)));
+        }
+        lastLink = l;
+        return l;
+    }
+
+    public Map<String, LinkMetrics> links() {
+        return links;
+    }
+
+    public Histogram queueTime() {
+        return queueTime;
+    }
+
+    public Histogram transitTime() {
+        return transitTime;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getSent() {
+        return sent.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    @Override
+    public long getReceived() {
+        return received.sum();
+    }
+
+    @Override
+    public int getMailboxDepth() {
+        IntSupplier d = depth;
+        return d == null ? 0 : d.getAsInt();
+    }
+
+    @Override
+    public int getPeakMailboxDepth() {
+        return Math.max(peakDepth, getMailboxDepth());
+    }
+
+    @Override
+    public double getMeanQueueTimeMicros() {
+        return queueTime.meanNanos() / 1000;
+    }
+
+    @Override
+    public long getQueueTimeP50Micros() {
+        return queueTime.quantileNanos(0.5) / 1000;
+    }
+
+    @Override
+    public long getQueueTimeP99Micros() {
+        return queueTime.quantileNanos(0.99) / 1000;
+    }
+
+    @Override
+    public double getMeanTransitTimeMicros() {
+        return transitTime.meanNanos() / 1000;
+    }
+
+    @Override
+    public long getTransitTimeP99Micros() {
+        return transitTime.quantileNanos(0.99) / 1000;
+    }
+
+    @Override
+    public long[] getQueueTimeHistogram() {
+        return queueTime.counts();
+    }
+
+    private final String name;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final Histogram queueTime = new Histogram();
+    private final Histogram transitTime = new Histogram();
+    private final Map<String, LinkMetrics> links = new ConcurrentHashMap<>();
+    // Racy cache; LinkMetrics has final fields, so any value read is complete
+    private LinkMetrics lastLink = null;
+    private volatile IntSupplier depth = null;
+    private volatile int peakDepth = 0;
+}
@@ -0,0 +1,33 @@
+package de.marvinxmo.versys.metrics;
+
+/**
+ * JMX view of a NodeMetrics. Times are in microseconds.
+ */
+public interface NodeMetricsMBean {
+
+    String getName();
+
+    long getSent();
+
+    long getBytesSent();
+
+    long getDelivered();
+
+    long getReceived();
+
+    int getMailboxDepth();
+
+    int getPeakMailboxDepth();
+
+    double getMeanQueueTimeMicros();
+
+    long getQueueTimeP50Micros();
+
+    long getQueueTimeP99Micros();
+
+    double getMeanTransitTimeMicros();
+
+    long getTransitTimeP99Micros();
+
+    long[] getQueueTimeHistogram();
+}
@@ -0,0 +1,63 @@
+package de.marvinxmo.versys.metrics;
+
+import java.util.Collection;
+
+import de.marvinxmo.versys.Simulator;
+
+/**
+ * Totals over all nodes of this process, summed up when read.
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+
+    SimulationMetrics(Collection<NodeMetrics> nodes) {
+        this.nodes = nodes;
+    }
+
+    @Override
+    public int getNodes() {
+        return nodes.size();
+    }
+
+    @Override
+    public long getSent() {
+        long sum = 0;
+        for (NodeMetrics m : nodes) {
+            sum += m.getSent();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getBytesSent() {
+        long sum = 0;
+        for (NodeMetrics m : nodes) {
+            sum += m.getBytesSent();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getReceived() {
+        long sum = 0;
+        for (NodeMetrics m : nodes) {
+            sum += m.getReceived();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getQueued() {
+        long sum = 0;
+        for (NodeMetrics m : nodes) {
+            sum += m.getMailboxDepth();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getCurrentTimeMillis() {
+        return Simulator.getInstance().currentTimeMillis();
+    }
+
+    private final Collection<NodeMetrics> nodes;
+}
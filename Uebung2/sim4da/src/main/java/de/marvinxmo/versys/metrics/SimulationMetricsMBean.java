@@ -0,0 +1,25 @@
+package de.marvinxmo.versys.metrics;
+
+/**
+ * JMX view of the totals over all nodes of this process.
+ */
+public interface SimulationMetricsMBean {
+
+    int getNodes();
+
+    long getSent();
+
+    long getBytesSent();
+
+    long getReceived();
+
+    /**
+     * Delivered but not yet received, over all mailboxes.
+     */
+    long getQueued();
+
+    /**
+     * Clock of the nodes: wall clock, or simulated ms in virtual time.
+     */
+    long getCurrentTimeMillis();
+}
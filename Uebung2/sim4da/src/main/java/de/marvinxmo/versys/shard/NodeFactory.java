@@ -0,0 +1,17 @@
+package de.marvinxmo.versys.shard;
+
+/**
+ * Creates the nodes of a sharded simulation. Every worker JVM instantiates
+ * the factory by its class name (so it needs a public no-argument
+ * constructor) and calls create for the node ids it hosts.
+ *
+ * Node names have to be derived from the id alone, because a node only
+ * knows the ids, not the shards, of the nodes it talks to.
+ */
+public interface NodeFactory {
+
+    /**
+     * Create node id of nodes (0 <= id < nodes).
+     */
+    void create(int id, int nodes);
+}
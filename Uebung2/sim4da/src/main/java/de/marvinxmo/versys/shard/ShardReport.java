@@ -0,0 +1,118 @@
+package de.marvinxmo.versys.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import de.marvinxmo.versys.Message;
+
+/**
+ * Results of a sharded simulation: the report of every worker JVM and the
+ * totals over all of them.
+ *
+ * A worker report is a Message whose payload holds numbers: the counters
+ * of the worker (see {@link ShardWorker}) and whatever the nodes counted
+ * with ShardWorker.count.
+ */
+public class ShardReport {
+
+    ShardReport(List<Message> shards, int expected) {
+        List<Message> sorted = new ArrayList<>(shards);
+        sorted.sort(Comparator.comparingLong(m -> value(m, "shard")));
+        this.shards = Collections.unmodifiableList(sorted);
+        this.expected = expected;
+    }
+
+    public List<Message> shards() {
+        return shards;
+    }
+
+    /**
+     * True if every worker reported, i.e. none crashed or timed out.
+     */
+    public boolean isComplete() {
+        return shards.size() == expected;
+    }
+
+    /**
+     * Sum of a counter over all workers.
+     */
+    public long total(String key) {
+        long total = 0;
+        for (Message m : shards) {
+            total += value(m, key);
+        }
+        return total;
+    }
+
+    /**
+     * Largest value of a counter in any worker, e.g. the simulation time.
+     */
+    public long max(String key) {
+        long max = 0;
+        for (Message m : shards) {
+            max = Math.max(max, value(m, key));
+        }
+        return max;
+    }
+
+    /**
+     * One row per worker and a row with the totals.
+     */
+    @Override
+    public String toString() {
+        TreeSet<String> keys = new TreeSet<>();
+        for (Message m : shards) {
+            for (Map.Entry<String, String> e : m.getPayload().entrySet()) {
+                if (!e.getKey().equals("shard") && isNumber(e.getValue())) {
+                    keys.add(e.getKey());
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-8s", "shard"));
+        for (String key : keys) {
+            sb.append(String.format(" %14s", key));
+        }
+        sb.append('\n');
+        for (Message m : shards) {
+            sb.append(String.format("%-8d", value(m, "shard")));
+            for (String key : keys) {
+                sb.append(String.format(" %14d", value(m, key)));
+            }
+            sb.append('\n');
+        }
+        sb.append(String.format("%-8s", "total"));
+        for (String key : keys) {
+            // Times overlap, so they are not added up
+            sb.append(String.format(" %14d", key.endsWith("Ms") ? max(key) : total(key)));
+        }
+        if (!isComplete()) {
+            sb.append(String.format("%n%d of %d shards did not report", expected - shards.size(), expected));
+        }
+        return sb.toString();
+    }
+
+    private static long value(Message m, String key) {
+        String v = m.query(key);
+        return isNumber(v) ? Long.parseLong(v) : 0;
+    }
+
+    private static boolean isNumber(String s) {
+        if (s == null || s.isEmpty()) {
+            return false;
+        }
+        for (int i = s.charAt(0) == '-' ? 1 : 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return s.length() > (s.charAt(0) == '-' ? 1 : 0);
+    }
+
+    private final List<Message> shards;
+    private final int expected;
+}
@@ -0,0 +1,108 @@
+package de.marvinxmo.versys.shard;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.SimulationBehavior;
+import de.marvinxmo.versys.Simulator;
+import de.marvinxmo.versys.transport.SocketTransport;
+
+/**
+ * Main of a worker JVM started by {@link ShardedSimulator}.
+ *
+ * Hosts the contiguous block of node ids belonging to its shard and talks
+ * to the other workers over a SocketTransport. The steps are: create the
+ * nodes, wait until the name service knows all nodes of all shards, wait at
+ * the global start barrier, simulate, report the counters and wait until
+ * every shard has reported before closing the sockets.
+ *
+ * Usage: ShardWorker nameServicePort shard shards nodes seconds factoryClass
+ * (seconds 0 runs until the local nodes are done)
+ */
+public class ShardWorker {
+
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Add to a counter of this worker's report. Counters of all workers are
+     * summed up in the merged ShardReport.
+     */
+    public static void count(String key, long delta) {
+        LongAdder c = counters.get(key);
+        if (c == null) {
+            c = counters.computeIfAbsent(key, k -> new LongAdder());
+        }
+        c.add(delta);
+    }
+
+    /**
+     * First node id of the given shard; shard + 1 gives the end.
+     */
+    static int firstId(int shard, int shards, int nodes) {
+        return (int) ((long) shard * nodes / shards);
+    }
+
+    public static void main(String[] args) throws Exception {
+        try {
+            run(args);
+        } catch (Exception | Error e) {
+            // Node threads would keep the JVM alive; the name service aborts
+            // the run for the other workers once the connection is gone
+            e.printStackTrace();
+            System.exit(1);
+        }
+        // Node threads blocked in receive would otherwise keep the JVM alive
+        System.exit(0);
+    }
+
+    private static void run(String[] args) throws Exception {
+        int nsPort = Integer.parseInt(args[0]);
+        int shard = Integer.parseInt(args[1]);
+        int shards = Integer.parseInt(args[2]);
+        int nodes = Integer.parseInt(args[3]);
+        long seconds = Long.parseLong(args[4]);
+        NodeFactory factory = (NodeFactory) Class.forName(args[5]).getDeclaredConstructor().newInstance();
+
+        Simulator simulator = Simulator.getInstance();
+        SocketTransport transport = SocketTransport.connect(nsPort);
+        transport.setStartBarrier(shards);
+        SimulationBehavior.setTransport(transport);
+
+        long begin = System.nanoTime();
+        int first = firstId(shard, shards, nodes);
+        int end = firstId(shard + 1, shards, nodes);
+        for (int id = first; id < end; id++) {
+            factory.create(id, nodes);
+        }
+        if (!transport.awaitNodes(nodes, 60_000)) {
+            throw new IllegalStateException("Shard " + shard + ": not all nodes registered in time, or the run was aborted");
+        }
+        long started = System.nanoTime();
+        if (seconds > 0) {
+            simulator.simulate(seconds);
+        } else {
+            simulator.simulate();
+        }
+        long finished = System.nanoTime();
+
+        Message report = new Message()
+                .add("shard", shard)
+                .add("nodes", end - first)
+                .add("sent", String.valueOf(transport.messagesSent()))
+                .add("framesSent", String.valueOf(transport.framesSent()))
+                .add("framesReceived", String.valueOf(transport.framesReceived()))
+                .add("startupMs", String.valueOf((started - begin) / 1_000_000))
+                .add("simulateMs", String.valueOf((finished - started) / 1_000_000))
+                .add("heapUsedMb", String.valueOf(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed()
+                        / (1024 * 1024)));
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) {
+            report.add(e.getKey(), String.valueOf(e.getValue().sum()));
+        }
+        // Distributed shutdown: keep receiving until every shard is done
+        transport.finish(report, 60_000);
+        simulator.shutdown();
+    }
+}
@@ -0,0 +1,97 @@
+package de.marvinxmo.versys.shard;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.transport.NameService;
+
+/**
+ * Runs one simulation on several local worker JVMs, so the number of nodes
+ * is not limited by a single heap.
+ *
+ * The coordinator starts a name service and one {@link ShardWorker} per
+ * shard. Node ids are split into contiguous blocks, one per shard; every
+ * worker creates its block with the given {@link NodeFactory}. Messages
+ * between shards travel over loopback sockets. Workers start simulating
+ * together once all of them are ready, and none shuts down before all have
+ * reported. The reports are merged into one {@link ShardReport}.
+ *
+ * Runs in real time, like every multi-process transport.
+ *
+ * Usage: ShardedSimulator factoryClass shards nodes seconds [jvmOption...]
+ */
+public class ShardedSimulator {
+
+    public ShardedSimulator(Class<? extends NodeFactory> factory, int shards, int nodes) {
+        if (shards < 1 || nodes < shards) {
+            throw new IllegalArgumentException("Expected 1 <= shards <= nodes");
+        }
+        this.factory = factory;
+        this.shards = shards;
+        this.nodes = nodes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        @SuppressWarnings("unchecked")
+        Class<? extends NodeFactory> factory = (Class<? extends NodeFactory>) Class.forName(args[0]);
+        ShardedSimulator sharded = new ShardedSimulator(factory, Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]));
+        for (int i = 4; i < args.length; i++) {
+            sharded.jvmOption(args[i]);
+        }
+        System.out.println(sharded.run(Long.parseLong(args[3])));
+    }
+
+    /**
+     * Option for every worker JVM, e.g. "-Xmx4g".
+     */
+    public ShardedSimulator jvmOption(String option) {
+        jvmOptions.add(option);
+        return this;
+    }
+
+    /**
+     * Run for the given number of seconds (0 until the nodes are done) and
+     * return the merged report once all workers have exited.
+     */
+    public ShardReport run(long seconds) throws IOException, InterruptedException {
+        try (NameService ns = new NameService(0)) {
+            ns.expectParties(shards);
+            ns.start();
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            List<Process> workers = new ArrayList<>(shards);
+            for (int shard = 0; shard < shards; shard++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(jvmOptions);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(ShardWorker.class.getName());
+                command.add(String.valueOf(ns.port()));
+                command.add(String.valueOf(shard));
+                command.add(String.valueOf(shards));
+                command.add(String.valueOf(nodes));
+                command.add(String.valueOf(seconds));
+                command.add(factory.getName());
+                workers.add(new ProcessBuilder(command).inheritIO().start());
+            }
+            for (Process p : workers) {
+                p.waitFor();
+            }
+            if (ns.isAborted()) {
+                throw new IllegalStateException("Sharded run aborted: a worker failed before the start");
+            }
+            // Workers report before they exit; no need to wait any longer
+            List<Message> reports = ns.awaitReports(shards, 0);
+            return new ShardReport(reports, shards);
+        }
+    }
+
+    private final Class<? extends NodeFactory> factory;
+    private final int shards;
+    private final int nodes;
+    private final List<String> jvmOptions = new ArrayList<>();
+}
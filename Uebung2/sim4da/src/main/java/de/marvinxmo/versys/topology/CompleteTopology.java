@@ -0,0 +1,35 @@
+package de.marvinxmo.versys.topology;
+
+import java.util.List;
+
+/**
+ * Full mesh. Neighbors are computed, not stored, so the topology takes O(n)
+ * memory for any number of nodes.
+ */
+public class CompleteTopology extends Topology {
+
+    CompleteTopology(List<String> names) {
+        super(names);
+    }
+
+    @Override
+    public int degree(int node) {
+        return size() - 1;
+    }
+
+    @Override
+    public int neighbor(int node, int i) {
+        // Every node except itself
+        return i < node ? i : i + 1;
+    }
+
+    @Override
+    public boolean isNeighbor(int a, int b) {
+        return a != b;
+    }
+
+    @Override
+    public int nextHop(int from, int to) {
+        return from == to ? -1 : to;
+    }
+}
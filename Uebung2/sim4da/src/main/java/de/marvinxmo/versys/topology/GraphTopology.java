@@ -0,0 +1,256 @@
+package de.marvinxmo.versys.topology;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * Topology over an explicit edge list, stored as compressed adjacency
+ * arrays.
+ *
+ * Routing uses one table per destination: a breadth-first search from the
+ * destination gives every node its next hop towards it. Tables are built on
+ * first use, or all at once by precomputeRoutes(), and take size() ints
+ * each. All of them together would take size()^2 ints (40 GB for 100 000
+ * nodes), so at most routeCacheLimit() tables are kept; beyond that the
+ * oldest one is dropped and rebuilt when it is needed again.
+ */
+public class GraphTopology extends Topology {
+
+    // Default memory budget of the routing tables: 2^26 ints, 256 MB, enough
+    // to keep every table of up to 8192 nodes
+    public static final long DEFAULT_ROUTE_CACHE_INTS = 1L << 26;
+
+    /**
+     * @param edges pairs of node indices, each undirected edge listed once
+     */
+    GraphTopology(List<String> names, int[] edges) {
+        super(names);
+        int n = names.size();
+        int[] degree = new int[n];
+        for (int e : edges) {
+            degree[e]++;
+        }
+        offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + degree[i];
+        }
+        targets = new int[edges.length];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < edges.length; i += 2) {
+            targets[fill[edges[i]]++] = edges[i + 1];
+            targets[fill[edges[i + 1]]++] = edges[i];
+        }
+        routes = new AtomicReferenceArray<>(n);
+        routeCacheLimit = (int) Math.max(1, Math.min(n, DEFAULT_ROUTE_CACHE_INTS / Math.max(1, n)));
+    }
+
+    @Override
+    public int degree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    @Override
+    public int neighbor(int node, int i) {
+        return targets[offsets[node] + i];
+    }
+
+    @Override
+    public int nextHop(int from, int to) {
+        if (from == to) {
+            return -1;
+        }
+        int[] table = routes.get(to);
+        if (table == null) {
+            // Racing threads compute the same table
+            table = routesTo(to);
+            cache(to, table);
+        }
+        return table[from];
+    }
+
+    /**
+     * Build the routing tables of all destinations in parallel, instead of
+     * one by one on first use. Takes size()^2 ints, so every table has to fit
+     * into routeCacheLimit(); throws IllegalStateException otherwise.
+     */
+    public GraphTopology precomputeRoutes() {
+        if (routeCacheLimit < size()) {
+            throw new IllegalStateException("Routing tables of " + size() + " nodes need " + (long) size() * size()
+                    + " ints, only " + routeCacheLimit + " tables may be cached");
+        }
+        IntStream.range(0, size()).parallel().forEach(to -> {
+            if (routes.get(to) == null) {
+                cache(to, routesTo(to));
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Most routing tables kept at once, each size() ints. Defaults to as many
+     * as fit into DEFAULT_ROUTE_CACHE_INTS.
+     */
+    public int routeCacheLimit() {
+        return routeCacheLimit;
+    }
+
+    public GraphTopology setRouteCacheLimit(int tables) {
+        if (tables < 1) {
+            throw new IllegalArgumentException("At least one routing table has to be cached");
+        }
+        synchronized (cached) {
+            routeCacheLimit = tables;
+            while (cached.size() > tables) {
+                routes.set(cached.poll(), null);
+            }
+        }
+        return this;
+    }
+
+    private void cache(int destination, int[] table) {
+        synchronized (cached) {
+            if (routes.get(destination) != null) {
+                return;
+            }
+            if (cached.size() >= routeCacheLimit) {
+                routes.set(cached.poll(), null);
+            }
+            cached.add(destination);
+            routes.set(destination, table);
+        }
+    }
+
+    private int[] routesTo(int destination) {
+        int[] next = new int[size()];
+        Arrays.fill(next, -1);
+        int[] queue = new int[size()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = destination;
+        next[destination] = destination;
+        while (head < tail) {
+            int at = queue[head++];
+            for (int i = offsets[at]; i < offsets[at + 1]; i++) {
+                int v = targets[i];
+                if (next[v] < 0) {
+                    // v reaches the destination through at
+                    next[v] = at;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        next[destination] = -1;
+        return next;
+    }
+
+    static GraphTopology buildRandomRegular(List<String> names, int degree, long seed) {
+        int n = names.size();
+        if (degree < 0 || degree >= n || (long) n * degree % 2 != 0) {
+            throw new IllegalArgumentException("Need 0 <= degree < size and size * degree even");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        // Pair up degree stubs per node at random, restart when stuck
+        while (true) {
+            int[] edges = tryPairing(n, degree, random);
+            if (edges != null) {
+                return new GraphTopology(names, edges);
+            }
+        }
+    }
+
+    private static int[] tryPairing(int n, int degree, SplittableRandom random) {
+        int[] stubs = new int[n * degree];
+        for (int i = 0; i < stubs.length; i++) {
+            stubs[i] = i / degree;
+        }
+        int remaining = stubs.length;
+        int[] edges = new int[stubs.length];
+        int e = 0;
+        Set<Long> present = new HashSet<>();
+        int failures = 0;
+        while (remaining > 0) {
+            int i = random.nextInt(remaining);
+            int j = random.nextInt(remaining);
+            int u = stubs[i];
+            int v = stubs[j];
+            if (i == j || u == v || present.contains(edgeKey(u, v))) {
+                if (++failures > 100 * degree + 1000) {
+                    return null;
+                }
+                continue;
+            }
+            failures = 0;
+            present.add(edgeKey(u, v));
+            edges[e++] = u;
+            edges[e++] = v;
+            // Remove both stubs, the higher index first
+            int hi = Math.max(i, j);
+            int lo = Math.min(i, j);
+            stubs[hi] = stubs[--remaining];
+            stubs[lo] = stubs[--remaining];
+        }
+        return edges;
+    }
+
+    private static long edgeKey(int u, int v) {
+        return ((long) Math.min(u, v) << 32) | Math.max(u, v);
+    }
+
+    static GraphTopology buildScaleFree(List<String> names, int edgesPerNode, long seed) {
+        int n = names.size();
+        int m = edgesPerNode;
+        if (m < 1 || m >= n) {
+            throw new IllegalArgumentException("Need 1 <= edgesPerNode < size");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Integer> edges = new ArrayList<>();
+        // Every node appears once per edge end, so a uniform pick from this
+        // list is a pick proportional to degree
+        int[] ends = new int[2 * (m * (m + 1) / 2 + (n - m - 1) * m)];
+        int endCount = 0;
+        // Start with a complete graph of m + 1 nodes
+        for (int u = 0; u <= m; u++) {
+            for (int v = u + 1; v <= m; v++) {
+                edges.add(u);
+                edges.add(v);
+                ends[endCount++] = u;
+                ends[endCount++] = v;
+            }
+        }
+        int[] chosen = new int[m];
+        for (int u = m + 1; u < n; u++) {
+            int count = 0;
+            while (count < m) {
+                int v = ends[random.nextInt(endCount)];
+                boolean duplicate = false;
+                for (int k = 0; k < count; k++) {
+                    duplicate |= chosen[k] == v;
+                }
+                if (!duplicate) {
+                    chosen[count++] = v;
+                }
+            }
+            for (int k = 0; k < m; k++) {
+                edges.add(u);
+                edges.add(chosen[k]);
+                ends[endCount++] = u;
+                ends[endCount++] = chosen[k];
+            }
+        }
+        return new GraphTopology(names, edges.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final AtomicReferenceArray<int[]> routes;
+    // Destinations with a table in routes, oldest first; guards its updates
+    private final ArrayDeque<Integer> cached = new ArrayDeque<>();
+    private volatile int routeCacheLimit;
+}
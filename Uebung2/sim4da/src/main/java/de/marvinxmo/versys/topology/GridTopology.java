@@ -0,0 +1,84 @@
+package de.marvinxmo.versys.topology;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Two-dimensional grid, optionally wrapping around as a torus. Node i sits in
+ * row i / columns, column i % columns; the last row may be incomplete.
+ *
+ * Routing is dimension-ordered: first along the row to the target column,
+ * then along the column. On an incomplete last row that order can hit a
+ * missing cell, in which case the breadth-first tables of GraphTopology are
+ * used instead.
+ */
+public class GridTopology extends GraphTopology {
+
+    GridTopology(List<String> names, int columns, boolean torus) {
+        super(names, edges(names.size(), columns, torus));
+        this.columns = columns;
+        this.rows = (names.size() + columns - 1) / columns;
+        this.torus = torus;
+        this.complete = names.size() == rows * columns;
+    }
+
+    private static int[] edges(int n, int columns, boolean torus) {
+        if (columns < 1) {
+            throw new IllegalArgumentException("Grid needs at least one column");
+        }
+        int rows = (n + columns - 1) / columns;
+        // A set, because wrapping on a dimension of size 2 repeats the edge
+        Set<Long> unique = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            int r = i / columns;
+            int c = i % columns;
+            int right = c + 1 < columns ? i + 1 : (torus ? r * columns : -1);
+            int down = r + 1 < rows ? i + columns : (torus ? c : -1);
+            for (int j : new int[] { right, down }) {
+                if (j >= 0 && j < n && j != i) {
+                    unique.add(((long) Math.min(i, j) << 32) | Math.max(i, j));
+                }
+            }
+        }
+        int[] edges = new int[2 * unique.size()];
+        int e = 0;
+        for (long key : unique) {
+            edges[e++] = (int) (key >>> 32);
+            edges[e++] = (int) key;
+        }
+        return edges;
+    }
+
+    @Override
+    public int nextHop(int from, int to) {
+        if (from == to) {
+            return -1;
+        }
+        if (!complete) {
+            return super.nextHop(from, to);
+        }
+        int r = from / columns;
+        int c = from % columns;
+        if (c != to % columns) {
+            return r * columns + step(c, to % columns, columns);
+        }
+        return step(r, to / columns, rows) * columns + c;
+    }
+
+    /**
+     * Next coordinate on the way from a to b in a dimension of the given size.
+     */
+    private int step(int a, int b, int size) {
+        if (!torus) {
+            return a < b ? a + 1 : a - 1;
+        }
+        int forward = Math.floorMod(b - a, size);
+        return forward <= size - forward ? (a + 1) % size : (a + size - 1) % size;
+    }
+
+    private final int columns;
+    private final int rows;
+    private final boolean torus;
+    private final boolean complete;
+}
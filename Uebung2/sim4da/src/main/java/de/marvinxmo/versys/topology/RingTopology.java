@@ -0,0 +1,43 @@
+package de.marvinxmo.versys.topology;
+
+import java.util.List;
+
+/**
+ * Every node is connected to its predecessor and successor. Routes go the
+ * shorter way around.
+ */
+public class RingTopology extends GraphTopology {
+
+    RingTopology(List<String> names) {
+        super(names, edges(names.size()));
+    }
+
+    private static int[] edges(int n) {
+        if (n < 3) {
+            // Two nodes share a single edge, one node has none
+            return n == 2 ? new int[] { 0, 1 } : new int[0];
+        }
+        int[] edges = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            edges[2 * i] = i;
+            edges[2 * i + 1] = (i + 1) % n;
+        }
+        return edges;
+    }
+
+    @Override
+    public int nextHop(int from, int to) {
+        if (from == to) {
+            return -1;
+        }
+        int n = size();
+        int forward = Math.floorMod(to - from, n);
+        return forward <= n - forward ? (from + 1) % n : (from + n - 1) % n;
+    }
+
+    @Override
+    public int distance(int from, int to) {
+        int forward = Math.floorMod(to - from, size());
+        return Math.min(forward, size() - forward);
+    }
+}
@@ -0,0 +1,38 @@
+package de.marvinxmo.versys.topology;
+
+import java.util.List;
+
+/**
+ * Node 0 is the hub; all other nodes talk through it.
+ */
+public class StarTopology extends GraphTopology {
+
+    StarTopology(List<String> names) {
+        super(names, edges(names.size()));
+    }
+
+    private static int[] edges(int n) {
+        int[] edges = new int[2 * Math.max(0, n - 1)];
+        for (int i = 1; i < n; i++) {
+            edges[2 * (i - 1)] = 0;
+            edges[2 * (i - 1) + 1] = i;
+        }
+        return edges;
+    }
+
+    @Override
+    public int nextHop(int from, int to) {
+        if (from == to) {
+            return -1;
+        }
+        return from == 0 ? to : 0;
+    }
+
+    @Override
+    public int distance(int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        return from == 0 || to == 0 ? 1 : 2;
+    }
+}
@@ -0,0 +1,172 @@
+package de.marvinxmo.versys.topology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Undirected graph of the nodes that may talk to each other directly.
+ *
+ * Nodes are addressed by index (0..size-1) in the order of the names the
+ * topology was built from. Every topology answers nextHop() for routing:
+ * regular structures compute it directly, arbitrary graphs look it up in
+ * routing tables built by breadth-first search.
+ *
+ * Installed with Network.setTopology, a topology limits broadcasts to the
+ * sender's neighbors and lets unicasts travel over several hops.
+ */
+public abstract class Topology {
+
+    protected Topology(List<String> names) {
+        this.names = names.toArray(new String[0]);
+        this.indices = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < this.names.length; i++) {
+            if (indices.put(this.names[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate node name " + this.names[i]);
+            }
+        }
+    }
+
+    /**
+     * Every node is connected to every other node (the default full mesh).
+     */
+    public static Topology complete(List<String> names) {
+        return new CompleteTopology(names);
+    }
+
+    public static Topology ring(List<String> names) {
+        return new RingTopology(names);
+    }
+
+    /**
+     * The first node is the hub, all others are connected to it only.
+     */
+    public static Topology star(List<String> names) {
+        return new StarTopology(names);
+    }
+
+    /**
+     * Nodes laid out row by row on a grid with the given number of columns,
+     * connected to their horizontal and vertical neighbors.
+     */
+    public static Topology grid(List<String> names, int columns) {
+        return new GridTopology(names, columns, false);
+    }
+
+    /**
+     * Grid whose rows and columns wrap around.
+     */
+    public static Topology torus(List<String> names, int columns) {
+        return new GridTopology(names, columns, true);
+    }
+
+    /**
+     * Uniformly random graph in which every node has exactly degree
+     * neighbors. size * degree has to be even.
+     */
+    public static Topology randomRegular(List<String> names, int degree, long seed) {
+        return GraphTopology.buildRandomRegular(names, degree, seed);
+    }
+
+    /**
+     * Barabasi-Albert graph: every new node attaches to edgesPerNode existing
+     * nodes with probability proportional to their degree.
+     */
+    public static Topology scaleFree(List<String> names, int edgesPerNode, long seed) {
+        return GraphTopology.buildScaleFree(names, edgesPerNode, seed);
+    }
+
+    public final int size() {
+        return names.length;
+    }
+
+    public final String name(int node) {
+        return names[node];
+    }
+
+    /**
+     * Index of the named node, or -1 if it is not part of the topology.
+     */
+    public final int indexOf(String name) {
+        Integer index = indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public final boolean contains(String name) {
+        return indices.containsKey(name);
+    }
+
+    public abstract int degree(int node);
+
+    /**
+     * The i-th neighbor of node, 0 <= i < degree(node).
+     */
+    public abstract int neighbor(int node, int i);
+
+    public boolean isNeighbor(int a, int b) {
+        for (int i = 0, d = degree(a); i < d; i++) {
+            if (neighbor(a, i) == b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First node on a shortest path from `from` to `to`: `to` itself for
+     * neighbors, -1 if `to` is unreachable or equal to `from`.
+     */
+    public abstract int nextHop(int from, int to);
+
+    /**
+     * Number of hops from `from` to `to`, -1 if unreachable.
+     */
+    public int distance(int from, int to) {
+        int hops = 0;
+        for (int at = from; at != to; hops++) {
+            at = nextHop(at, to);
+            if (at < 0) {
+                return -1;
+            }
+        }
+        return hops;
+    }
+
+    public List<String> neighbors(String name) {
+        int node = indexOf(name);
+        if (node < 0) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(degree(node));
+        for (int i = 0, d = degree(node); i < d; i++) {
+            result.add(names[neighbor(node, i)]);
+        }
+        return result;
+    }
+
+    /**
+     * Nodes a message passes from `from` to `to`, ending with `to`. Empty if
+     * both are the same, null if there is no route.
+     */
+    public List<String> route(String from, String to) {
+        int at = indexOf(from);
+        int target = indexOf(to);
+        if (at < 0 || target < 0) {
+            return null;
+        }
+        List<String> path = new ArrayList<>();
+        while (at != target) {
+            at = nextHop(at, target);
+            if (at < 0) {
+                return null;
+            }
+            path.add(names[at]);
+        }
+        return path;
+    }
+
+    private final String[] names;
+    private final Map<String, Integer> indices;
+}
@@ -0,0 +1,217 @@
+package de.marvinxmo.versys.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageCodec;
+
+/**
+ * A process's view of the {@link NameService}: registers local node names,
+ * mirrors the name to address mapping of all processes and takes part in
+ * the start barrier and shutdown of sharded runs.
+ *
+ * The address of a node is the host of its process plus an int the
+ * transport chooses: the TCP port for sockets, the process slot for shared
+ * memory.
+ */
+final class Directory {
+
+    Directory(InetSocketAddress nameService, InetSocketAddress self) throws IOException {
+        this.self = self;
+        control = SocketChannel.open(nameService);
+        Thread t = new Thread(this::loop, "sim4da-directory");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    void register(String name) {
+        send(new Message().add("op", "register").add("name", name).add("port", self.getPort()));
+    }
+
+    void unregister(String name) {
+        send(new Message().add("op", "unregister").add("name", name));
+    }
+
+    /**
+     * Global start barrier: wait until parties processes are ready. Returns
+     * false on timeout or if the run was aborted (see isAborted).
+     */
+    boolean awaitStart(int parties, long timeoutMs) throws InterruptedException {
+        send(new Message().add("op", "ready").add("parties", parties));
+        return started.await(timeoutMs, TimeUnit.MILLISECONDS) && !aborted;
+    }
+
+    /**
+     * True once the name service gave up on the run because a process left
+     * before the start barrier was reached.
+     */
+    boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Send this process's results and wait until every process of the run
+     * has finished. Returns false on timeout.
+     */
+    boolean finish(Message report, long timeoutMs) throws InterruptedException {
+        send(new Message(report).add("op", "report"));
+        return stopped.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Address of the named node, null if unknown.
+     */
+    InetSocketAddress get(String name) {
+        return nodes.get(name);
+    }
+
+    boolean isLocal(InetSocketAddress address) {
+        return address.equals(self);
+    }
+
+    /**
+     * Processes other than this one with at least one node.
+     */
+    InetSocketAddress[] others() {
+        return others;
+    }
+
+    List<String> names(String except) {
+        List<String> names = new ArrayList<>(nodes.size());
+        for (String name : nodes.keySet()) {
+            if (!name.equals(except)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    boolean await(int count, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (nodes) {
+            while (nodes.size() < count && !aborted) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return false;
+                }
+                nodes.wait(left);
+            }
+        }
+        return !aborted;
+    }
+
+    void close() {
+        closed = true;
+        try {
+            control.close();
+        } catch (IOException e) {
+        }
+    }
+
+    private void send(Message m) {
+        ByteBuffer frame = Frames.encode(Frames.CONTROL, m, new MessageCodec(64));
+        synchronized (control) {
+            try {
+                while (frame.hasRemaining()) {
+                    control.write(frame);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Name service unreachable", e);
+            }
+        }
+    }
+
+    /**
+     * Applies join and leave notifications of the name service.
+     */
+    private void loop() {
+        Frames.Reader reader = new Frames.Reader(new MessageCodec());
+        try {
+            while (control.read(reader.buffer()) >= 0) {
+                reader.process((receiver, m) -> {
+                    String op = m.query("op");
+                    if (op.equals("start")) {
+                        started.countDown();
+                        return;
+                    } else if (op.equals("stop")) {
+                        stopped.countDown();
+                        return;
+                    } else if (op.equals("abort")) {
+                        aborted = true;
+                        started.countDown();
+                        stopped.countDown();
+                        synchronized (nodes) {
+                            nodes.notifyAll();
+                        }
+                        return;
+                    }
+                    String name = m.query("name");
+                    synchronized (nodes) {
+                        boolean changed = false;
+                        InetSocketAddress previous;
+                        if (op.equals("join")) {
+                            InetSocketAddress address = new InetSocketAddress(m.query("host"),
+                                    m.queryInteger("port"));
+                            previous = nodes.put(name, address);
+                            changed = count(address, 1);
+                        } else {
+                            previous = nodes.remove(name);
+                        }
+                        if (previous != null) {
+                            changed |= count(previous, -1);
+                        }
+                        if (changed) {
+                            others = processes.keySet().stream().filter(a -> !a.equals(self))
+                                    .toArray(InetSocketAddress[]::new);
+                        }
+                        nodes.notifyAll();
+                    }
+                });
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                logger.error("Lost connection to the name service", e);
+            }
+        }
+    }
+
+    /**
+     * Adjust the number of nodes of a process. True if the process gained
+     * its first or lost its last node, so others has to be rebuilt; that
+     * keeps a join O(1) with millions of nodes. Called with nodes locked.
+     */
+    private boolean count(InetSocketAddress process, int delta) {
+        int n = processes.getOrDefault(process, 0) + delta;
+        if (n <= 0) {
+            processes.remove(process);
+            return true;
+        }
+        processes.put(process, n);
+        return n == delta;
+    }
+
+    private final InetSocketAddress self;
+    private final SocketChannel control;
+    private final Map<String, InetSocketAddress> nodes = new ConcurrentHashMap<>();
+    // Number of nodes per process, guarded by nodes
+    private final Map<InetSocketAddress, Integer> processes = new HashMap<>();
+    private volatile InetSocketAddress[] others = new InetSocketAddress[0];
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean closed = false;
+    private volatile boolean aborted = false;
+    private final Logger logger = LoggerFactory.getLogger(Directory.class);
+}
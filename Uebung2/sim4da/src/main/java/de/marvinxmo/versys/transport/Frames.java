@@ -0,0 +1,122 @@
+package de.marvinxmo.versys.transport;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageCodec;
+
+/**
+ * Length-prefixed framing shared by the socket and shared memory
+ * transports and the name service.
+ *
+ * A frame is an int with the length of the rest, the receiver name (short
+ * length + UTF-8) and the message in MessageCodec encoding. The receiver
+ * is empty for name service traffic and "*" for a broadcast to every node of
+ * the receiving process.
+ */
+final class Frames {
+
+    static final String CONTROL = "";
+    static final String ALL = "*";
+
+    // Frames above this size are taken for a corrupt stream
+    static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    private Frames() {
+    }
+
+    /**
+     * Encode into a new buffer that is ready for reading.
+     */
+    static ByteBuffer encode(String receiver, Message message, MessageCodec codec) {
+        byte[] name = receiver.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = codec.encode(message);
+        ByteBuffer frame = ByteBuffer.allocate(4 + 2 + name.length + body.remaining());
+        frame.putInt(frame.capacity() - 4);
+        frame.putShort((short) name.length);
+        frame.put(name);
+        frame.put(body);
+        return frame.flip();
+    }
+
+    /**
+     * Encode at the position of out and return the frame's total length.
+     * Throws BufferOverflowException if it does not fit.
+     */
+    static int encode(String receiver, Message message, MessageCodec codec, ByteBuffer out) {
+        int start = out.position();
+        byte[] name = receiver.getBytes(StandardCharsets.UTF_8);
+        if (out.remaining() < 6 + name.length) {
+            throw new BufferOverflowException();
+        }
+        out.position(start + 4);
+        out.putShort((short) name.length);
+        out.put(name);
+        codec.encode(message, out);
+        int length = out.position() - start;
+        out.putInt(start, length - 4);
+        return length;
+    }
+
+    /**
+     * Decode the complete frame at the position of in and advance past it.
+     */
+    static void decode(ByteBuffer in, MessageCodec codec, Handler handler) {
+        int end = in.position() + 4 + in.getInt();
+        byte[] name = new byte[in.getShort()];
+        in.get(name);
+        ByteBuffer body = in.slice().limit(end - in.position());
+        Message message = codec.decode(body);
+        in.position(end);
+        handler.frame(new String(name, StandardCharsets.UTF_8), message);
+    }
+
+    interface Handler {
+        void frame(String receiver, Message message);
+    }
+
+    /**
+     * Reassembles frames from a byte stream. Bytes are read into buffer()
+     * by the caller, then process() decodes every complete frame.
+     */
+    static final class Reader {
+
+        Reader(MessageCodec codec) {
+            this.codec = codec;
+        }
+
+        /**
+         * Buffer in write mode to read the next bytes into.
+         */
+        ByteBuffer buffer() {
+            return in;
+        }
+
+        void process(Handler handler) {
+            in.flip();
+            while (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                if (length < 2 || length > MAX_FRAME) {
+                    throw new IllegalStateException("Invalid frame length " + length);
+                }
+                if (in.remaining() < 4 + length) {
+                    if (4 + length > in.capacity()) {
+                        // Grow, so the whole frame fits on the next read
+                        ByteBuffer larger = ByteBuffer.allocate(Math.max(4 + length, 2 * in.capacity()));
+                        larger.put(in);
+                        in = larger;
+                        return;
+                    }
+                    break;
+                }
+                decode(in, codec, handler);
+            }
+            in.compact();
+        }
+
+        private final MessageCodec codec;
+        private ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+    }
+}
@@ -0,0 +1,165 @@
+package de.marvinxmo.versys.transport;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageCodec;
+
+/**
+ * Single-producer/single-consumer ring of frames in a region of a memory
+ * mapped file, shared by two processes.
+ *
+ * Layout: the consumer's head and the producer's tail, each a long on its own
+ * cache line, followed by the data area. Both counters only grow; the
+ * position in the data area is the counter modulo the capacity. Frames are
+ * written in place at the tail and aligned to 8 bytes. A frame that does not
+ * fit before the end of the data area is preceded by a skip marker (length
+ * -1) and written at its start.
+ *
+ * The producer publishes a frame by a release store of the tail, the
+ * consumer frees space by a release store of the head, so no locks or
+ * syscalls are involved. Only one thread per process may produce, and one
+ * consume.
+ */
+final class MappedRing {
+
+    static final int HEADER = 128;
+    private static final int HEAD = 0;
+    private static final int TAIL = 64;
+    private static final int SKIP = -1;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    /**
+     * @param region HEADER + capacity bytes of the mapping, capacity a power
+     *               of two
+     */
+    MappedRing(ByteBuffer region, int capacity) {
+        this.region = region;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.data = region.slice(HEADER, capacity);
+        this.view = data.duplicate();
+    }
+
+    /**
+     * Called by the consumer before the producer may start, i.e. before this
+     * process announces its nodes.
+     */
+    void reset() {
+        LONGS.setRelease(region, HEAD, 0L);
+        LONGS.setRelease(region, TAIL, 0L);
+    }
+
+    /**
+     * Write a frame, waiting while the ring is full. Returns its length, or
+     * 0 if the transport shuts down while waiting.
+     */
+    int offer(String receiver, Message message, MessageCodec codec, Backoff backoff) {
+        backoff.reset();
+        long tail = (long) LONGS.getOpaque(region, TAIL);
+        while (true) {
+            long head = (long) LONGS.getAcquire(region, HEAD);
+            int free = capacity - (int) (tail - head);
+            int index = (int) (tail & mask);
+            int contiguous = capacity - index;
+            int room = Math.min(free, contiguous);
+            view.limit(index + room).position(index);
+            try {
+                int length = Frames.encode(receiver, message, codec, view);
+                LONGS.setRelease(region, TAIL, tail + align(length));
+                return length;
+            } catch (BufferOverflowException e) {
+                // Does not fit into the room left
+            }
+            if (free >= contiguous && index != 0) {
+                // Skip to the start of the data area
+                data.putInt(index, SKIP);
+                tail += contiguous;
+                LONGS.setRelease(region, TAIL, tail);
+            } else if (free == capacity) {
+                throw new IllegalArgumentException("Message does not fit into a ring of " + capacity + " bytes");
+            } else if (!backoff.idle()) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Decode all frames published so far. Returns the number of frames.
+     */
+    int poll(MessageCodec codec, Frames.Handler handler) {
+        long head = (long) LONGS.getOpaque(region, HEAD);
+        long tail = (long) LONGS.getAcquire(region, TAIL);
+        int frames = 0;
+        while (head < tail) {
+            int index = (int) (head & mask);
+            int length = data.getInt(index);
+            if (length == SKIP) {
+                head += capacity - index;
+                continue;
+            }
+            ByteBuffer in = data.duplicate().position(index);
+            Frames.decode(in, codec, handler);
+            head += align(4 + length);
+            frames++;
+        }
+        LONGS.setRelease(region, HEAD, head);
+        return frames;
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+    /**
+     * Waiting strategy of a producer facing a full ring, or a consumer facing
+     * empty rings: spin, then yield, then park for a growing interval.
+     */
+    static final class Backoff {
+
+        Backoff(BooleanSupplier running) {
+            this.running = running;
+        }
+
+        /**
+         * Wait a little. Returns false if the transport is shutting down.
+         */
+        boolean idle() {
+            if (!running.getAsBoolean()) {
+                return false;
+            }
+            if (idle < 100) {
+                Thread.onSpinWait();
+            } else if (idle < 200) {
+                Thread.yield();
+            } else {
+                // 1 us, doubling every 10 rounds up to 1 ms
+                LockSupport.parkNanos(1000L << Math.min(10, (idle - 200) / 10));
+            }
+            idle++;
+            return true;
+        }
+
+        void reset() {
+            idle = 0;
+        }
+
+        private final BooleanSupplier running;
+        private int idle = 0;
+    }
+
+    private final ByteBuffer region;
+    private final ByteBuffer data;
+    // Producer's window for encoding in place
+    private final ByteBuffer view;
+    private final int capacity;
+    private final int mask;
+}
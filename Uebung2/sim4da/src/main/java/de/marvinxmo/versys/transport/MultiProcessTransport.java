@@ -0,0 +1,289 @@
+package de.marvinxmo.versys.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageCodec;
+import de.marvinxmo.versys.NetworkConnection;
+import de.marvinxmo.versys.NodeProxy;
+import de.marvinxmo.versys.Simulator;
+import de.marvinxmo.versys.Transport;
+import de.marvinxmo.versys.UnknownNodeException;
+import de.marvinxmo.versys.metrics.NodeMetrics;
+
+/**
+ * Common part of the transports that spread the nodes of a simulation over
+ * several processes on one host. A {@link NameService} maps node names to
+ * the process they live in.
+ *
+ * Messages to nodes of the same process are handed over directly, like in
+ * the Network. Messages to other processes are encoded with MessageCodec and
+ * passed to sendRemote; a broadcast is one frame per process, fanned out by
+ * the receiving process.
+ *
+ * Runs in real time only. The latency model and topology of the Network are
+ * not applied; the delays are the real ones of the transport. Messages from
+ * other processes are delivered without a sender connection.
+ */
+public abstract class MultiProcessTransport implements Transport {
+
+    // Nodes are registered before the barrier, so the rest should be quick
+    private static final long DEFAULT_START_TIMEOUT_MS = 60_000;
+
+    private record Local(NetworkConnection nc, NodeProxy np) {
+    }
+
+    protected MultiProcessTransport() {
+        if (Simulator.getInstance().isVirtualTime()) {
+            throw new IllegalStateException("Multi-process transports run in real time only");
+        }
+    }
+
+    /**
+     * Join the name service, announcing self as the address of this
+     * process's nodes.
+     */
+    protected void connect(InetSocketAddress nameService, InetSocketAddress self) throws IOException {
+        directory = new Directory(nameService, self);
+    }
+
+    /**
+     * Send an encoded frame to another process. receiver is a node name or
+     * Frames.ALL for every node there. Returns the size of the frame in
+     * bytes, 0 if it was dropped.
+     */
+    protected abstract int sendRemote(InetSocketAddress process, String receiver, Message message);
+
+    /**
+     * Stop sending and receiving; called by shutdown() before the name
+     * service connection is closed.
+     */
+    protected abstract void close();
+
+    /**
+     * Make simulate() wait until the given number of processes is ready, so
+     * all of them start at once. 0 (the default) starts right away.
+     */
+    public void setStartBarrier(int processes) {
+        setStartBarrier(processes, DEFAULT_START_TIMEOUT_MS);
+    }
+
+    /**
+     * Start barrier that fails the process if the others are not ready
+     * within timeoutMs, e.g. because one of them crashed.
+     */
+    public void setStartBarrier(int processes, long timeoutMs) {
+        startBarrier = processes;
+        startTimeoutMs = timeoutMs;
+    }
+
+    @Override
+    public void awaitStart() {
+        if (startBarrier > 0) {
+            boolean started;
+            try {
+                started = directory.awaitStart(startBarrier, startTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted at the start barrier", e);
+            }
+            if (directory.isAborted()) {
+                throw new IllegalStateException("Run aborted: a process left before the start barrier");
+            }
+            if (!started) {
+                throw new IllegalStateException(
+                        "Not all " + startBarrier + " processes ready within " + startTimeoutMs + " ms");
+            }
+        }
+    }
+
+    /**
+     * Report this process's results to the name service and wait until
+     * every process of the run has finished, so nobody shuts down while
+     * others may still send to it. Returns false on timeout.
+     */
+    public boolean finish(Message report, long timeoutMs) throws InterruptedException {
+        return directory.finish(report, timeoutMs);
+    }
+
+    /**
+     * Messages sent by nodes of this process, broadcasts counted once.
+     */
+    public long messagesSent() {
+        return sent.sum();
+    }
+
+    /**
+     * Frames sent to other processes; a broadcast is one frame per process.
+     */
+    public long framesSent() {
+        return framesSent.sum();
+    }
+
+    /**
+     * Frames received from other processes.
+     */
+    public long framesReceived() {
+        return framesReceived.sum();
+    }
+
+    /**
+     * Wait until the directory knows at least count nodes, in all processes
+     * together. Processes call this before simulating so no node sends to
+     * a peer that has not registered yet. Returns false on timeout or if
+     * the run was aborted.
+     */
+    public boolean awaitNodes(int count, long timeoutMs) throws InterruptedException {
+        return directory.await(count, timeoutMs);
+    }
+
+    @Override
+    public void registerConnection(NetworkConnection networkConnection, NodeProxy nodeProxy) {
+        String name = networkConnection.NodeName();
+        locals.put(name, new Local(networkConnection, nodeProxy));
+        directory.register(name);
+    }
+
+    @Override
+    public void unregisterConnection(NetworkConnection networkConnection) {
+        String name = networkConnection.NodeName();
+        Local l = locals.get(name);
+        if (l != null && l.nc == networkConnection) {
+            locals.remove(name);
+            directory.unregister(name);
+        }
+    }
+
+    @Override
+    public List<NetworkConnection> getAllNetworkConnections() {
+        List<NetworkConnection> ncs = new ArrayList<>(locals.size());
+        for (Local l : locals.values()) {
+            ncs.add(l.nc);
+        }
+        return ncs;
+    }
+
+    @Override
+    public int numberOfNodes() {
+        return locals.size();
+    }
+
+    @Override
+    public List<String> neighbors(String node_name) {
+        return directory.names(node_name);
+    }
+
+    @Override
+    public void send(Message message, NetworkConnection sender, String receiver_name) throws UnknownNodeException {
+        sent.increment();
+        Message stamped = message.isPooled() ? message : message.share();
+        stamped.addHeader("sender", sender.NodeName());
+        NodeMetrics metrics = sender.metrics();
+        Local l = locals.get(receiver_name);
+        if (l != null) {
+            l.np.deliver(stamped, sender);
+            if (metrics != null) {
+                metrics.sent(receiver_name);
+            }
+            return;
+        }
+        InetSocketAddress address = directory.get(receiver_name);
+        if (address == null || directory.isLocal(address)) {
+            logger.error("Attempt to send message to non-existent node " + receiver_name);
+            throw new UnknownNodeException(receiver_name);
+        }
+        int bytes = sendRemote(address, receiver_name, stamped);
+        framesSent.increment();
+        if (metrics != null) {
+            metrics.sent(receiver_name, bytes);
+        }
+        if (message.isPooled()) {
+            message.release(); // Encoded, the receiving process decodes its own copy
+        }
+    }
+
+    @Override
+    public void send(Message message, NetworkConnection sender) {
+        sent.increment();
+        Message stamped = message.share();
+        if (message.isPooled()) {
+            message.release(); // share() copied it
+        }
+        stamped.addHeader("sender", sender.NodeName());
+        stamped.freeze();
+        NodeMetrics metrics = sender.metrics();
+        for (Local l : locals.values()) {
+            if (l.nc != sender) {
+                l.np.deliver(stamped.share(), sender);
+                if (metrics != null) {
+                    metrics.sent(l.nc.NodeName());
+                }
+            }
+        }
+        for (InetSocketAddress address : directory.others()) {
+            int bytes = sendRemote(address, Frames.ALL, stamped);
+            framesSent.increment();
+            if (metrics != null) {
+                // One frame for all nodes of the process; links are not known
+                metrics.sentBytes(bytes);
+            }
+        }
+    }
+
+    @Override
+    public Message receive(NetworkConnection receiver) {
+        return locals.get(receiver.NodeName()).np.receive();
+    }
+
+    @Override
+    public void shutdown() {
+        close();
+        directory.close();
+    }
+
+    /**
+     * Hand a frame received from another process to its local receivers.
+     */
+    protected void dispatch(String receiver, Message message) {
+        framesReceived.increment();
+        if (receiver.equals(Frames.ALL)) {
+            message.freeze();
+            for (Local l : locals.values()) {
+                l.np.deliver(message.share(), null);
+            }
+            return;
+        }
+        Local l = locals.get(receiver);
+        if (l == null) {
+            logger.warn("Dropping message for unknown node {}", receiver);
+            return;
+        }
+        l.np.deliver(message, null);
+    }
+
+    /**
+     * Codec of the calling thread, for encoding on the sender's thread.
+     */
+    protected MessageCodec codec() {
+        return codecs.get();
+    }
+
+    private final Map<String, Local> locals = new ConcurrentHashMap<>();
+    private Directory directory;
+    private volatile int startBarrier = 0;
+    private volatile long startTimeoutMs = DEFAULT_START_TIMEOUT_MS;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesReceived = new LongAdder();
+    private final ThreadLocal<MessageCodec> codecs = ThreadLocal.withInitial(MessageCodec::new);
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+}
@@ -0,0 +1,310 @@
+package de.marvinxmo.versys.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageCodec;
+
+/**
+ * Directory of the nodes of a simulation spread over several processes.
+ * Takes the role Network.registerConnection has within one JVM.
+ *
+ * Every SocketTransport keeps one connection to the name service. It
+ * registers the names of its nodes together with the port it accepts
+ * messages on, and is told about every node joining or leaving. When a
+ * transport disconnects, all of its names are removed.
+ *
+ * It also coordinates sharded runs: processes report ready and are
+ * released together once the expected number is reached (the global start
+ * barrier), and report their results when done. Nobody is told to stop
+ * before every ready process has reported or disconnected, so no process
+ * closes its sockets while others may still send to it. A process that
+ * disconnects before the barrier was reached aborts the run: the barrier could never
+ * be reached, so every process is told to give up.
+ *
+ * Traffic is low (one message per node and process), so the service uses
+ * one blocking thread per connected process.
+ *
+ * Usage: NameService [port]
+ */
+public class NameService implements Closeable {
+
+    public static final int DEFAULT_PORT = 4711;
+
+    /**
+     * Listen on the loopback interface; port 0 picks a free port.
+     */
+    public NameService(int port) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        NameService ns = new NameService(port);
+        System.out.println("sim4da name service listening on port " + ns.port());
+        ns.start().join();
+    }
+
+    public int port() {
+        return ((InetSocketAddress) server.socket().getLocalSocketAddress()).getPort();
+    }
+
+    public Thread start() {
+        Thread acceptor = new Thread(this::acceptLoop, "sim4da-name-service");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return acceptor;
+    }
+
+    private void acceptLoop() {
+        try {
+            while (true) {
+                SocketChannel channel = server.accept();
+                Client client = new Client(channel);
+                Thread t = new Thread(client::run, "sim4da-name-service-" + channel.getRemoteAddress());
+                t.setDaemon(true);
+                t.start();
+            }
+        } catch (IOException e) {
+            if (server.isOpen()) {
+                logger.error("Name service stopped accepting connections", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        synchronized (this) {
+            for (Client c : clients) {
+                c.close();
+            }
+        }
+    }
+
+    private synchronized void register(Client client, String name, int port) {
+        Entry previous = entries.put(name, new Entry(client, port));
+        if (previous != null && previous.client != client) {
+            previous.client.names.remove(name);
+        }
+        client.names.add(name);
+        Message join = join(name, client.host, port);
+        for (Client c : clients) {
+            c.send(join);
+        }
+    }
+
+    private synchronized void unregister(Client client, String name) {
+        Entry entry = entries.get(name);
+        if (entry == null || entry.client != client) {
+            return;
+        }
+        entries.remove(name);
+        client.names.remove(name);
+        Message leave = new Message().add("op", "leave").add("name", name);
+        for (Client c : clients) {
+            c.send(leave);
+        }
+    }
+
+    private synchronized void connected(Client client) {
+        clients.add(client);
+        // Tell the newcomer about everybody already registered
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            client.send(join(e.getKey(), e.getValue().client.host, e.getValue().port));
+        }
+    }
+
+    private synchronized void disconnected(Client client) {
+        clients.remove(client);
+        readyClients.remove(client);
+        for (String name : new ArrayList<>(client.names)) {
+            unregister(client, name);
+        }
+        if (expectsBarrier() && !started) {
+            abort();
+        } else if (client.ready && !client.finished) {
+            // Crashed or quit early; do not let the others wait for it
+            client.finished = true;
+            finished++;
+            releaseIfDone();
+            notifyAll();
+        }
+    }
+
+    private synchronized void ready(Client client, int parties) {
+        if (client.ready) {
+            return;
+        }
+        client.ready = true;
+        this.parties = parties;
+        readyClients.add(client);
+        if (aborted) {
+            client.send(new Message().add("op", "abort"));
+        } else if (readyClients.size() == parties) {
+            started = true;
+            Message start = new Message().add("op", "start");
+            for (Client c : readyClients) {
+                c.send(start);
+            }
+        }
+    }
+
+    /**
+     * Expect a start barrier of the given number of processes, so a
+     * process that leaves before any other reported ready already aborts
+     * the run.
+     */
+    public synchronized void expectParties(int parties) {
+        this.parties = parties;
+    }
+
+    private boolean expectsBarrier() {
+        return parties > 0;
+    }
+
+    private void abort() {
+        if (aborted) {
+            return;
+        }
+        aborted = true;
+        logger.error("A process left before the start barrier, aborting the run");
+        Message abort = new Message().add("op", "abort");
+        for (Client c : clients) {
+            c.send(abort);
+        }
+        notifyAll();
+    }
+
+    private synchronized void report(Client client, Message report) {
+        if (client.finished) {
+            return;
+        }
+        client.finished = true;
+        reports.add(report);
+        finished++;
+        releaseIfDone();
+        notifyAll();
+    }
+
+    private void releaseIfDone() {
+        if (parties > 0 && finished >= parties) {
+            Message stop = new Message().add("op", "stop");
+            for (Client c : readyClients) {
+                c.send(stop);
+            }
+        }
+    }
+
+    /**
+     * Wait until count processes have reported (or left without a report)
+     * and return the reports received. Returns early if the run was
+     * aborted.
+     */
+    public synchronized List<Message> awaitReports(int count, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (finished < count && !aborted) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                break;
+            }
+            wait(left);
+        }
+        return new ArrayList<>(reports);
+    }
+
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    private static Message join(String name, String host, int port) {
+        return new Message().add("op", "join").add("name", name).add("host", host).add("port", port);
+    }
+
+    private record Entry(Client client, int port) {
+    }
+
+    private class Client {
+
+        Client(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.host = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+        }
+
+        void run() {
+            connected(this);
+            Frames.Reader reader = new Frames.Reader(new MessageCodec());
+            try {
+                while (channel.read(reader.buffer()) >= 0) {
+                    reader.process((receiver, m) -> {
+                        switch (m.query("op")) {
+                            case "register" -> register(this, m.query("name"), m.queryInteger("port"));
+                            case "unregister" -> unregister(this, m.query("name"));
+                            case "ready" -> ready(this, m.queryInteger("parties"));
+                            case "report" -> report(this, m);
+                            default -> logger.warn("Unknown name service request {}", m.query("op"));
+                        }
+                    });
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Connection to {} lost: {}", host, e.getMessage());
+            }
+            disconnected(this);
+            close();
+        }
+
+        /**
+         * Called with the service's lock held, so writes are not interleaved.
+         */
+        void send(Message m) {
+            ByteBuffer frame = Frames.encode(Frames.CONTROL, m, codec);
+            try {
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+            } catch (IOException e) {
+                logger.debug("Write to {} failed: {}", host, e.getMessage());
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+            }
+        }
+
+        private final SocketChannel channel;
+        private final String host;
+        private final List<String> names = new ArrayList<>();
+        private final MessageCodec codec = new MessageCodec();
+        private boolean ready = false;
+        private boolean finished = false;
+    }
+
+    private final ServerSocketChannel server;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<Client> clients = new ArrayList<>();
+    // Start barrier and reports of a sharded run
+    private final List<Client> readyClients = new ArrayList<>();
+    private final List<Message> reports = new ArrayList<>();
+    private int parties = 0;
+    private int finished = 0;
+    private boolean started = false;
+    private boolean aborted = false;
+    private final Logger logger = LoggerFactory.getLogger(NameService.class);
+}
@@ -0,0 +1,151 @@
+package de.marvinxmo.versys.transport;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageCodec;
+
+/**
+ * Multi-process transport over a memory mapped file, for processes on one
+ * host that want to avoid the latency and syscalls of TCP loopback.
+ *
+ * A fixed number of processes share the file. Each process has a slot, and
+ * every ordered pair of slots has its own {@link MappedRing}. Senders encode
+ * frames directly into the ring to the receiving process (one sending thread
+ * per ring at a time); one reader thread per process polls its incoming
+ * rings and delivers to the local nodes. Neither side makes a syscall while
+ * messages flow; an idle reader backs off to parking.
+ *
+ * The name service is only used to find out which slot a node lives in.
+ *
+ * Usage, in process slot of processes:
+ *
+ * <pre>
+ * SharedMemoryTransport transport = SharedMemoryTransport.open(file, processes, slot, NameService.DEFAULT_PORT);
+ * SimulationBehavior.setTransport(transport);
+ * // create this process's nodes
+ * transport.awaitNodes(total, 10_000);
+ * Simulator.getInstance().simulate(seconds);
+ * </pre>
+ */
+public class SharedMemoryTransport extends MultiProcessTransport {
+
+    public static final int DEFAULT_RING_CAPACITY = 1 << 20;
+
+    /**
+     * @param ringCapacity bytes per ring, a power of two; must be the same in
+     *                     all processes
+     */
+    public SharedMemoryTransport(Path file, int processes, int slot, int ringCapacity, InetSocketAddress nameService)
+            throws IOException {
+        if (Integer.bitCount(ringCapacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity has to be a power of two");
+        }
+        if (slot < 0 || slot >= processes) {
+            throw new IllegalArgumentException("Slot " + slot + " outside of 0.." + (processes - 1));
+        }
+        long ringSize = MappedRing.HEADER + ringCapacity;
+        long size = ringSize * processes * processes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Rings of all process pairs exceed 2 GiB, use a smaller capacity");
+        }
+        this.slot = slot;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            outgoing = new MappedRing[processes];
+            incoming = new MappedRing[processes];
+            for (int other = 0; other < processes; other++) {
+                if (other != slot) {
+                    outgoing[other] = new MappedRing(
+                            mapping.slice((int) (ringSize * (slot * processes + other)), (int) ringSize), ringCapacity);
+                    incoming[other] = new MappedRing(
+                            mapping.slice((int) (ringSize * (other * processes + slot)), (int) ringSize), ringCapacity);
+                    // Before anyone can know about our nodes
+                    incoming[other].reset();
+                }
+            }
+        }
+        backoffs = new MappedRing.Backoff[processes];
+        for (int i = 0; i < processes; i++) {
+            backoffs[i] = new MappedRing.Backoff(() -> running);
+        }
+        connect(nameService, new InetSocketAddress(InetAddress.getLoopbackAddress(), slot));
+        reader = new Thread(this::readLoop, "sim4da-shm-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Open with the default ring capacity and a name service on the loopback
+     * interface.
+     */
+    public static SharedMemoryTransport open(Path file, int processes, int slot, int nameServicePort)
+            throws IOException {
+        return new SharedMemoryTransport(file, processes, slot, DEFAULT_RING_CAPACITY,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), nameServicePort));
+    }
+
+    public int slot() {
+        return slot;
+    }
+
+    @Override
+    protected int sendRemote(InetSocketAddress process, String receiver, Message message) {
+        int other = process.getPort();
+        MappedRing ring = outgoing[other];
+        synchronized (ring) {
+            int bytes = ring.offer(receiver, message, codec(), backoffs[other]);
+            if (bytes == 0) {
+                logger.debug("Dropping message to {}, transport shut down", receiver);
+            }
+            return bytes;
+        }
+    }
+
+    @Override
+    protected void close() {
+        running = false;
+        try {
+            reader.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readLoop() {
+        MessageCodec codec = new MessageCodec();
+        MappedRing.Backoff backoff = new MappedRing.Backoff(() -> running);
+        while (true) {
+            int frames = 0;
+            for (MappedRing ring : incoming) {
+                if (ring != null) {
+                    frames += ring.poll(codec, this::dispatch);
+                }
+            }
+            if (frames > 0) {
+                backoff.reset();
+            } else if (!backoff.idle()) {
+                return;
+            }
+        }
+    }
+
+    private final int slot;
+    private final MappedRing[] outgoing;
+    private final MappedRing[] incoming;
+    private final MappedRing.Backoff[] backoffs;
+    private final Thread reader;
+    private volatile boolean running = true;
+    private final Logger logger = LoggerFactory.getLogger(SharedMemoryTransport.class);
+}
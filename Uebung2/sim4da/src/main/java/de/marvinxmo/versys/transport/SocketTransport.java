@@ -0,0 +1,316 @@
+package de.marvinxmo.versys.transport;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageCodec;
+
+/**
+ * Multi-process transport over TCP on the loopback interface.
+ *
+ * Senders encode on their own thread and queue the frame per peer process.
+ * A single I/O thread runs a Selector over all sockets: it copies as many
+ * queued frames as fit into the peer's write buffer and sends them with one
+ * write, so a busy sender pays about one syscall per buffer and not per
+ * message.
+ *
+ * Usage:
+ *
+ * <pre>
+ * SocketTransport transport = SocketTransport.connect(NameService.DEFAULT_PORT);
+ * SimulationBehavior.setTransport(transport);
+ * // create this process's nodes
+ * transport.awaitNodes(total, 10_000);
+ * Simulator.getInstance().simulate(seconds);
+ * </pre>
+ */
+public class SocketTransport extends MultiProcessTransport {
+
+    private static final int WRITE_BUFFER = 64 * 1024;
+    // Rounds per peer before the I/O thread turns to other sockets
+    private static final int MAX_ROUNDS = 16;
+
+    public SocketTransport(InetSocketAddress nameService) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        self = (InetSocketAddress) server.getLocalAddress();
+        connect(nameService, self);
+        io = new Thread(this::ioLoop, "sim4da-socket-io");
+        io.setDaemon(true);
+        io.start();
+    }
+
+    /**
+     * Connect to a name service on the loopback interface.
+     */
+    public static SocketTransport connect(int nameServicePort) throws IOException {
+        return new SocketTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), nameServicePort));
+    }
+
+    /**
+     * Address other processes send to.
+     */
+    public InetSocketAddress address() {
+        return self;
+    }
+
+    @Override
+    protected int sendRemote(InetSocketAddress process, String receiver, Message message) {
+        Peer p = peer(process);
+        if (p.failed) {
+            // The process is gone; queued frames would never leave
+            return 0;
+        }
+        ByteBuffer frame = Frames.encode(receiver, message, codec());
+        int bytes = frame.remaining();
+        p.enqueue(frame);
+        return bytes;
+    }
+
+    /**
+     * Send what is still queued (for at most a second), then close all
+     * sockets.
+     */
+    @Override
+    protected void close() {
+        long deadline = System.currentTimeMillis() + 1000;
+        for (Peer p : peers.values()) {
+            while (p.scheduled.get() && !p.failed && System.currentTimeMillis() < deadline) {
+                Thread.onSpinWait();
+            }
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            io.join(1000);
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException | InterruptedException e) {
+            logger.debug("Error while closing the socket transport: {}", e.getMessage());
+        }
+    }
+
+    private Peer peer(InetSocketAddress address) {
+        Peer p = peers.get(address);
+        return p != null ? p : peers.computeIfAbsent(address, Peer::new);
+    }
+
+    /**
+     * Outgoing connection to another process. Any thread enqueues frames,
+     * only the I/O thread writes them.
+     */
+    private class Peer {
+
+        Peer(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        void enqueue(ByteBuffer frame) {
+            queue.offer(frame);
+            // Only the first frame of a batch wakes the I/O thread
+            if (scheduled.compareAndSet(false, true)) {
+                pending.offer(this);
+                selector.wakeup();
+            }
+        }
+
+        final InetSocketAddress address;
+        final Queue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER);
+        ByteBuffer partial = null;
+        SocketChannel channel = null;
+        SelectionKey key = null;
+        volatile boolean failed = false;
+    }
+
+    private void ioLoop() {
+        MessageCodec codec = new MessageCodec();
+        try {
+            while (running) {
+                selector.select();
+                Peer p;
+                while ((p = pending.poll()) != null) {
+                    flush(p);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(codec);
+                    } else if (key.attachment() instanceof Peer peer) {
+                        if (key.isConnectable()) {
+                            connected(peer);
+                        } else if (key.isWritable()) {
+                            flush(peer);
+                        }
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (running) {
+                logger.error("Socket transport I/O thread failed", e);
+            }
+        }
+    }
+
+    private void accept(MessageCodec codec) throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Frames.Reader(codec));
+        }
+    }
+
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Frames.Reader reader = (Frames.Reader) key.attachment();
+        try {
+            if (channel.read(reader.buffer()) < 0) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            reader.process(this::dispatch);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Dropping connection from another process", e);
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void connected(Peer p) {
+        try {
+            if (p.channel.finishConnect()) {
+                p.key.interestOps(0);
+                flush(p);
+            }
+        } catch (IOException e) {
+            fail(p, e);
+        }
+    }
+
+    /**
+     * Write queued frames until the queue is empty or the socket is full.
+     */
+    private void flush(Peer p) {
+        if (p.failed) {
+            // Frames that raced with fail(); sendRemote drops later ones
+            p.queue.clear();
+            p.scheduled.set(false);
+            return;
+        }
+        try {
+            if (p.channel == null) {
+                p.channel = SocketChannel.open();
+                p.channel.configureBlocking(false);
+                p.channel.socket().setTcpNoDelay(true);
+                boolean done = p.channel.connect(p.address);
+                p.key = p.channel.register(selector, done ? 0 : SelectionKey.OP_CONNECT, p);
+                if (!done) {
+                    return; // Flushed once connected
+                }
+            }
+            if (p.channel.isConnectionPending()) {
+                return;
+            }
+            for (int round = 0; round < MAX_ROUNDS; round++) {
+                fill(p);
+                p.out.flip();
+                p.channel.write(p.out);
+                p.out.compact();
+                if (p.out.position() > 0) {
+                    // Socket buffer is full, continue when writable
+                    p.key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                if (p.partial == null && p.queue.isEmpty()) {
+                    p.key.interestOps(0);
+                    p.scheduled.set(false);
+                    // A frame enqueued right before the reset found scheduled still set
+                    if (!p.queue.isEmpty() && p.scheduled.compareAndSet(false, true)) {
+                        pending.offer(p);
+                    }
+                    return;
+                }
+            }
+            pending.offer(p); // Let other peers and readers have their turn
+        } catch (IOException e) {
+            fail(p, e);
+        }
+    }
+
+    /**
+     * Copy queued frames into the write buffer as long as they fit.
+     */
+    private static void fill(Peer p) {
+        ByteBuffer out = p.out;
+        while (out.hasRemaining()) {
+            if (p.partial == null) {
+                p.partial = p.queue.poll();
+                if (p.partial == null) {
+                    return;
+                }
+            }
+            ByteBuffer f = p.partial;
+            if (f.remaining() <= out.remaining()) {
+                out.put(f);
+                p.partial = null;
+            } else {
+                int limit = f.limit();
+                f.limit(f.position() + out.remaining());
+                out.put(f);
+                f.limit(limit);
+            }
+        }
+    }
+
+    private void fail(Peer p, IOException e) {
+        logger.error("Connection to " + p.address + " failed, dropping its messages", e);
+        p.failed = true;
+        p.queue.clear();
+        p.scheduled.set(false);
+        if (p.key != null) {
+            p.key.cancel();
+        }
+    }
+
+    private final Map<InetSocketAddress, Peer> peers = new ConcurrentHashMap<>();
+    private final Queue<Peer> pending = new ConcurrentLinkedQueue<>();
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final InetSocketAddress self;
+    private final Thread io;
+    private volatile boolean running = true;
+    private final Logger logger = LoggerFactory.getLogger(SocketTransport.class);
+}
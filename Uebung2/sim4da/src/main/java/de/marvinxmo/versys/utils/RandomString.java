@@ -3,7 +3,7 @@ package de.marvinxmo.versys.utils;
 import java.security.SecureRandom;
 import java.util.Locale;
 import java.util.Objects;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public class RandomString {
 
@@ -24,13 +24,13 @@ public class RandomString {
 
     public static final String alphanum = upper + lower + digits;
 
-    private final Random random;
+    private final RandomGenerator random;
 
     private final char[] symbols;
 
     private final char[] buf;
 
-    public RandomString(int length, Random random, String symbols) {
+    public RandomString(int length, RandomGenerator random, String symbols) {
         if (length < 1)
             throw new IllegalArgumentException();
         if (symbols.length() < 2)
@@ -43,7 +43,7 @@ public class RandomString {
     /**
      * Create an alphanumeric string generator.
      */
-    public RandomString(int length, Random random) {
+    public RandomString(int length, RandomGenerator random) {
         this(length, random, alphanum);
     }
 
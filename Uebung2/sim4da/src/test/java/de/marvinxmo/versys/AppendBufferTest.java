@@ -0,0 +1,110 @@
+package de.marvinxmo.versys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiFunction;
+import java.util.function.ToLongBiFunction;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Appending to DoubleArray, LongArray and IntArray. Every test runs once per
+ * array type.
+ */
+class AppendBufferTest {
+
+    /**
+     * One array type: the empty array, append, and get as long.
+     */
+    private record Type<T>(String name, T empty, BiFunction<T, Integer, T> append,
+            ToLongBiFunction<T, Integer> get) {
+
+        // 0, 1, ..., length - 1
+        T range(int length) {
+            T a = empty;
+            for (int i = 0; i < length; i++) {
+                a = append.apply(a, i);
+            }
+            return a;
+        }
+    }
+
+    private static final List<Type<?>> TYPES = List.of(
+            new Type<>("double", DoubleArray.of(), (a, v) -> a.append(v), (a, i) -> (long) a.get(i)),
+            new Type<>("long", LongArray.of(), (a, v) -> a.append(v), (a, i) -> a.get(i)),
+            new Type<>("int", IntArray.of(), (a, v) -> a.append(v), (a, i) -> a.get(i)));
+
+    @Test
+    void appendsToTheSameArrayDoNotShareASlot() {
+        for (Type<?> type : TYPES) {
+            appendTwice(type);
+        }
+    }
+
+    @Test
+    void concurrentAppendsToTheSameArrayDoNotShareASlot() throws Exception {
+        for (Type<?> type : TYPES) {
+            appendConcurrently(type);
+        }
+    }
+
+    private static <T> void appendTwice(Type<T> type) {
+        // Lengths at, below and right after the capacity of the buffer
+        for (int length : new int[] { 0, 3, 7, 8, 9, 16 }) {
+            T base = type.range(length);
+            T first = type.append().apply(base, 100);
+            T second = type.append().apply(base, 200);
+            T third = type.append().apply(first, 300);
+            String label = type.name() + ", length " + length;
+            assertEquals(100, type.get().applyAsLong(first, length), label);
+            assertEquals(200, type.get().applyAsLong(second, length), label);
+            assertEquals(100, type.get().applyAsLong(third, length), label);
+            assertEquals(300, type.get().applyAsLong(third, length + 1), label);
+            assertEquals(type.range(length), base, label);
+            assertNotEquals(first, second, label);
+        }
+    }
+
+    private static <T> void appendConcurrently(Type<T> type) throws Exception {
+        int rounds = 20_000;
+        List<T> bases = new ArrayList<>(rounds);
+        for (int i = 0; i < rounds; i++) {
+            bases.add(type.range(i % 12));
+        }
+        Object[][] results = new Object[2][rounds];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < 2; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < rounds; i++) {
+                    results[thread][i] = type.append().apply(bases.get(i), thread + 1);
+                    if (i % 64 == 0) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (int i = 0; i < rounds; i++) {
+            for (int t = 0; t < 2; t++) {
+                @SuppressWarnings("unchecked")
+                T result = (T) results[t][i];
+                assertEquals(t + 1, type.get().applyAsLong(result, i % 12), type.name() + ", round " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package de.marvinxmo.versys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Both mailbox implementations against the Mailbox contract. Every test runs
+ * once per MailboxType.
+ */
+class MailboxTest {
+
+    private static final int PRODUCERS = 4;
+
+    @Test
+    void keepsTheOrderOfEachProducer() throws Exception {
+        for (MailboxType type : MailboxType.values()) {
+            int perProducer = 20_000;
+            Mailbox mailbox = type.newMailbox();
+            Message[] producers = new Message[PRODUCERS];
+            List<Thread> threads = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int p = 0; p < PRODUCERS; p++) {
+                Message message = new Message().add("producer", p);
+                producers[p] = message;
+                threads.add(start(() -> {
+                    await(start);
+                    // The send time doubles as the sequence number
+                    for (int i = 0; i < perProducer; i++) {
+                        mailbox.deliver(new Envelope(message, null, i));
+                    }
+                }));
+            }
+            start.countDown();
+
+            long[] next = new long[PRODUCERS];
+            for (int i = 0; i < PRODUCERS * perProducer; i++) {
+                Envelope e = mailbox.receive(TimeUnit.SECONDS.toNanos(10));
+                assertTrue(e != null, type + ": message " + i + " lost");
+                int p = indexOf(producers, e.message());
+                assertEquals(next[p]++, e.sendTime(), type + ": producer " + p + " out of order");
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+            assertNull(mailbox.tryReceive(), type.toString());
+            assertEquals(0, mailbox.size(), type.toString());
+        }
+    }
+
+    @Test
+    void wakesTheReceiverForEveryDelivery() throws Exception {
+        for (MailboxType type : MailboxType.values()) {
+            int rounds = 10_000;
+            Mailbox mailbox = type.newMailbox();
+            Message message = new Message();
+            AtomicInteger received = new AtomicInteger();
+            // Deliver one message at a time, each only once the receiver took
+            // the previous one, so nearly every delivery races with the
+            // receiver going to sleep
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                int producer = p;
+                threads.add(start(() -> {
+                    for (int i = producer; i < rounds; i += PRODUCERS) {
+                        while (received.get() < i) {
+                            Thread.yield();
+                        }
+                        mailbox.deliver(new Envelope(message, null, i));
+                    }
+                }));
+            }
+
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread receiver = start(() -> {
+                try {
+                    for (int i = 0; i < rounds; i++) {
+                        assertEquals(i, mailbox.receive().sendTime());
+                        received.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            receiver.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse(receiver.isAlive(), type + ": receiver stuck after " + received.get() + " messages");
+            if (failure.get() != null) {
+                throw new AssertionError(type.toString(), failure.get());
+            }
+            for (Thread t : threads) {
+                t.join();
+            }
+        }
+    }
+
+    @Test
+    void timedReceiveReturnsNullAtTheDeadline() throws Exception {
+        for (MailboxType type : MailboxType.values()) {
+            Mailbox mailbox = type.newMailbox();
+            assertNull(mailbox.tryReceive(), type.toString());
+            assertNull(mailbox.receive(0), type.toString());
+
+            long start = System.nanoTime();
+            assertNull(mailbox.receive(TimeUnit.MILLISECONDS.toNanos(50)), type.toString());
+            long waited = System.nanoTime() - start;
+            assertTrue(waited >= TimeUnit.MILLISECONDS.toNanos(50), type + ": returned after " + waited + " ns");
+
+            Message message = new Message();
+            Thread producer = start(() -> {
+                sleep(20);
+                mailbox.deliver(new Envelope(message, null));
+            });
+            Envelope e = mailbox.receive(TimeUnit.SECONDS.toNanos(10));
+            assertTrue(e != null, type.toString());
+            assertSame(message, e.message(), type.toString());
+            producer.join();
+        }
+    }
+
+    @Test
+    void timedReceiveEndsAtTheVirtualDeadline() throws Exception {
+        Simulator simulator = Simulator.getInstance();
+        simulator.setTimeMode(TimeMode.VIRTUAL_TIME);
+        try {
+            // A single run covers both types, the scheduler stops afterwards
+            List<Runnable> checks = new ArrayList<>();
+            for (MailboxType type : MailboxType.values()) {
+                Mailbox mailbox = type.newMailbox();
+                Message message = new Message();
+                long[] wokeAt = new long[2];
+                Envelope[] got = new Envelope[2];
+                simulator.startThread(type + "-receiver", true, () -> {
+                    try {
+                        // Nothing arrives: null once 50 ms of virtual time passed
+                        got[0] = mailbox.receive(TimeUnit.MILLISECONDS.toNanos(50));
+                        wokeAt[0] = simulator.currentTimeMillis();
+                        // Delivered at 70 ms, well before the deadline at 1050 ms
+                        got[1] = mailbox.receive(TimeUnit.SECONDS.toNanos(1));
+                        wokeAt[1] = simulator.currentTimeMillis();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                simulator.schedule(70, () -> mailbox.deliver(new Envelope(message, null)));
+                checks.add(() -> {
+                    assertNull(got[0], type.toString());
+                    assertEquals(50, wokeAt[0], type.toString());
+                    assertSame(message, got[1] == null ? null : got[1].message(), type.toString());
+                    assertEquals(70, wokeAt[1], type.toString());
+                });
+            }
+            simulator.simulate(1);
+            checks.forEach(Runnable::run);
+        } finally {
+            simulator.setTimeMode(TimeMode.REAL_TIME);
+        }
+    }
+
+    private static Thread start(Runnable task) {
+        Thread t = new Thread(task);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static int indexOf(Message[] producers, Message message) {
+        for (int i = 0; i < producers.length; i++) {
+            if (producers[i] == message) {
+                return i;
+            }
+        }
+        throw new AssertionError("Unknown message " + message);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package de.marvinxmo.versys;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class MessageCodecTest {
+
+    private final MessageCodec codec = new MessageCodec();
+
+    @Test
+    void roundTripsHeaderAndPayload() {
+        Message message = new Message()
+                .add("type", "WRITE")
+                .add("key", "x")
+                .add("value", 42)
+                .add("empty", "")
+                .add("missing", (String) null)
+                .add("text", "Gr\u00fc\u00dfe aus K\u00f6ln, \u00bd \u20ac \u2713")
+                .addHeader("sender", "Node0")
+                .addHeader("call", "17")
+                .addWithCategory("Trace", "hop", "3");
+
+        Message decoded = roundTrip(message);
+
+        assertEquals(message.content(), decoded.content());
+        assertEquals("WRITE", decoded.type());
+        assertEquals(42, decoded.queryInteger("value"));
+        assertEquals("", decoded.query("empty"));
+        assertNull(decoded.query("missing"));
+        assertEquals("Gr\u00fc\u00dfe aus K\u00f6ln, \u00bd \u20ac \u2713", decoded.query("text"));
+        assertEquals("Node0", decoded.queryHeader("sender"));
+        assertEquals("3", decoded.queryWithCategory("Trace", "hop"));
+        assertEquals(0, decoded.arrays().size());
+    }
+
+    @Test
+    void roundTripsArrays() {
+        Message message = new Message()
+                .add("type", "STATS")
+                .add("rtt", new double[] { 1.5, -0.0, Double.NaN, Double.NEGATIVE_INFINITY, Double.MIN_VALUE })
+                .add("clock", new long[] { 0, -1, Long.MIN_VALUE, Long.MAX_VALUE })
+                .add("votes", new int[] { 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 300 })
+                .add("none", new int[0]);
+
+        Message decoded = roundTrip(message);
+
+        assertEquals(message.content(), decoded.content());
+        assertEquals(message.arrays(), decoded.arrays());
+        assertArrayEquals(message.queryDoubles("rtt").toArray(), decoded.queryDoubles("rtt").toArray());
+        assertArrayEquals(message.queryLongs("clock").toArray(), decoded.queryLongs("clock").toArray());
+        assertArrayEquals(message.queryInts("votes").toArray(), decoded.queryInts("votes").toArray());
+        assertEquals(0, decoded.queryInts("none").length());
+    }
+
+    @Test
+    void roundTripsThroughDirectBuffersAndGrowsItsOwnBuffer() {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            large.append("p\u00e4yload ").append(i);
+        }
+        Message message = new Message().add("blob", large.toString()).add("ids", new long[500]);
+
+        ByteBuffer encoded = new MessageCodec(4).encode(message);
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.remaining());
+        direct.put(encoded).flip();
+        Message decoded = codec.decode(direct);
+
+        assertEquals(message.content(), decoded.content());
+        assertEquals(message.arrays(), decoded.arrays());
+        assertFalse(direct.hasRemaining());
+    }
+
+    @Test
+    void decodesFramesBackToBack() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec.encode(new Message().add("n", 1), buffer);
+        codec.encode(new Message().add("n", 2).add("xs", new int[] { 7 }), buffer);
+        buffer.flip();
+
+        assertEquals(1, codec.decode(buffer).queryInteger("n"));
+        Message second = codec.decode(buffer);
+        assertEquals(2, second.queryInteger("n"));
+        assertEquals(7, second.queryInts("xs").get(0));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void writesWellKnownKeysAsTableIndex() {
+        // Header (index 1) with sender (index 2) = "a", no arrays
+        assertArrayEquals(new byte[] { 2, 1, 3, 1, 5, 2, 'a', 0 },
+                bytes(new Message().addHeader("sender", "a")));
+        // Other keys are written as their length shifted left, then the bytes
+        assertArrayEquals(new byte[] { 2, 1, 3, 1, 8, 'a', 'b', 'c', 'd', 0, 0 },
+                bytes(new Message().addHeader("abcd", null)));
+        // Recorded traces depend on the table order
+        assertArrayEquals(new byte[] { 2, 1, 1, 1, 25, 1, 0 },
+                bytes(new Message().add("newValue", "")));
+        assertArrayEquals(new byte[] { 2, 1, 3, 1, 35, 1, 0 },
+                bytes(new Message().addHeader("sseq", "")));
+    }
+
+    @Test
+    void decodesVersionOneFrames() {
+        // Version 1 has no array section; the byte after the frame is kept
+        ByteBuffer frame = ByteBuffer.wrap(new byte[] {
+                1, 2,
+                1, 1, 7, 6, 'W', 'R', 'I', 'T', 'E',
+                3, 1, 5, 6, 'N', 'o', 'd', 'e', '0',
+                99 });
+
+        Message decoded = codec.decode(frame);
+
+        assertEquals("WRITE", decoded.type());
+        assertEquals("Node0", decoded.queryHeader("sender"));
+        assertEquals(0, decoded.arrays().size());
+        assertEquals(1, frame.remaining());
+    }
+
+    @Test
+    void rejectsUnknownVersionsAndKeys() {
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(ByteBuffer.wrap(new byte[] { 0, 0 })));
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decode(ByteBuffer.wrap(new byte[] { MessageCodec.VERSION + 1, 0 })));
+        // Key index 100 is past the end of the table
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decode(ByteBuffer.wrap(new byte[] { 2, 1, (byte) 0xC9, 0x01, 0, 0 })));
+    }
+
+    @Test
+    void rejectsTruncatedInput() {
+        Message message = new Message()
+                .add("type", "STATS")
+                .add("text", "Gr\u00fc\u00dfe")
+                .addHeader("sender", "Node0")
+                .add("rtt", new double[] { 1.5, 2.5 })
+                .add("clock", new long[] { Long.MAX_VALUE })
+                .add("votes", new int[] { 300 });
+        byte[] frame = bytes(message);
+
+        for (int length = 0; length < frame.length; length++) {
+            ByteBuffer truncated = ByteBuffer.wrap(frame, 0, length);
+            assertThrows(BufferUnderflowException.class, () -> codec.decode(truncated),
+                    "frame cut after " + length + " of " + frame.length + " bytes");
+        }
+    }
+
+    @Test
+    void rejectsArrayLengthsTheFrameCannotHold() {
+        // No categories, one array under "value" (index 5): type, length, values
+        byte[] doubles = new byte[6 + 16];
+        System.arraycopy(new byte[] { 2, 0, 1, 11, 0, 2 }, 0, doubles, 0, 6);
+        assertEquals(2, codec.decode(ByteBuffer.wrap(doubles)).queryDoubles("value").length());
+        assertThrows(BufferUnderflowException.class,
+                () -> codec.decode(ByteBuffer.wrap(doubles, 0, doubles.length - 1)));
+
+        // Length Integer.MAX_VALUE would allocate gigabytes before failing
+        for (byte type = 0; type <= 2; type++) {
+            ByteBuffer huge = ByteBuffer.wrap(new byte[] { 2, 0, 1, 11, type, -1, -1, -1, -1, 7, 0, 0 });
+            assertThrows(BufferUnderflowException.class, () -> codec.decode(huge), "type " + type);
+            ByteBuffer negative = ByteBuffer.wrap(new byte[] { 2, 0, 1, 11, type, -1, -1, -1, -1, 15, 0, 0 });
+            assertThrows(IllegalArgumentException.class, () -> codec.decode(negative), "type " + type);
+        }
+    }
+
+    private Message roundTrip(Message message) {
+        return new MessageCodec().decode(codec.encode(message));
+    }
+
+    private byte[] bytes(Message message) {
+        ByteBuffer encoded = codec.encode(message);
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,137 @@
+package de.marvinxmo.versys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import de.marvinxmo.versys.latency.LatencyModel;
+
+class ParallelSchedulerTest {
+
+    private static final int NODES = 8;
+    private static final int HOPS = 40;
+
+    @Test
+    void oneAndFourWorkersGiveTheSameRun() throws Exception {
+        List<String> sequential = fork(1);
+        List<String> parallel = fork(4);
+
+        // Every node starts a token that travels HOPS hops
+        assertEquals(NODES * HOPS, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void rejectsDelaysBetweenPartitionsBelowTheLookahead() {
+        ParallelScheduler scheduler = new ParallelScheduler(2);
+        AtomicInteger delivered = new AtomicInteger();
+        // Within a partition any delay is fine, across partitions 5 ms are needed
+        scheduler.partition(0).schedule(0, () -> {
+            scheduler.schedule(0, 1, delivered::incrementAndGet);
+            scheduler.schedule(1, 5, delivered::incrementAndGet);
+        });
+        scheduler.run(100, 5);
+        assertEquals(2, delivered.get());
+
+        ParallelScheduler violating = new ParallelScheduler(2);
+        violating.partition(0).schedule(0, () -> violating.schedule(1, 4, delivered::incrementAndGet));
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> violating.run(100, 5));
+        assertTrue(e.getMessage().contains("below the lookahead"), e.getMessage());
+    }
+
+    /**
+     * Run the ring in a child JVM, since Simulator and Network are
+     * singletons. Returns the receive log, one line per node and message in
+     * receive order.
+     */
+    private static List<String> fork(int workers) throws IOException, InterruptedException {
+        String classpath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        Process p = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classpath, Ring.class.getName(), String.valueOf(workers))
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        List<String> log = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("R ")) {
+                    log.add(line);
+                }
+            }
+        }
+        assertTrue(p.waitFor(60, TimeUnit.SECONDS), "ring with " + workers + " workers did not finish");
+        assertEquals(0, p.exitValue());
+        return log;
+    }
+
+    /**
+     * Every node sends a token around the ring with a constant latency of
+     * 5 ms. Each hop carries a value drawn from the forwarding node's random
+     * stream; every node logs the clock, token, hop and value of what it
+     * receives.
+     */
+    static class Ring extends Node {
+
+        public static void main(String[] args) {
+            Simulator simulator = Simulator.getInstance();
+            simulator.setTimeMode(TimeMode.VIRTUAL_TIME);
+            simulator.setParallelism(Integer.parseInt(args[0]));
+            SimulationBehavior.setSeed(15);
+            SimulationBehavior.setLatencyModel(LatencyModel.constant(5));
+            List<Ring> ring = new ArrayList<>();
+            for (int i = 0; i < NODES; i++) {
+                ring.add(new Ring(i));
+            }
+            simulator.simulate();
+            for (Ring node : ring) {
+                for (String line : node.log) {
+                    System.out.println("R " + node.NodeName() + " " + line);
+                }
+            }
+            System.out.flush();
+            Runtime.getRuntime().halt(0);
+        }
+
+        Ring(int id) {
+            super("N" + id);
+            this.id = id;
+        }
+
+        @Override
+        protected void engage() {
+            forward(id, 1);
+            while (true) {
+                Message m = receive();
+                if (m == null) {
+                    return;
+                }
+                int hop = m.queryInteger("hop");
+                log.add(currentTimeMillis() + " " + m.query("token") + " " + hop + " " + m.query("value"));
+                if (hop < HOPS) {
+                    forward(m.queryInteger("token"), hop + 1);
+                }
+            }
+        }
+
+        private void forward(int token, int hop) {
+            Message m = new Message().add("token", token).add("hop", hop)
+                    .add("value", RandomStreams.current().nextInt(1000));
+            sendBlindly(m, "N" + (id + 1) % NODES);
+        }
+
+        private final int id;
+        // Only touched by the node's thread, read after the run
+        private final List<String> log = new ArrayList<>();
+    }
+}
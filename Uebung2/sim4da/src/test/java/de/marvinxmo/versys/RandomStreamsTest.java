@@ -0,0 +1,98 @@
+package de.marvinxmo.versys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RandomStreamsTest {
+
+    private final Simulator simulator = Simulator.getInstance();
+
+    @Test
+    void activitiesOfDifferentNodesDrawDifferentSequences() throws Exception {
+        SimulationBehavior.setSeed(42);
+        Map<String, long[]> draws = run();
+
+        // Pool threads, listener threads named alike and main threads all
+        // get streams of their own
+        Set<String> distinct = new HashSet<>();
+        for (long[] d : draws.values()) {
+            distinct.add(Arrays.toString(d));
+        }
+        assertEquals(draws.size(), distinct.size(), draws.keySet().toString());
+        assertNotEquals(Arrays.toString(draws.get("A/task1")), Arrays.toString(draws.get("B/task1")));
+        assertNotEquals(Arrays.toString(draws.get("A/listener")), Arrays.toString(draws.get("B/listener")));
+    }
+
+    @Test
+    void theSameSeedRepeatsEverySequence() throws Exception {
+        SimulationBehavior.setSeed(7);
+        Map<String, long[]> first = run();
+        Map<String, long[]> second = run();
+        SimulationBehavior.setSeed(8);
+        Map<String, long[]> other = run();
+
+        for (String activity : first.keySet()) {
+            assertEquals(Arrays.toString(first.get(activity)), Arrays.toString(second.get(activity)), activity);
+            assertNotEquals(Arrays.toString(first.get(activity)), Arrays.toString(other.get(activity)), activity);
+        }
+    }
+
+    /**
+     * Two nodes A and B, each drawing from its main thread, from a listener
+     * thread named "listener" and from two tasks on a one-thread pool.
+     */
+    private Map<String, long[]> run() throws Exception {
+        Map<String, long[]> draws = new TreeMap<>();
+        List<Thread> mains = new ArrayList<>();
+        for (String node : List.of("A", "B")) {
+            mains.add(simulator.startThread(node, false, () -> {
+                try {
+                    record(draws, node + "/main");
+                    Thread listener = simulator.startThread("listener", true, () -> record(draws, node + "/listener"));
+                    listener.join();
+                    ExecutorService pool = simulator.newExecutorService(1);
+                    List<Future<?>> tasks = new ArrayList<>();
+                    for (int i = 1; i <= 2; i++) {
+                        String name = node + "/task" + i;
+                        tasks.add(pool.submit(() -> record(draws, name)));
+                    }
+                    for (Future<?> f : tasks) {
+                        f.get();
+                    }
+                    pool.shutdown();
+                    pool.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, 0));
+        }
+        for (Thread t : mains) {
+            t.join();
+        }
+        assertEquals(8, draws.size(), draws.keySet().toString());
+        return draws;
+    }
+
+    private static void record(Map<String, long[]> draws, String activity) {
+        long[] values = new long[4];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = RandomStreams.current().nextLong();
+        }
+        synchronized (draws) {
+            draws.put(activity, values);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package de.marvinxmo.versys.distribution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DistributionTest {
+
+    private static final int DRAWS = 200_000;
+
+    private final SplittableRandom random = new SplittableRandom(19);
+
+    @Test
+    void aliasTableDrawsInProportionToTheWeights() {
+        double[] weights = { 1, 2, 3, 4, 0, 10 };
+        AliasTable table = new AliasTable(weights);
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < DRAWS; i++) {
+            counts[table.next(random)]++;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / 20, (double) counts[i] / DRAWS, 0.005, "index " + i);
+        }
+        assertEquals(0, counts[4]);
+    }
+
+    @Test
+    void aliasTableWithASingleOutcome() {
+        AliasTable single = new AliasTable(new double[] { 5 });
+        AliasTable oneNonZero = new AliasTable(new double[] { 0, 0, 3, 0 });
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(0, single.next(random));
+            assertEquals(2, oneNonZero.next(random));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] { 0, 0 }));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] { 1, -1 }));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] { 1, Double.NaN }));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AliasTable(new double[] { 1, Double.POSITIVE_INFINITY }));
+    }
+
+    @Test
+    void discreteIgnoresZeroWeightsForItsMinimum() {
+        Distribution d = Distribution.discrete(new double[] { 1, 7, 9 }, new double[] { 0, 1, 1 });
+        assertEquals(7, d.min());
+        for (int i = 0; i < 10_000; i++) {
+            double x = d.sample(random);
+            assertTrue(x == 7 || x == 9, "sampled " + x);
+        }
+    }
+
+    @Test
+    void normalQuantiles() {
+        assertEquals(0, InverseCdfTable.normalQuantile(0.5), 1e-9);
+        assertEquals(1.959963985, InverseCdfTable.normalQuantile(0.975), 1e-8);
+        // Lower tail, computed by a different approximation
+        assertEquals(-3.090232306, InverseCdfTable.normalQuantile(0.001), 1e-8);
+        assertEquals(Double.NEGATIVE_INFINITY, InverseCdfTable.normalQuantile(0));
+
+        double[] samples = draw(new InverseCdfTable(InverseCdfTable::normalQuantile));
+        assertEquals(0, quantile(samples, 0.5), 0.02);
+        assertEquals(1.281552, quantile(samples, 0.9), 0.02);
+        assertEquals(-1.644854, quantile(samples, 0.05), 0.03);
+    }
+
+    @Test
+    void logNormalMedianIsExpOfMu() {
+        Distribution d = Distribution.logNormal(1, 0.5);
+        double[] samples = draw(d);
+        assertEquals(Math.E, quantile(samples, 0.5), 0.03);
+        assertEquals(Math.exp(1 + 0.5 * 1.959964), quantile(samples, 0.975), 0.15);
+    }
+
+    @Test
+    void empiricalInterpolatesBetweenTheSamples() {
+        // 0, 1, ..., 100 in shuffled order
+        double[] values = new double[101];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i * 37) % 101;
+        }
+        Distribution d = Distribution.empirical(values);
+        assertEquals(0, d.min());
+
+        double[] samples = draw(d);
+        assertEquals(50, quantile(samples, 0.5), 0.5);
+        assertEquals(90, quantile(samples, 0.9), 0.5);
+        assertEquals(0, samples[0], 0.01);
+        assertEquals(100, samples[samples.length - 1], 0.01);
+    }
+
+    @Test
+    void loadsSamplesAndHistograms(@TempDir Path dir) throws IOException {
+        Path samples = dir.resolve("samples.txt");
+        Files.writeString(samples, "# measured round trips\n\n4\n 2 \n3\n1\n0\n");
+        Distribution empirical = Distribution.load(samples);
+        assertEquals(0, empirical.min());
+        assertEquals(2, quantile(draw(empirical), 0.5), 0.05);
+
+        Path histogram = dir.resolve("histogram.csv");
+        Files.writeString(histogram, "# value, weight\n5, 0\n10, 1\n20;3\n");
+        Distribution discrete = Distribution.load(histogram);
+        assertEquals(10, discrete.min());
+        double[] drawn = draw(discrete);
+        long twenties = Arrays.stream(drawn).filter(x -> x == 20).count();
+        assertEquals(0.75, (double) twenties / DRAWS, 0.005);
+        assertEquals(10, drawn[0]);
+
+        Path broken = dir.resolve("broken.txt");
+        Files.writeString(broken, "1\nten\n");
+        assertThrows(IOException.class, () -> Distribution.load(broken));
+        Path empty = dir.resolve("empty.txt");
+        Files.writeString(empty, "# nothing\n");
+        assertThrows(IOException.class, () -> Distribution.load(empty));
+    }
+
+    /**
+     * DRAWS samples, sorted.
+     */
+    private double[] draw(Distribution d) {
+        double[] samples = new double[DRAWS];
+        for (int i = 0; i < DRAWS; i++) {
+            samples[i] = d.sample(random);
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static double quantile(double[] sorted, double p) {
+        return sorted[(int) (p * (sorted.length - 1))];
+    }
+}
@@ -0,0 +1,122 @@
+package de.marvinxmo.versys.topology;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+class TopologyTest {
+
+    @Test
+    void routesAlongShortestPaths() {
+        Map<String, Topology> topologies = new TreeMap<>();
+        topologies.put("complete", Topology.complete(names(7)));
+        topologies.put("ring", Topology.ring(names(9)));
+        topologies.put("star", Topology.star(names(8)));
+        topologies.put("grid", Topology.grid(names(20), 5));
+        topologies.put("torus", Topology.torus(names(30), 6));
+        // Wrapping on a dimension of two repeats the edge
+        topologies.put("torus 2x3", Topology.torus(names(6), 3));
+        topologies.put("incomplete grid", Topology.grid(names(23), 5));
+        topologies.put("incomplete torus", Topology.torus(names(17), 4));
+        topologies.put("random regular", Topology.randomRegular(names(24), 3, 12));
+        topologies.put("scale free", Topology.scaleFree(names(40), 2, 12));
+
+        topologies.forEach(TopologyTest::assertShortestPaths);
+    }
+
+    @Test
+    void randomRegularGraphsHaveExactlyDegreeNeighbors() {
+        for (int degree : new int[] { 1, 3, 4, 7 }) {
+            Topology topology = Topology.randomRegular(names(30), degree, degree);
+            for (int node = 0; node < topology.size(); node++) {
+                assertEquals(degree, topology.degree(node), "degree " + degree + ", node " + node);
+                Set<Integer> neighbors = new HashSet<>();
+                for (int i = 0; i < degree; i++) {
+                    int neighbor = topology.neighbor(node, i);
+                    assertNotEquals(node, neighbor, "self loop at " + node);
+                    assertTrue(neighbors.add(neighbor), "duplicate edge " + node + "-" + neighbor);
+                    assertTrue(topology.isNeighbor(neighbor, node), "edge " + node + "-" + neighbor);
+                }
+            }
+        }
+    }
+
+    @Test
+    void routesAfterRoutingTablesWereEvicted() {
+        GraphTopology topology = (GraphTopology) Topology.scaleFree(names(50), 2, 7);
+        topology.setRouteCacheLimit(3);
+        assertShortestPaths("scale free, 3 tables", topology);
+        // Shrinking drops tables that are in use
+        topology.setRouteCacheLimit(1);
+        assertShortestPaths("scale free, 1 table", topology);
+
+        GraphTopology grid = (GraphTopology) Topology.grid(names(23), 5);
+        grid.setRouteCacheLimit(2);
+        assertShortestPaths("incomplete grid, 2 tables", grid);
+    }
+
+    @Test
+    void precomputedRoutesMatchTheLazyOnes() {
+        GraphTopology topology = ((GraphTopology) Topology.scaleFree(names(40), 3, 5)).precomputeRoutes();
+        assertShortestPaths("scale free, precomputed", topology);
+    }
+
+    private static void assertShortestPaths(String label, Topology topology) {
+        for (int from = 0; from < topology.size(); from++) {
+            int[] expected = bfs(topology, from);
+            for (int to = 0; to < topology.size(); to++) {
+                String pair = label + ": " + from + " -> " + to;
+                assertEquals(expected[to], topology.distance(from, to), pair);
+                int hop = topology.nextHop(from, to);
+                if (from == to) {
+                    assertEquals(-1, hop, pair);
+                } else {
+                    assertTrue(topology.isNeighbor(from, hop), pair + " via " + hop);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hops from the source to every node, -1 if unreachable, straight from the
+     * adjacency of the topology.
+     */
+    private static int[] bfs(Topology topology, int source) {
+        int[] distance = new int[topology.size()];
+        Arrays.fill(distance, -1);
+        distance[source] = 0;
+        List<Integer> frontier = List.of(source);
+        while (!frontier.isEmpty()) {
+            List<Integer> next = new ArrayList<>();
+            for (int node : frontier) {
+                for (int i = 0; i < topology.degree(node); i++) {
+                    int v = topology.neighbor(node, i);
+                    if (distance[v] < 0) {
+                        distance[v] = distance[node] + 1;
+                        next.add(v);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return distance;
+    }
+
+    private static List<String> names(int n) {
+        List<String> names = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            names.add("Node" + i);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,192 @@
+package de.marvinxmo.versys.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import de.marvinxmo.versys.Message;
+import de.marvinxmo.versys.MessageCodec;
+
+class MappedRingTest {
+
+    private static final int CAPACITY = 256;
+
+    private final ByteBuffer region = ByteBuffer.allocateDirect(MappedRing.HEADER + CAPACITY);
+    private final MappedRing ring = new MappedRing(region, CAPACITY);
+    private final MessageCodec codec = new MessageCodec();
+    // Never waits: offer returns 0 as soon as the ring is full
+    private final MappedRing.Backoff noWait = new MappedRing.Backoff(() -> false);
+    private final List<String> sent = new ArrayList<>();
+    private final List<String> received = new ArrayList<>();
+
+    MappedRingTest() {
+        ring.reset();
+    }
+
+    @Test
+    void frameExactlyFillingTheRestWrapsToTheStart() {
+        assertEquals(96, offer(96, 'a'));
+        assertEquals(CAPACITY - 96, offer(CAPACITY - 96, 'b'));
+        // Full: not even the smallest frame fits
+        assertEquals(0, offer(16, 'c'));
+
+        assertEquals(2, poll());
+        // The next frame starts at the beginning, without a skip marker
+        assertEquals(16, offer(16, 'c'));
+        assertEquals(16 - 4, data().getInt(0));
+        assertEquals(1, poll());
+        assertEquals(sent, received);
+    }
+
+    @Test
+    void frameNotFittingBeforeTheEndIsWrittenAtTheStart() {
+        assertEquals(200, offer(200, 'a'));
+        assertEquals(1, poll());
+
+        // 56 bytes left before the end, 256 free: skip marker, then index 0
+        assertEquals(100, offer(100, 'b'));
+        assertEquals(-1, data().getInt(200));
+        assertEquals(100 - 4, data().getInt(0));
+        assertEquals(1, poll());
+        assertEquals(sent, received);
+    }
+
+    @Test
+    void frameAfterTheSkipWaitsForTheConsumer() {
+        assertEquals(200, offer(200, 'a'));
+        // Skips the 56 bytes at the end, but the start is still taken
+        assertEquals(0, offer(100, 'b'));
+        assertEquals(-1, data().getInt(200));
+        assertEquals(1, poll());
+        assertEquals(100, offer(100, 'b'));
+        assertEquals(1, poll());
+        assertEquals(sent, received);
+    }
+
+    @Test
+    void rejectsFramesLargerThanTheRing() {
+        Message tooLarge = message(CAPACITY + 8, 'x');
+        assertThrows(IllegalArgumentException.class, () -> ring.offer("n", tooLarge, codec, noWait));
+
+        // Not at the start: the producer skips to it and waits until the
+        // consumer passed the marker, then finds the empty ring too small
+        assertEquals(40, offer(40, 'a'));
+        assertEquals(1, poll());
+        assertEquals(0, ring.offer("n", tooLarge, codec, noWait));
+        assertEquals(0, poll());
+        assertThrows(IllegalArgumentException.class, () -> ring.offer("n", tooLarge, codec, noWait));
+
+        // The ring is still usable afterwards
+        assertEquals(CAPACITY, offer(CAPACITY, 'b'));
+        assertEquals(1, poll());
+        assertEquals(sent, received);
+    }
+
+    @Test
+    void keepsTheOrderAcrossManyWraps() {
+        SplittableRandom random = new SplittableRandom(14);
+        int next = 0;
+        while (sent.size() < 20_000) {
+            // Unaligned lengths, so the 8-byte padding is exercised too
+            if (offer(16 + random.nextInt(120), (char) ('a' + next % 26)) == 0) {
+                poll();
+                continue;
+            }
+            next++;
+            if (random.nextInt(4) == 0) {
+                poll();
+            }
+        }
+        poll();
+        assertEquals(sent, received);
+    }
+
+    @Test
+    void producerAndConsumerThreadsHandOverEveryFrame() throws Exception {
+        int frames = 50_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            try {
+                MessageCodec producerCodec = new MessageCodec();
+                MappedRing.Backoff backoff = new MappedRing.Backoff(() -> true);
+                SplittableRandom random = new SplittableRandom(15);
+                for (int i = 0; i < frames; i++) {
+                    Message m = new Message().add("i", i).add("pad", text(random.nextInt(60), 'p'));
+                    ring.offer("n", m, producerCodec, backoff);
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+
+        int[] expected = { 0 };
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (expected[0] < frames && System.nanoTime() < deadline && failure.get() == null) {
+            if (ring.poll(codec, (receiver, m) -> assertEquals(expected[0]++, m.queryInteger("i"))) == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join(1000);
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(frames, expected[0]);
+        assertFalse(producer.isAlive());
+    }
+
+    /**
+     * Offer a frame of exactly frameLength bytes and remember its text if it
+     * was written.
+     */
+    private int offer(int frameLength, char fill) {
+        Message m = message(frameLength, fill);
+        int length = ring.offer("n", m, codec, noWait);
+        if (length > 0) {
+            sent.add(m.query("v"));
+        }
+        return length;
+    }
+
+    private int poll() {
+        return ring.poll(codec, (receiver, m) -> {
+            assertEquals("n", receiver);
+            received.add(m.query("v"));
+        });
+    }
+
+    private ByteBuffer data() {
+        return region.slice(MappedRing.HEADER, CAPACITY);
+    }
+
+    /**
+     * Message whose frame to "n" is exactly frameLength bytes long.
+     */
+    private Message message(int frameLength, char fill) {
+        for (int length = 0; length <= frameLength; length++) {
+            Message m = new Message().add("v", text(length, fill));
+            int size = Frames.encode("n", m, codec).remaining();
+            if (size == frameLength) {
+                return m;
+            }
+            if (size > frameLength) {
+                break;
+            }
+        }
+        throw new IllegalArgumentException("No message with a frame of " + frameLength + " bytes");
+    }
+
+    private static String text(int length, char fill) {
+        return String.valueOf(fill).repeat(length);
+    }
+}